@@ -129,6 +129,7 @@ export class GameMaster {
     } catch (error) {
       console.log("Publish failed. error = ", error);
     }
+    this.requestRosterSnapshot();
   }
 
   // called by Scoreboard.vue destroy method
@@ -159,10 +160,39 @@ export class GameMaster {
   }
 
   queryGame(teamId) {
-    try {
-      publishMessageToTopic('games/' + teamId + "/queryGame", {}, this.session, this.solaceApi);
-    } catch (error) {
-      console.log("Publish failed. error = ", error);
+    this.queryState('team/' + teamId);
+  }
+
+  // ask the server for the last message published on a topic, the reply only comes back to this client
+  queryState(topic) {
+    this.sendRequest('state/query', {topic: topic}, topic);
+  }
+
+  // full roster with the version of the last roster delta, used on start and when a delta was missed
+  requestRosterSnapshot() {
+    this.sendRequest('roster/snapshot', {}, 'tournament/update');
+  }
+
+  // the reply is handled as if it had been received on replyTopic
+  sendRequest(requestTopic, msg, replyTopic) {
+    if (this.session !== null) {
+      let solace = this.solaceApi;
+      try {
+        var request = solace.SolclientFactory.createMessage();
+        request.setDestination(solace.SolclientFactory.createTopicDestination(requestTopic));
+        request.setBinaryAttachment(JSON.stringify(msg));
+        request.setDeliveryMode(solace.MessageDeliveryModeType.DIRECT);
+        this.session.sendRequest(request, 5000, (session, reply) => {
+          let payload = reply.getBinaryAttachment();
+          if (payload) {
+            this.handleMessage(replyTopic, payload);
+          }
+        }, (session, error) => {
+          console.log('Request to ' + requestTopic + ' failed', error);
+        });
+      } catch (error) {
+        console.log("Request failed. error = ", error);
+      }
     }
   }
 
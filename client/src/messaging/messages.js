@@ -105,11 +105,21 @@ export class SelectPieceMessage extends TroubleFlipperMessage {
 }
 
 export class SwapMessage extends TroubleFlipperMessage {
-  constructor(piece1, piece2, clientId) {
+  constructor(piece1, piece2, clientId, boardVersion, moveId) {
     super();
     this.piece1 = piece1;
     this.piece2 = piece2;
     this.clientId = clientId;
+    // the board the move was made on, the server rejects it if either piece moved since
+    this.boardVersion = boardVersion;
+    this.moveId = moveId;
+  }
+}
+
+//user/clientId/move
+export class MoveAckMessage extends TroubleFlipperMessage {
+  constructor() {
+    super();
   }
 }
 
@@ -175,7 +185,12 @@ export class TournamentMessage extends TroubleFlipperMessage {
 export function parseReceivedMessage(topic, msg) {
   // console.log('Received msg from ', topic, msg);
   let msgObj = JSON.parse(msg);
-  if (topic.startsWith('user/')) {
+  if (topic.startsWith('user/') && topic.endsWith('/move')) {
+    return Object.assign(new MoveAckMessage, msgObj);
+  } else if (topic.startsWith('user/') && topic.endsWith('/team')) {
+    // the board sent to this player alone after a reconnect
+    return Object.assign(new TeamsMessage, msgObj);
+  } else if (topic.startsWith('user/')) {
     return Object.assign(new UsersAckMessage, msgObj);
   } else if (topic.startsWith('team/')) {
     return Object.assign(new TeamsMessage, msgObj);
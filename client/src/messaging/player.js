@@ -29,13 +29,17 @@ export class Player {
           vpnName: this.appProps.vpn,
           userName: this.appProps.username,
           password: this.appProps.password,
-          clientName: this.clientId || ''
+          clientName: this.clientId || '',
+          // lets the server rate limit game messages per client
+          generateSenderId: true
         });
         this.session.on(solace.SessionEventCode.UP_NOTICE, (sessionEvent) => {
           let sessionProperties = this.session.getSessionProperties();
           this.clientId = sessionProperties.clientName;
           console.log('Successfully connected with clientId ' + this.clientId +
             ', protocol in use ' + sessionProperties.transportProtocolInUse);
+          this.subscribeToTopic('user/' + this.clientId + '/move');
+          this.subscribeToTopic('user/' + this.clientId + '/team');
           this.subscribeToTopic('user/' + this.clientId);
         });
         this.session.on(solace.SessionEventCode.CONNECT_FAILED_ERROR, (sessionEvent) => {
@@ -99,7 +103,9 @@ export class Player {
       var messageInstance = parseReceivedMessage(topic, message);
       if (messageInstance instanceof TeamsMessage) {
         // set team topic
-        this.teamTopic = topic;
+        if (topic.startsWith('team/')) {
+          this.teamTopic = topic;
+        }
         this.gameTopic = 'games/' + messageInstance.teamId;
       }
       if (messageInstance !== null) {
@@ -117,6 +123,10 @@ export class Player {
     the user's game if it is active
     */
     var usersMessage = new UsersMessage(this.username, this.clientId);
+    if (this.lastSequence !== undefined) {
+      // the server sends only the board changes after it
+      usersMessage.lastSequence = this.lastSequence;
+    }
     try {
       publishMessageToTopic('users', usersMessage, this.session, this.solaceApi);
     } catch (error) {
@@ -124,6 +134,11 @@ export class Player {
     }
   }
 
+  // called by Game.vue with the sequence of every board it shows
+  setCatchUp(sequence) {
+    this.lastSequence = sequence;
+  }
+
   // called by Game.vue destroy method
   unregister() {
     console.log('Let server know player ' + this.username + ', clientId ' + this.clientId + ' becomes inactive');
@@ -173,11 +188,11 @@ export class Player {
     }
   }
 
-  swap(piece1, piece2) {
+  swap(piece1, piece2, boardVersion, moveId) {
     console.log('publish swap message to ' + this.gameTopic, piece1, piece2);
 
-    // The response from server is not the whole puzzle, but echo back the request
-    var swapMessage = new SwapMessage(piece1, piece2, this.clientId);
+    // The server answers on user/clientId/move, the team gets the whole puzzle
+    var swapMessage = new SwapMessage(piece1, piece2, this.clientId, boardVersion, moveId);
     try {
       publishMessageToTopic(this.gameTopic, swapMessage, this.session, this.solaceApi);
     } catch (error) {
@@ -0,0 +1,22 @@
+package com.solace.troubleflipper;
+
+import java.util.TimerTask;
+
+/**
+ * A timer task that a {@link VirtualClock} sees cancel itself. Repeating tasks that call cancel() from run() extend
+ * it, a plain TimerTask keeps repeating on a virtual clock until its timer is cancelled.
+ */
+public abstract class ClockTask extends TimerTask {
+
+    private volatile boolean cancelled = false;
+
+    @Override
+    public boolean cancel() {
+        cancelled = true;
+        return super.cancel();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,186 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.ClusterCommandMessage;
+import com.solace.troubleflipper.messages.ClusterEventMessage;
+import com.solace.troubleflipper.messages.PlayerState;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.PublisherException;
+import com.solace.troubleflipper.model.SubscriberException;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.BadGuyActionHandler;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tournament side of the partitioned mode.
+ *
+ * Teams owned by the coordinator are played locally and only their game topics are subscribed. The games of all
+ * other teams are {@link RemoteGame}s whose commands go out on cluster/{nodeId}; the owner nodes report back on
+ * cluster/coordinator.
+ */
+public class ClusterCoordinator {
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final TeamPartitioner teamPartitioner;
+    private final TournamentProperties tournamentProperties;
+    private final Subscriber subscriber;
+    private final Publisher publisher;
+    private final BadGuyActionHandler badGuyActionHandler;
+
+    private final Map<String, RemoteGame> remoteGames = new ConcurrentHashMap<>();
+    private final Set<String> localTeamIds = ConcurrentHashMap.newKeySet();
+
+    public ClusterCoordinator(TeamPartitioner teamPartitioner, TournamentProperties tournamentProperties,
+                              Subscriber subscriber, Publisher publisher, BadGuyActionHandler badGuyActionHandler) {
+        this.teamPartitioner = teamPartitioner;
+        this.tournamentProperties = tournamentProperties;
+        this.subscriber = subscriber;
+        this.publisher = publisher;
+        this.badGuyActionHandler = badGuyActionHandler;
+        subscriber.registerHandler(ClusterEventMessage.class, "cluster/coordinator", this::handleEvent);
+    }
+
+    public boolean isLocal(Team team) {
+        return teamPartitioner.isLocal(team.getId());
+    }
+
+    public void hostLocally(Team team) {
+        if (localTeamIds.add(team.getId())) {
+            subscribeGameTopics(subscriber, team.getId());
+        }
+    }
+
+    // the puzzle names and tile sets are set on the game before it is hosted
+    public void host(RemoteGame game) {
+        Team team = game.getTeam();
+        remoteGames.put(team.getId(), game);
+        ClusterCommandMessage command = newCommand(game, ClusterCommandMessage.ACTION_HOST);
+        command.setTeamName(team.getName());
+        command.setCompletedGames(team.getCompletedGames());
+        command.setPuzzleName(game.getPuzzleName());
+        command.setNextPuzzleName(game.getNextPuzzleName());
+        command.setTileSet(game.getTileSet());
+        command.setNextTileSet(game.getNextTileSet());
+        command.setPlayers(toPlayerStates(team.getPlayers()));
+        send(game, command);
+    }
+
+    public RemoteGame createRemoteGame(Team team) {
+        return new RemoteGame(team, tournamentProperties, this, teamPartitioner.getOwner(team.getId()));
+    }
+
+    /**
+     * Drops every team, locally and on the other nodes.
+     */
+    public void reset() {
+        for (String node : teamPartitioner.getNodes()) {
+            if (!node.equals(teamPartitioner.getLocalNode())) {
+                ClusterCommandMessage command = new ClusterCommandMessage();
+                command.setAction(ClusterCommandMessage.ACTION_RESET);
+                publish(node, command);
+            }
+        }
+        for (String teamId : localTeamIds) {
+            unsubscribeGameTopics(subscriber, teamId);
+        }
+        localTeamIds.clear();
+        remoteGames.clear();
+    }
+
+    public void close() {
+        subscriber.deregisterHandler("cluster/coordinator");
+        reset();
+    }
+
+    ClusterCommandMessage newCommand(RemoteGame game, String action) {
+        ClusterCommandMessage command = new ClusterCommandMessage();
+        command.setAction(action);
+        command.setTeamId(game.getTeam().getId());
+        return command;
+    }
+
+    void send(RemoteGame game, String action, boolean flag) {
+        ClusterCommandMessage command = newCommand(game, action);
+        command.setFlag(flag);
+        send(game, command);
+    }
+
+    void send(RemoteGame game, ClusterCommandMessage command) {
+        publish(game.getOwner(), command);
+    }
+
+    private void publish(String node, ClusterCommandMessage command) {
+        try {
+            publisher.publish("cluster/" + node, command);
+        } catch (PublisherException ex) {
+            log.error("Unable to send " + command.getAction() + " for team " + command.getTeamId() + " to node " + node, ex);
+        }
+    }
+
+    private void handleEvent(ClusterEventMessage eventMessage) {
+        RemoteGame game = remoteGames.get(eventMessage.getTeamId());
+        if (game == null || game.getGameNumber() != eventMessage.getCompletedGames()) {
+            log.debug("Ignore " + eventMessage.getType() + " from a previous game of team " + eventMessage.getTeamId());
+            return;
+        }
+        if (ClusterEventMessage.TYPE_STATUS.equals(eventMessage.getType())) {
+            game.applyStatus(eventMessage);
+        } else if (ClusterEventMessage.TYPE_GAME_OVER.equals(eventMessage.getType())) {
+            game.applyGameOver();
+        } else if (ClusterEventMessage.TYPE_ATTACK_RESULT.equals(eventMessage.getType())) {
+            game.applyAttackResult(eventMessage);
+        } else {
+            Player player = game.getTeam().getPlayer(eventMessage.getClientName());
+            if (player == null) {
+                return;
+            }
+            if (ClusterEventMessage.TYPE_TROUBLE_FLIPPER.equals(eventMessage.getType())) {
+                badGuyActionHandler.troubleFlipper(player);
+            } else if (ClusterEventMessage.TYPE_GREEN_SHELL.equals(eventMessage.getType())) {
+                badGuyActionHandler.greenShell(player);
+            }
+        }
+    }
+
+    static void subscribeGameTopics(Subscriber subscriber, String teamId) {
+        try {
+            subscriber.subscribe("games/" + teamId);
+            subscriber.subscribe("games/" + teamId + "/>");
+        } catch (SubscriberException ex) {
+            LoggerFactory.getLogger("tournament").error("Unable to subscribe to the game topics of team " + teamId, ex);
+        }
+    }
+
+    static void unsubscribeGameTopics(Subscriber subscriber, String teamId) {
+        try {
+            subscriber.unsubscribe("games/" + teamId);
+            subscriber.unsubscribe("games/" + teamId + "/>");
+        } catch (SubscriberException ex) {
+            LoggerFactory.getLogger("tournament").error("Unable to remove the game subscriptions of team " + teamId, ex);
+        }
+    }
+
+    static List<PlayerState> toPlayerStates(Collection<Player> players) {
+        List<PlayerState> playerStates = new ArrayList<>(players.size());
+        for (Player player : players) {
+            PlayerState playerState = new PlayerState();
+            playerState.setClientName(player.getClientName());
+            playerState.setGamerTag(player.getGamerTag());
+            playerState.setRightMoves(player.getRightMoves());
+            playerState.setWrongMoves(player.getWrongMoves());
+            if (player.getCharacter() != null) {
+                playerState.setCharacterType(player.getCharacter().getType());
+            }
+            if (player.getTeam() != null) {
+                playerState.setTeamId(player.getTeam().getId());
+            }
+            playerStates.add(playerState);
+        }
+        return playerStates;
+    }
+}
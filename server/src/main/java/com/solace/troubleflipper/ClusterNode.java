@@ -0,0 +1,259 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.AttackResult;
+import com.solace.troubleflipper.messages.ClusterCommandMessage;
+import com.solace.troubleflipper.messages.ClusterEventMessage;
+import com.solace.troubleflipper.messages.PlayerState;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Game;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.PublisherException;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.BadGuyActionHandler;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Hosts the games of the teams a non coordinator node owns in partitioned mode.
+ *
+ * The node only subscribes to the game topics of its own teams, so it takes the moves of those teams and nothing
+ * else. Everything that involves more than one team is left to the coordinator, which sends commands on
+ * cluster/{nodeId} and gets the progress of the games on cluster/coordinator. Hosting and resets are handled on the
+ * lane of the room, everything a command does to a game runs on a serial executor of its team, so a slow board never
+ * holds up the commands for the other teams. Attacks are answered with their result.
+ */
+public class ClusterNode implements GameOverListener, GameProgressListener, BadGuyActionHandler {
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final String nodeId;
+    private final TournamentProperties tournamentProperties;
+    private final Subscriber subscriber;
+    private final Publisher publisher;
+    private final Map<String, Team> teams = new ConcurrentHashMap<>();
+    private final GameClock clock;
+    private final Executor executor;
+    private final ClientHandles clientHandles;
+    private final Map<String, SerialExecutor> teamLanes = new ConcurrentHashMap<>();
+    private Timer timer;
+
+    public ClusterNode(String nodeId, TournamentProperties tournamentProperties, Subscriber subscriber, Publisher publisher) {
+        this(nodeId, tournamentProperties, subscriber, publisher, GameClock.SYSTEM, ForkJoinPool.commonPool(),
+                new ClientHandles());
+    }
+
+    /**
+     * Creates a node whose games and timers run on the clock, with the team lanes on the executor. The hosted players
+     * hold the handles of their client names in clientHandles.
+     */
+    public ClusterNode(String nodeId, TournamentProperties tournamentProperties, Subscriber subscriber,
+                       Publisher publisher, GameClock clock, Executor executor, ClientHandles clientHandles) {
+        this.nodeId = nodeId;
+        this.tournamentProperties = tournamentProperties;
+        this.subscriber = subscriber;
+        this.publisher = publisher;
+        this.clock = clock;
+        this.executor = executor;
+        this.clientHandles = clientHandles;
+        this.timer = newTimer();
+        subscriber.registerHandler(ClusterCommandMessage.class, "cluster/" + nodeId, this::handleCommand);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Set<String> getTeamIds() {
+        return Collections.unmodifiableSet(teams.keySet());
+    }
+
+    public Team getTeam(String teamId) {
+        return teams.get(teamId);
+    }
+
+    public synchronized void close() {
+        subscriber.deregisterHandler("cluster/" + nodeId);
+        reset();
+        timer.cancel();
+    }
+
+    private synchronized void handleCommand(ClusterCommandMessage command) {
+        String action = command.getAction();
+        if (ClusterCommandMessage.ACTION_RESET.equals(action)) {
+            reset();
+            return;
+        }
+        if (ClusterCommandMessage.ACTION_HOST.equals(action)) {
+            host(command);
+            return;
+        }
+        Team team = teams.get(command.getTeamId());
+        Game game = team == null ? null : team.getGame();
+        if (game == null) {
+            log.info("Node " + nodeId + " does not host team " + command.getTeamId() + ", ignore " + action);
+            return;
+        }
+        teamLanes.computeIfAbsent(team.getId(), id -> new SerialExecutor(executor)).execute(() -> {
+            try {
+                runCommand(game, command);
+            } catch (RuntimeException ex) {
+                log.error("Unable to run " + action + " for team " + command.getTeamId(), ex);
+            }
+        });
+    }
+
+    private void runCommand(Game game, ClusterCommandMessage command) {
+        String action = command.getAction();
+        switch (action) {
+            case ClusterCommandMessage.ACTION_START:
+                game.start();
+                break;
+            case ClusterCommandMessage.ACTION_STOP:
+                game.stop();
+                break;
+            case ClusterCommandMessage.ACTION_UPDATE_PUZZLE:
+                game.updatePuzzleForTeam(command.isFlag());
+                break;
+            case ClusterCommandMessage.ACTION_CATCH_UP:
+                game.catchUp(command.getClientName(), command.getLastSequence());
+                break;
+            case ClusterCommandMessage.ACTION_UPDATE_CHARACTERS:
+                game.updateCharactersForTeam(command.isFlag());
+                break;
+            case ClusterCommandMessage.ACTION_TROUBLE_FLIPPER:
+            case ClusterCommandMessage.ACTION_GREEN_SHELL:
+                // only used for logging by the game under attack
+                Team attackerTeam = new Team(clientHandles);
+                attackerTeam.setName(command.getAttackerTeamName());
+                Player attacker = new Player();
+                attacker.setClientName(command.getAttacker().getClientName());
+                attacker.setGamerTag(command.getAttacker().getGamerTag());
+                attacker.setTeam(attackerTeam);
+                AttackResult attackResult = command.getAttackResult() != null ? command.getAttackResult() : new AttackResult();
+                attackResult.setPower(ClusterCommandMessage.ACTION_TROUBLE_FLIPPER.equals(action) ?
+                        AttackResult.POWER_TROUBLE_FLIPPER : AttackResult.POWER_GREEN_SHELL);
+                game.attack(attacker, attackResult, result -> {
+                    ClusterEventMessage eventMessage = newEvent(ClusterEventMessage.TYPE_ATTACK_RESULT, game.getTeam());
+                    eventMessage.setAttackId(command.getAttackId());
+                    eventMessage.setAttackResult(result);
+                    sendEvent(eventMessage);
+                });
+                break;
+            case ClusterCommandMessage.ACTION_ATTACK_COMPLETED:
+                game.attackCompleted(command.getAttackResult());
+                break;
+            default:
+                log.error("Unknown cluster command " + action);
+        }
+    }
+
+    // call inside synchronized
+    private void host(ClusterCommandMessage command) {
+        Team team = teams.get(command.getTeamId());
+        if (team == null) {
+            team = new Team(command.getTeamId(), clientHandles);
+            team.setName(command.getTeamName());
+            for (PlayerState playerState : command.getPlayers()) {
+                Player player = new Player();
+                player.setClientName(playerState.getClientName());
+                player.setGamerTag(playerState.getGamerTag());
+                // released when the node stops hosting the team
+                player.acquireHandle(clientHandles);
+                team.addPlayer(player);
+                player.setTeam(team);
+            }
+            teams.put(team.getId(), team);
+            ClusterCoordinator.subscribeGameTopics(subscriber, team.getId());
+        } else if (team.getGame() != null) {
+            team.getGame().stop();
+        }
+        team.setCompletedGames(command.getCompletedGames());
+        Game game = new Game(team, subscriber, publisher, timer, tournamentProperties, this, clock);
+        game.setPuzzleName(command.getPuzzleName());
+        game.setNextPuzzleName(command.getNextPuzzleName());
+        game.setTileSet(command.getTileSet());
+        game.setNextTileSet(command.getNextTileSet());
+        game.addGameOverListener(this);
+        game.addGameProgressListener(this);
+        team.setGame(game);
+        log.info("Node " + nodeId + " hosts game " + command.getCompletedGames() + " of team " + team.getId());
+    }
+
+    // call inside synchronized
+    private void reset() {
+        for (Team team : teams.values()) {
+            if (team.getGame() != null) {
+                team.getGame().stop();
+            }
+            ClusterCoordinator.unsubscribeGameTopics(subscriber, team.getId());
+            team.getPlayers().forEach(player -> player.releaseHandle(clientHandles));
+        }
+        teams.clear();
+        teamLanes.clear();
+        timer.cancel();
+        timer = newTimer();
+    }
+
+    private Timer newTimer() {
+        return clock.newTimer("ClusterNodeTimer-" + nodeId);
+    }
+
+    @Override
+    public void correctPiecesChanged(Game game) {
+        sendStatus(game);
+    }
+
+    @Override
+    public void charactersChanged(Game game) {
+        sendStatus(game);
+    }
+
+    @Override
+    public void gameOver(Game game) {
+        sendEvent(newEvent(ClusterEventMessage.TYPE_GAME_OVER, game.getTeam()));
+    }
+
+    @Override
+    public void troubleFlipper(Player bowserPlayer) {
+        ClusterEventMessage eventMessage = newEvent(ClusterEventMessage.TYPE_TROUBLE_FLIPPER, bowserPlayer.getTeam());
+        eventMessage.setClientName(bowserPlayer.getClientName());
+        sendEvent(eventMessage);
+    }
+
+    @Override
+    public void greenShell(Player goombaPlayer) {
+        ClusterEventMessage eventMessage = newEvent(ClusterEventMessage.TYPE_GREEN_SHELL, goombaPlayer.getTeam());
+        eventMessage.setClientName(goombaPlayer.getClientName());
+        sendEvent(eventMessage);
+    }
+
+    private void sendStatus(Game game) {
+        ClusterEventMessage eventMessage = newEvent(ClusterEventMessage.TYPE_STATUS, game.getTeam());
+        eventMessage.setCorrectPieces(game.getCorrectPieces());
+        eventMessage.setCharactersReady(game.isCharacterReadyForTeam());
+        eventMessage.setPlayers(ClusterCoordinator.toPlayerStates(game.getTeam().getPlayers()));
+        sendEvent(eventMessage);
+    }
+
+    private ClusterEventMessage newEvent(String type, Team team) {
+        ClusterEventMessage eventMessage = new ClusterEventMessage();
+        eventMessage.setType(type);
+        eventMessage.setTeamId(team.getId());
+        eventMessage.setCompletedGames(team.getCompletedGames());
+        return eventMessage;
+    }
+
+    private void sendEvent(ClusterEventMessage eventMessage) {
+        try {
+            publisher.publish("cluster/coordinator", eventMessage);
+        } catch (PublisherException ex) {
+            log.error("Unable to send " + eventMessage.getType() + " for team " + eventMessage.getTeamId() + " to the coordinator", ex);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.solace.troubleflipper;
+
+import java.util.Random;
+import java.util.Timer;
+
+/**
+ * Where games and tournaments take the time, their timers and their randomness from.
+ *
+ * SYSTEM is the wall clock with unseeded randomness. A {@link VirtualClock} runs the same code on a clock that only
+ * moves when it is advanced, with all randomness drawn from one seed.
+ */
+public class GameClock {
+
+    public static final GameClock SYSTEM = new GameClock();
+
+    protected GameClock() {
+    }
+
+    public long millis() {
+        return System.currentTimeMillis();
+    }
+
+    // every caller keeps its own generator
+    public Random newRandom() {
+        return new Random();
+    }
+
+    public Timer newTimer(String name) {
+        return new Timer(name);
+    }
+}
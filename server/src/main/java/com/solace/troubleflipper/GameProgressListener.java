@@ -0,0 +1,15 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.Game;
+
+public interface GameProgressListener {
+
+    void correctPiecesChanged(Game game);
+
+    default void charactersChanged(Game game) {
+    }
+
+    default void puzzleUpdated(Game game) {
+    }
+
+}
@@ -0,0 +1,219 @@
+package com.solace.troubleflipper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the message handlers of a room one at a time, with a queue for each kind of message.
+ *
+ * Control messages (tournaments, rooms, cluster and replication) run before anything else, so a game master waits at
+ * most for the handler that is running, however many moves are queued. Registrations and game messages share the
+ * rest: once gameplayWeight game messages ran in a row, a waiting registration goes next. Queries (state, roster
+ * snapshots and the leaderboard) come from any client and are not strict either, a waiting query goes next once
+ * gameplayWeight registrations and game messages ran since the last one. The rate limiter of the subscriber bounds
+ * the queries of each room. Within a lane messages keep their order.
+ *
+ * The handlers run on an executor that the rooms of a server share. A room takes a turn of at most DRAIN_BATCH
+ * handlers and then queues up behind the other rooms again, so a busy room cannot hold a worker.
+ */
+public class InboundLanes implements Executor {
+
+    public enum Lane {
+        CONTROL, REGISTRATION, GAMEPLAY, QUERY
+    }
+
+    private static final int DRAIN_BATCH = 16;
+
+    private Logger log = LoggerFactory.getLogger("message");
+
+    private final int gameplayWeight;
+    private final Executor executor;
+    // only set when the lanes run on a thread of their own
+    private final ExecutorService ownExecutor;
+    private final Object lock = new Object();
+    private final Map<Lane, Deque<Task>> queues = new EnumMap<>(Lane.class);
+    private final long[] maxWaitNanos = new long[Lane.values().length];
+    private final long[] handled = new long[Lane.values().length];
+    // game messages run since the last registration
+    private int gameplayRun = 0;
+    // registrations and game messages run since the last query
+    private int queryRun = 0;
+    private boolean shutdown = false;
+    // a drain is queued on the executor or running
+    private boolean draining = false;
+
+    /**
+     * Creates lanes that run on a thread of their own.
+     */
+    public InboundLanes(String name, int gameplayWeight) {
+        this(gameplayWeight, Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, name)), true);
+    }
+
+    public InboundLanes(int gameplayWeight, Executor executor) {
+        this(gameplayWeight, executor, false);
+    }
+
+    private InboundLanes(int gameplayWeight, Executor executor, boolean ownExecutor) {
+        this.gameplayWeight = Math.max(1, gameplayWeight);
+        this.executor = executor;
+        this.ownExecutor = ownExecutor ? (ExecutorService) executor : null;
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Returns the lane of a topic relative to its room.
+     */
+    public static Lane classify(String topic) {
+        if (topic.equals("tournaments") || topic.equals("rooms") || topic.equals("replication") ||
+                topic.startsWith("cluster/")) {
+            return Lane.CONTROL;
+        }
+        if (topic.equals("users")) {
+            return Lane.REGISTRATION;
+        }
+        if (topic.startsWith("games/")) {
+            return Lane.GAMEPLAY;
+        }
+        return Lane.QUERY;
+    }
+
+    // tasks without a topic queue up with the game messages
+    @Override
+    public void execute(Runnable task) {
+        execute(Lane.GAMEPLAY, task);
+    }
+
+    public void execute(Lane lane, Runnable task) {
+        synchronized (lock) {
+            if (shutdown) {
+                throw new RejectedExecutionException("The lanes are shut down");
+            }
+            queues.get(lane).add(new Task(lane, task));
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+            synchronized (lock) {
+                draining = false;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs the queued tasks and stops the thread of the lanes, if they have one.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (draining || ownExecutor == null) {
+                return;
+            }
+        }
+        ownExecutor.shutdown();
+    }
+
+    private void drain() {
+        for (int ran = 0; ran < DRAIN_BATCH; ran++) {
+            Task task;
+            synchronized (lock) {
+                task = poll();
+                if (task == null) {
+                    draining = false;
+                    if (shutdown && ownExecutor != null) {
+                        ownExecutor.shutdown();
+                    }
+                    return;
+                }
+                int index = task.lane.ordinal();
+                maxWaitNanos[index] = Math.max(maxWaitNanos[index], System.nanoTime() - task.queued);
+                handled[index]++;
+            }
+            try {
+                task.runnable.run();
+            } catch (RuntimeException ex) {
+                log.error("Unable to handle a " + task.lane + " message", ex);
+            }
+        }
+        // the other rooms get a turn
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+            log.error("Unable to handle the messages of a room, its executor is shut down", ex);
+            synchronized (lock) {
+                draining = false;
+            }
+        }
+    }
+
+    // call inside synchronized(lock), returns null if every lane is empty
+    private Task poll() {
+        Task task = queues.get(Lane.CONTROL).poll();
+        if (task != null) {
+            return task;
+        }
+        Deque<Task> registrations = queues.get(Lane.REGISTRATION);
+        Deque<Task> gameplay = queues.get(Lane.GAMEPLAY);
+        Deque<Task> queries = queues.get(Lane.QUERY);
+        if (!queries.isEmpty() && (registrations.isEmpty() && gameplay.isEmpty() || queryRun >= gameplayWeight)) {
+            queryRun = 0;
+            return queries.poll();
+        }
+        if (!registrations.isEmpty() && (gameplay.isEmpty() || gameplayRun >= gameplayWeight)) {
+            gameplayRun = 0;
+            queryRun++;
+            return registrations.poll();
+        }
+        task = gameplay.poll();
+        if (task != null) {
+            gameplayRun++;
+            queryRun++;
+        }
+        return task;
+    }
+
+    public int getDepth(Lane lane) {
+        synchronized (lock) {
+            return queues.get(lane).size();
+        }
+    }
+
+    public long getHandled(Lane lane) {
+        synchronized (lock) {
+            return handled[lane.ordinal()];
+        }
+    }
+
+    // the longest a task of the lane waited to run
+    public long getMaxWaitNanos(Lane lane) {
+        synchronized (lock) {
+            return maxWaitNanos[lane.ordinal()];
+        }
+    }
+
+    private static class Task {
+        private final Lane lane;
+        private final Runnable runnable;
+        private final long queued = System.nanoTime();
+
+        private Task(Lane lane, Runnable runnable) {
+            this.lane = lane;
+            this.runnable = runnable;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.solace.troubleflipper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the last serialized payload published on each state topic so late joiners and spectators can fetch the
+ * current state point-to-point instead of triggering a new broadcast.
+ */
+public class LastValueCache {
+
+    private static final String[] CACHED_TOPIC_PREFIXES = {"team/", "score/", "tournament/update"};
+
+    private final Map<String, byte[]> lastValues = new ConcurrentHashMap<>();
+
+    public boolean isCachedTopic(String topic) {
+        for (String prefix : CACHED_TOPIC_PREFIXES) {
+            if (topic.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(String topic, byte[] payload) {
+        if (isCachedTopic(topic)) {
+            lastValues.put(topic, payload);
+        }
+    }
+
+    public byte[] get(String topic) {
+        return lastValues.get(topic);
+    }
+
+    public boolean contains(String topic) {
+        return lastValues.containsKey(topic);
+    }
+
+    public void clear() {
+        lastValues.clear();
+    }
+}
@@ -0,0 +1,73 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.LeaderboardEntry;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.Team;
+
+import java.util.*;
+
+/**
+ * Snapshot of the player ranking that the compact leaderboard topics are served from.
+ *
+ * The snapshot is rebuilt by the scoring task and replaced as a whole, so top-K, page and team queries can read it
+ * from any thread without copying the live player list.
+ */
+public class Leaderboard {
+
+    private volatile List<LeaderboardEntry> entries = Collections.emptyList();
+    private volatile Map<String, List<LeaderboardEntry>> entriesByTeam = Collections.emptyMap();
+
+    public void update(List<Player> rankedPlayers) {
+        List<LeaderboardEntry> newEntries = new ArrayList<>(rankedPlayers.size());
+        Map<String, List<LeaderboardEntry>> newEntriesByTeam = new HashMap<>();
+        int rank = 0;
+        for (Player player : rankedPlayers) {
+            LeaderboardEntry entry = new LeaderboardEntry();
+            entry.setRank(++rank);
+            entry.setClientName(player.getClientName());
+            entry.setGamerTag(player.getGamerTag());
+            entry.setRightMoves(player.getRightMoves());
+            entry.setWrongMoves(player.getWrongMoves());
+            if (player.getCharacter() != null) {
+                entry.setCharacterType(player.getCharacter().getType());
+            }
+            Team team = player.getTeam();
+            if (team != null) {
+                entry.setTeamId(team.getId());
+                newEntriesByTeam.computeIfAbsent(team.getId(), id -> new ArrayList<>()).add(entry);
+            }
+            newEntries.add(entry);
+        }
+        entries = Collections.unmodifiableList(newEntries);
+        entriesByTeam = newEntriesByTeam;
+    }
+
+    public void clear() {
+        entries = Collections.emptyList();
+        entriesByTeam = Collections.emptyMap();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<LeaderboardEntry> getTop(int size) {
+        List<LeaderboardEntry> current = entries;
+        return current.subList(0, Math.min(size, current.size()));
+    }
+
+    // pages start at 0
+    public List<LeaderboardEntry> getPage(int page, int pageSize) {
+        List<LeaderboardEntry> current = entries;
+        int from = page * pageSize;
+        if (page < 0 || pageSize <= 0 || from >= current.size()) {
+            return Collections.emptyList();
+        }
+        return current.subList(from, Math.min(from + pageSize, current.size()));
+    }
+
+    public List<LeaderboardEntry> getTeam(String teamId) {
+        List<LeaderboardEntry> teamEntries = entriesByTeam.get(teamId);
+        return teamEntries == null ? Collections.emptyList() : teamEntries;
+    }
+}
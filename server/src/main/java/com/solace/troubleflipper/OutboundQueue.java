@@ -0,0 +1,322 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.RosterDeltaMessage;
+import com.solace.troubleflipper.messages.UpdateCharacterMessage;
+import com.solace.troubleflipper.model.PublisherException;
+import com.solacesystems.jcsmp.JCSMPException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Bounded queue of serialized messages that one thread sends in priority order.
+ *
+ * Acks, boards, cluster and replication messages go first and are never dropped: when the queue is full they wait
+ * for room and fail after offerTimeout. Character updates come next and rankings, leaderboards and the roster last.
+ * A lower priority message replaces the one still queued for its topic, since it carries the whole state, and the
+ * oldest lower priority messages are dropped to make room. Roster deltas are never replaced, a client that misses one
+ * asks for a snapshot. The messages of a topic are sent in the order they were offered: a message takes the lower
+ * priority messages still queued for its topic along to its own priority, ahead of itself.
+ */
+public class OutboundQueue {
+
+    public enum Priority {
+        GAME, CHARACTERS, RANKINGS
+    }
+
+    interface Sender {
+        void send(String topic, byte[] data) throws JCSMPException;
+    }
+
+    private Logger log = LoggerFactory.getLogger("message");
+
+    private final long capacityBytes;
+    private final long offerTimeout;
+    private final Sender sender;
+    private final String threadName;
+    private final Object lock = new Object();
+    private final Deque<Outbound> gameMessages = new ArrayDeque<>();
+    // keyed by topic for messages that replace each other, insertion order is the send order
+    private final Map<Priority, LinkedHashMap<Object, Outbound>> lowPriorityMessages = new EnumMap<>(Priority.class);
+    // the number of lower priority messages queued for each topic
+    private final Map<String, Integer> lowPriorityTopics = new HashMap<>();
+    private long nextSequence = 0;
+    private final long[] dropped = new long[Priority.values().length];
+    private long superseded = 0;
+    private long sendFailures = 0;
+    private long queuedBytes = 0;
+    private Thread senderThread;
+    private volatile boolean running = false;
+
+    OutboundQueue(long capacityBytes, long offerTimeout, Sender sender) {
+        this(capacityBytes, offerTimeout, sender, "Publisher");
+    }
+
+    OutboundQueue(long capacityBytes, long offerTimeout, Sender sender, String threadName) {
+        this.capacityBytes = capacityBytes;
+        this.offerTimeout = offerTimeout;
+        this.sender = sender;
+        this.threadName = threadName;
+        lowPriorityMessages.put(Priority.CHARACTERS, new LinkedHashMap<>());
+        lowPriorityMessages.put(Priority.RANKINGS, new LinkedHashMap<>());
+    }
+
+    public static Priority getPriority(String topicName, Object message) {
+        if (message instanceof UpdateCharacterMessage) {
+            return Priority.CHARACTERS;
+        }
+        if (topicName.startsWith("score/") || topicName.startsWith("leaderboard") || topicName.startsWith("tournament/")) {
+            return Priority.RANKINGS;
+        }
+        return Priority.GAME;
+    }
+
+    public void start() {
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            senderThread = new Thread(this::sendLoop, threadName);
+            senderThread.setDaemon(true);
+            senderThread.start();
+        }
+    }
+
+    public void stop() {
+        synchronized (lock) {
+            running = false;
+            lock.notifyAll();
+        }
+    }
+
+    // roster deltas build on each other
+    public static boolean isReplaceable(Object message) {
+        return !(message instanceof RosterDeltaMessage);
+    }
+
+    /**
+     * Queues the message, returns false if it was dropped to keep the queue within its capacity.
+     */
+    public boolean offer(String topic, byte[] data, Priority priority, boolean replaceable) throws PublisherException {
+        synchronized (lock) {
+            Outbound outbound = new Outbound(topic, data, nextSequence++);
+            if (priority == Priority.GAME) {
+                long deadline = System.currentTimeMillis() + offerTimeout;
+                while (!makeRoom(data.length, priority)) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (wait <= 0) {
+                        dropped[priority.ordinal()]++;
+                        throw new PublisherException("Outbound queue is full, unable to publish to topic " + topic, null);
+                    }
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new PublisherException("Interrupted while publishing to topic " + topic, ex);
+                    }
+                }
+                promote(topic, priority);
+                gameMessages.add(outbound);
+            } else {
+                LinkedHashMap<Object, Outbound> messages = lowPriorityMessages.get(priority);
+                Object key = replaceable ? topic : new Object();
+                Outbound previous = messages.get(key);
+                if (previous != null) {
+                    queuedBytes -= previous.data.length;
+                    superseded++;
+                }
+                if (previous != null && lowPriorityTopics.get(topic) == 1) {
+                    // nothing else is queued for the topic, keeps the place of the replaced message in the queue
+                    messages.put(key, outbound);
+                } else {
+                    if (previous != null) {
+                        messages.remove(key);
+                        removeLowPriorityTopic(topic);
+                    }
+                    if (!makeRoom(data.length, priority)) {
+                        drop(priority);
+                        return false;
+                    }
+                    promote(topic, priority);
+                    messages.put(key, outbound);
+                    lowPriorityTopics.merge(topic, 1, Integer::sum);
+                }
+            }
+            queuedBytes += data.length;
+            lock.notifyAll();
+            return true;
+        }
+    }
+
+    // call inside synchronized(lock), moves the queued messages of the topic below priority up to it in their order
+    private void promote(String topic, Priority priority) {
+        if (!lowPriorityTopics.containsKey(topic)) {
+            return;
+        }
+        List<Outbound> promoted = new ArrayList<>();
+        for (Map.Entry<Priority, LinkedHashMap<Object, Outbound>> entry : lowPriorityMessages.entrySet()) {
+            if (entry.getKey().compareTo(priority) <= 0) {
+                continue;
+            }
+            Iterator<Outbound> queued = entry.getValue().values().iterator();
+            while (queued.hasNext()) {
+                Outbound outbound = queued.next();
+                if (outbound.topic.equals(topic)) {
+                    queued.remove();
+                    promoted.add(outbound);
+                }
+            }
+        }
+        if (promoted.isEmpty()) {
+            return;
+        }
+        promoted.sort(Comparator.comparingLong(outbound -> outbound.sequence));
+        for (Outbound outbound : promoted) {
+            if (priority == Priority.GAME) {
+                gameMessages.add(outbound);
+                removeLowPriorityTopic(topic);
+            } else {
+                // a newer message of the same priority must not replace it
+                lowPriorityMessages.get(priority).put(new Object(), outbound);
+            }
+        }
+    }
+
+    // call inside synchronized(lock)
+    private void removeLowPriorityTopic(String topic) {
+        lowPriorityTopics.computeIfPresent(topic, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    // call inside synchronized(lock)
+    private boolean makeRoom(int length, Priority priority) {
+        Priority[] priorities = Priority.values();
+        for (int i = priorities.length - 1; i > 0 && queuedBytes + length > capacityBytes; i--) {
+            if (priorities[i].compareTo(priority) < 0) {
+                break;
+            }
+            Iterator<Outbound> oldest = lowPriorityMessages.get(priorities[i]).values().iterator();
+            while (queuedBytes + length > capacityBytes && oldest.hasNext()) {
+                Outbound outbound = oldest.next();
+                queuedBytes -= outbound.data.length;
+                oldest.remove();
+                removeLowPriorityTopic(outbound.topic);
+                drop(priorities[i]);
+            }
+        }
+        // a message larger than the queue goes out on its own
+        return queuedBytes + length <= capacityBytes || isEmpty();
+    }
+
+    // call inside synchronized(lock)
+    private void drop(Priority priority) {
+        if (++dropped[priority.ordinal()] % 1000 == 1) {
+            log.warn("Outbound queue is full, dropped " + dropped[priority.ordinal()] + " " + priority + " messages so far");
+        }
+    }
+
+    private void sendLoop() {
+        while (true) {
+            Outbound outbound;
+            synchronized (lock) {
+                while (running && isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                outbound = poll();
+                queuedBytes -= outbound.data.length;
+                // publishers waiting for room
+                lock.notifyAll();
+            }
+            try {
+                sender.send(outbound.topic, outbound.data);
+            } catch (JCSMPException | RuntimeException ex) {
+                synchronized (lock) {
+                    sendFailures++;
+                }
+                log.error("Unable to publish message to topic " + outbound.topic, ex);
+            }
+        }
+    }
+
+    // call inside synchronized(lock)
+    private boolean isEmpty() {
+        if (!gameMessages.isEmpty()) {
+            return false;
+        }
+        for (LinkedHashMap<Object, Outbound> messages : lowPriorityMessages.values()) {
+            if (!messages.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // call inside synchronized(lock), the queue is not empty
+    private Outbound poll() {
+        Outbound outbound = gameMessages.poll();
+        if (outbound != null) {
+            return outbound;
+        }
+        for (LinkedHashMap<Object, Outbound> messages : lowPriorityMessages.values()) {
+            Iterator<Outbound> oldest = messages.values().iterator();
+            if (oldest.hasNext()) {
+                outbound = oldest.next();
+                oldest.remove();
+                removeLowPriorityTopic(outbound.topic);
+                return outbound;
+            }
+        }
+        throw new IllegalStateException("Outbound queue is empty");
+    }
+
+    public int getDepth(Priority priority) {
+        synchronized (lock) {
+            return priority == Priority.GAME ? gameMessages.size() : lowPriorityMessages.get(priority).size();
+        }
+    }
+
+    public long getQueuedBytes() {
+        synchronized (lock) {
+            return queuedBytes;
+        }
+    }
+
+    public long getDropped(Priority priority) {
+        synchronized (lock) {
+            return dropped[priority.ordinal()];
+        }
+    }
+
+    public long getSuperseded() {
+        synchronized (lock) {
+            return superseded;
+        }
+    }
+
+    public long getSendFailures() {
+        synchronized (lock) {
+            return sendFailures;
+        }
+    }
+
+    private static class Outbound {
+        private final String topic;
+        private final byte[] data;
+        // the order the message was offered in
+        private final long sequence;
+
+        private Outbound(String topic, byte[] data, long sequence) {
+            this.topic = topic;
+            this.data = data;
+            this.sequence = sequence;
+        }
+    }
+}
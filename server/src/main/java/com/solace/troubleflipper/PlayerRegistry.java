@@ -0,0 +1,65 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registered players keyed by the handle of their client name. A registered player holds its handle.
+ *
+ * Registration, lookup and removal are constant time. The team and game of a player are reached through
+ * {@link Player#getTeam()} and {@link com.solace.troubleflipper.model.Team#getGame()} instead of searching.
+ */
+public class PlayerRegistry {
+
+    private final Map<Integer, Player> players = new ConcurrentHashMap<>();
+    private final ClientHandles clientHandles;
+
+    public PlayerRegistry(ClientHandles clientHandles) {
+        this.clientHandles = clientHandles;
+    }
+
+    public Player get(String clientName) {
+        return players.get(clientHandles.find(clientName));
+    }
+
+    /**
+     * Adds the player unless another player is already registered with the same client name.
+     *
+     * @return the player registered before, or null if the given player was added
+     */
+    public Player putIfAbsent(Player player) {
+        player.acquireHandle(clientHandles);
+        Player registered = players.putIfAbsent(player.getHandle(), player);
+        if (registered != null) {
+            player.releaseHandle(clientHandles);
+        }
+        return registered;
+    }
+
+    /**
+     * Removes the player and releases the handle of its client name.
+     */
+    public void remove(Player player) {
+        if (players.remove(player.getHandle(), player)) {
+            player.releaseHandle(clientHandles);
+        }
+    }
+
+    public int size() {
+        return players.size();
+    }
+
+    public Collection<Player> getPlayers() {
+        return players.values();
+    }
+
+    public List<Player> snapshot() {
+        return new ArrayList<>(players.values());
+    }
+}
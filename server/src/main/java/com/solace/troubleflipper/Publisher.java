@@ -9,40 +9,133 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Publishes messages as JSON. With several sessions every topic is sent by the producer its name hashes to, so the
+ * messages of a topic keep their order while different topics go out in parallel.
+ */
 public class Publisher {
 
     private Logger log = LoggerFactory.getLogger("message");
-    private final XMLMessageProducer producer;
+    private final XMLMessageProducer[] producers;
     private final ObjectMapper objectMapper;
+    private final LastValueCache lastValueCache;
+    private final String topicPrefix;
+    // one per producer and shared by the room views, null publishes on the calling thread
+    private OutboundQueue[] outboundQueues;
 
     @Autowired
-    public Publisher(JCSMPSession session, ObjectMapper objectMapper) throws JCSMPException {
-        producer = session.getMessageProducer(new JCSMPStreamingPublishEventHandler() {
+    public Publisher(JCSMPSession session, ObjectMapper objectMapper, LastValueCache lastValueCache) throws JCSMPException {
+        this(Collections.singletonList(session), objectMapper, lastValueCache);
+    }
 
-            @Override
-            public void handleError(String s, JCSMPException e, long l) {
-                log.error("An error occurred publishing a message: " + s, e);
-            }
+    public Publisher(List<JCSMPSession> sessions, ObjectMapper objectMapper, LastValueCache lastValueCache) throws JCSMPException {
+        producers = new XMLMessageProducer[sessions.size()];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = sessions.get(i).getMessageProducer(new JCSMPStreamingPublishEventHandler() {
 
-            @Override
-            public void responseReceived(String s) {
-                log.info("Received response: " + s);
-            }
+                @Override
+                public void handleError(String s, JCSMPException e, long l) {
+                    log.error("An error occurred publishing a message: " + s, e);
+                }
+
+                @Override
+                public void responseReceived(String s) {
+                    log.info("Received response: " + s);
+                }
 
-        });
+            });
+        }
         this.objectMapper = objectMapper;
+        this.lastValueCache = lastValueCache;
+        this.topicPrefix = "";
+    }
+
+    private Publisher(Publisher parent, String topicPrefix, LastValueCache lastValueCache) {
+        this.producers = parent.producers;
+        this.objectMapper = parent.objectMapper;
+        this.lastValueCache = lastValueCache;
+        this.topicPrefix = parent.topicPrefix + topicPrefix;
+        this.outboundQueues = parent.outboundQueues;
+    }
+
+    /**
+     * Publishes through bounded queues sent by their own threads from now on, see {@link OutboundQueue}. Every
+     * producer gets a queue with its share of capacityBytes. Call before the room views are created.
+     */
+    public void startOutboundQueue(long capacityBytes, long offerTimeout) {
+        OutboundQueue[] queues = new OutboundQueue[producers.length];
+        for (int i = 0; i < producers.length; i++) {
+            XMLMessageProducer producer = producers[i];
+            queues[i] = new OutboundQueue(capacityBytes / producers.length, offerTimeout,
+                    (topic, data) -> send(producer, topic, data), producers.length == 1 ? "Publisher" : "Publisher-" + i);
+            queues[i].start();
+        }
+        outboundQueues = queues;
+    }
+
+    public List<OutboundQueue> getOutboundQueues() {
+        return outboundQueues == null ? Collections.emptyList() : Arrays.asList(outboundQueues);
+    }
+
+    public int getProducerCount() {
+        return producers.length;
+    }
+
+    /**
+     * Returns a view of this publisher for one room. It shares the producer, prefixes topics with topicPrefix and
+     * keeps the last values in the room's own cache, under the topic names without the prefix.
+     */
+    public Publisher forRoom(String topicPrefix, LastValueCache lastValueCache) {
+        return new Publisher(this, topicPrefix, lastValueCache);
     }
 
     public void publish(String topicName, Object message) throws PublisherException {
         try {
-            Topic topic = JCSMPFactory.onlyInstance().createTopic(topicName);
-            BytesMessage bytesMessage = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
-            bytesMessage.setData(objectMapper.writeValueAsString(message).getBytes());
-            producer.send(bytesMessage, topic);
+            // serialized right away, the message may change once this returns
+            byte[] data = objectMapper.writeValueAsBytes(message);
+            String fullTopicName = topicPrefix + topicName;
+            int index = getProducerIndex(fullTopicName, producers.length);
+            boolean queued = true;
+            if (outboundQueues != null) {
+                queued = outboundQueues[index].offer(fullTopicName, data, OutboundQueue.getPriority(topicName, message),
+                        OutboundQueue.isReplaceable(message));
+            } else {
+                send(producers[index], fullTopicName, data);
+            }
+            // a dropped message was never the last value of its topic
+            if (queued) {
+                lastValueCache.put(topicName, data);
+            }
         } catch (JCSMPException | IOException ex) {
             log.error("An error occurred publishing a message", ex);
-            throw new PublisherException("Unable to publish " + message.getClass().getName() + " message to topic " + topicName, ex);
+            throw new PublisherException("Unable to publish " + message.getClass().getName() + " message to topic " + topicPrefix + topicName, ex);
+        }
+    }
+
+    static int getProducerIndex(String topicName, int producerCount) {
+        return (topicName.hashCode() & Integer.MAX_VALUE) % producerCount;
+    }
+
+    private static void send(XMLMessageProducer producer, String topicName, byte[] data) throws JCSMPException {
+        Topic topic = JCSMPFactory.onlyInstance().createTopic(topicName);
+        BytesMessage bytesMessage = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
+        bytesMessage.setData(data);
+        producer.send(bytesMessage, topic);
+    }
+
+    public void reply(BytesXMLMessage request, byte[] data) throws PublisherException {
+        try {
+            BytesMessage bytesMessage = JCSMPFactory.onlyInstance().createMessage(BytesMessage.class);
+            bytesMessage.setData(data);
+            // the requester waits on its own reply topic, so any producer will do
+            producers[0].sendReply(request, bytesMessage);
+        } catch (JCSMPException ex) {
+            log.error("An error occurred replying to a request", ex);
+            throw new PublisherException("Unable to reply to request from " + request.getDestination().getName(), ex);
         }
     }
 }
@@ -0,0 +1,92 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.PuzzlePiece;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Shuffled boards for the next game of every team.
+ *
+ * The next board of a team is shuffled in the background while its current game runs, so a new game goes live
+ * without building one. Boards of won games are handed back and reused, which keeps the number of pieces flat over a
+ * long tournament.
+ */
+public class PuzzleBoardPool {
+
+    private final int puzzleLength;
+    private final Executor executor;
+    private final Random random;
+    private final Map<String, List<PuzzlePiece>> preparedBoards = new ConcurrentHashMap<>();
+    private final Deque<List<PuzzlePiece>> freeBoards = new ConcurrentLinkedDeque<>();
+
+    public PuzzleBoardPool(int puzzleSize, Executor executor) {
+        this(puzzleSize, executor, new Random());
+    }
+
+    public PuzzleBoardPool(int puzzleSize, Executor executor, Random random) {
+        this.puzzleLength = puzzleSize * puzzleSize;
+        this.executor = executor;
+        this.random = random;
+    }
+
+    /**
+     * Returns the board prepared for the team, or shuffles one right away if it is not ready yet.
+     */
+    public List<PuzzlePiece> take(String teamId) {
+        List<PuzzlePiece> board = preparedBoards.remove(teamId);
+        return board != null ? board : newShuffledBoard();
+    }
+
+    public void prepare(String teamId) {
+        executor.execute(() -> {
+            if (!preparedBoards.containsKey(teamId)) {
+                List<PuzzlePiece> board = newShuffledBoard();
+                if (preparedBoards.putIfAbsent(teamId, board) != null) {
+                    freeBoards.push(board);
+                }
+            }
+        });
+    }
+
+    public void recycle(List<PuzzlePiece> board) {
+        if (board.size() == puzzleLength) {
+            freeBoards.push(board);
+        }
+    }
+
+    // boards prepared for the teams of the previous tournament are kept for reuse
+    public void clear() {
+        freeBoards.addAll(preparedBoards.values());
+        preparedBoards.clear();
+    }
+
+    int getFreeBoards() {
+        return freeBoards.size();
+    }
+
+    private List<PuzzlePiece> newShuffledBoard() {
+        List<PuzzlePiece> board = freeBoards.poll();
+        if (board == null) {
+            board = new ArrayList<>(puzzleLength);
+            for (int i = 0; i < puzzleLength; i++) {
+                board.add(new PuzzlePiece());
+            }
+        }
+        for (int i = 0; i < board.size(); i++) {
+            PuzzlePiece puzzlePiece = board.get(i);
+            puzzlePiece.setIndex(i);
+            puzzlePiece.deselect();
+            puzzlePiece.setLastSelectTimestamp(-1);
+        }
+        Collections.shuffle(board, random);
+        return board;
+    }
+}
@@ -0,0 +1,171 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Cuts every puzzle image into puzzleSize x puzzleSize tiles, so clients load the pieces instead of cutting them.
+ *
+ * The tiles of a puzzle are written to {tileDirectory}/{tile set}/{index}.{format}, where the tile set name holds a
+ * hash of the image and the puzzle size. A tile set that already exists is kept, so restarts only cut new or changed
+ * images. Images and tiles are cut in parallel. Without a puzzle image directory nothing is tiled and clients cut
+ * the whole images themselves.
+ */
+@Component
+public class PuzzleTiler {
+
+    // URL path the tile sets are served under
+    public static final String TILE_PATH = "tiles";
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final TournamentProperties tournamentProperties;
+    private final ForkJoinPool tilePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private volatile Map<String, String> tileSets = Collections.emptyMap();
+
+    @Autowired
+    public PuzzleTiler(TournamentProperties tournamentProperties) {
+        this.tournamentProperties = tournamentProperties;
+        refresh(Tournament.getPuzzleNames());
+    }
+
+    /**
+     * Returns the URL path of the tiles of the puzzle, or null if the puzzle is not tiled.
+     */
+    public String getTileSet(String puzzleName) {
+        return puzzleName == null ? null : tileSets.get(puzzleName);
+    }
+
+    /**
+     * Tiles the puzzle images again, for a changed catalog or puzzle size.
+     */
+    public void refresh(Collection<String> puzzleNames) {
+        String imageDirectory = tournamentProperties.getPuzzleImageDirectory();
+        if (imageDirectory == null || imageDirectory.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, String> newTileSets = new ConcurrentHashMap<>();
+        try {
+            tilePool.submit(() -> puzzleNames.parallelStream().forEach(puzzleName -> {
+                try {
+                    String tileSet = tile(Paths.get(imageDirectory, puzzleName), puzzleName);
+                    if (tileSet != null) {
+                        newTileSets.put(puzzleName, TILE_PATH + "/" + tileSet);
+                    }
+                } catch (IOException | UncheckedIOException ex) {
+                    log.error("Unable to tile puzzle " + puzzleName, ex);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException ex) {
+            log.error("Unable to tile the puzzles in " + imageDirectory, ex.getCause());
+        }
+        tileSets = newTileSets;
+        log.info("Tiled " + newTileSets.size() + " of " + puzzleNames.size() + " puzzles in " +
+                (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // returns the name of the tile set, null if there is no image
+    private String tile(Path image, String puzzleName) throws IOException {
+        if (!Files.isRegularFile(image)) {
+            log.warn("No image for puzzle " + puzzleName + " in " + image.getParent());
+            return null;
+        }
+        int puzzleSize = tournamentProperties.getPuzzleSize();
+        byte[] imageBytes = Files.readAllBytes(image);
+        String format = getFormat(puzzleName);
+        String tileSet = getBaseName(puzzleName) + "-" + puzzleSize + "-" + hash(imageBytes, puzzleSize);
+        Path tileSetDirectory = Paths.get(tournamentProperties.getTileDirectory(), tileSet);
+        if (Files.isDirectory(tileSetDirectory)) {
+            return tileSet;
+        }
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(imageBytes));
+        if (source == null) {
+            log.warn("Unsupported image format for puzzle " + puzzleName);
+            return null;
+        }
+        // written next to the final directory and moved, so a tile set is either complete or missing
+        Files.createDirectories(tileSetDirectory.getParent());
+        Path tempDirectory = Files.createTempDirectory(tileSetDirectory.getParent(), tileSet);
+        int tileWidth = source.getWidth() / puzzleSize;
+        int tileHeight = source.getHeight() / puzzleSize;
+        IntStream.range(0, puzzleSize * puzzleSize).parallel().forEach(index -> {
+            BufferedImage tile = copyTile(source, (index % puzzleSize) * tileWidth, (index / puzzleSize) * tileHeight,
+                    tileWidth, tileHeight);
+            File tileFile = tempDirectory.resolve(index + "." + format).toFile();
+            try {
+                if (!ImageIO.write(tile, format, tileFile)) {
+                    throw new IOException("No image writer for " + format);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        try {
+            Files.move(tempDirectory, tileSetDirectory);
+        } catch (IOException ex) {
+            // another server tiled the same image in the meantime
+            if (!Files.isDirectory(tileSetDirectory)) {
+                throw ex;
+            }
+        }
+        log.info("Tiled puzzle " + puzzleName + " into " + tileSetDirectory);
+        return tileSet;
+    }
+
+    // jpeg has no alpha channel, so every tile is drawn into an RGB image
+    private static BufferedImage copyTile(BufferedImage source, int x, int y, int width, int height) {
+        BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        tile.getGraphics().drawImage(source.getSubimage(x, y, width, height), 0, 0, null);
+        return tile;
+    }
+
+    private static String getFormat(String puzzleName) {
+        String extension = puzzleName.substring(puzzleName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return extension.equals("jpeg") ? "jpg" : extension;
+    }
+
+    private static String getBaseName(String puzzleName) {
+        int dot = puzzleName.lastIndexOf('.');
+        return dot < 0 ? puzzleName : puzzleName.substring(0, dot);
+    }
+
+    private static String hash(byte[] imageBytes, int puzzleSize) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(imageBytes);
+            digest.update(Integer.toString(puzzleSize).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            for (byte b : Arrays.copyOf(digest.digest(), 6)) {
+                hash.append(String.format("%02x", b & 0xff));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not available", ex);
+        }
+    }
+}
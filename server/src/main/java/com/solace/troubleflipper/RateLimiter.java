@@ -0,0 +1,202 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for the messages players send on the game topics of their team, and for the queries of each room.
+ *
+ * Every registered client and every team has a bucket that refills at a steady rate up to its burst size. A game
+ * message takes a token from both and is dropped when either is empty.
+ *
+ * The sender id is set by the publishing client, so the client bucket is only as good as that id. A message only takes
+ * from the bucket of the client its sender id names if that client is a player of the team of the topic, see
+ * {@link ClientHandles#teamOf(int)}. Messages whose sender id is missing, unknown or names a player of another team all
+ * take from one shared client bucket, so a client can neither escape its limit by leaving out or changing its sender
+ * id nor drain the bucket of a player of another team. A client can still drain the bucket of a teammate by sending
+ * with the teammate's id. Nothing short of authenticating the sender prevents that, and the team bucket already caps
+ * the whole team whatever ids its clients send, so a misbehaving client never costs the board more than its team's
+ * rate. Each map keeps at most MAX_BUCKETS buckets and drops the least recently used
+ * one to make room. Queries (the topics of the QUERY lane, see {@link InboundLanes}) take from one bucket per room,
+ * whoever sends them, so a query flood cannot hold up the lanes of the room. The subscriber asks before it reads the
+ * message, so a flood costs a topic lookup per message and never reaches a board. Other topics are not limited.
+ */
+public class RateLimiter {
+
+    static final int MAX_BUCKETS = 10000;
+
+    private Logger log = LoggerFactory.getLogger("message");
+
+    private final double clientRate;
+    private final double clientBurst;
+    private final double teamRate;
+    private final double teamBurst;
+    private final double queryRate;
+    private final double queryBurst;
+    private final ClientHandles clientHandles;
+    private final LongSupplier nanoClock;
+    // by client handle
+    private final Map<Integer, TokenBucket> clientBuckets = newBuckets();
+    private final Map<String, TokenBucket> teamBuckets = newBuckets();
+    // by room topic prefix, empty for the default room
+    private final Map<String, TokenBucket> queryBuckets = newBuckets();
+    private final TokenBucket unknownClientBucket;
+    private final AtomicLong clientDrops = new AtomicLong();
+    private final AtomicLong teamDrops = new AtomicLong();
+    private final AtomicLong queryDrops = new AtomicLong();
+
+    public RateLimiter(TournamentProperties tournamentProperties, ClientHandles clientHandles) {
+        this(tournamentProperties, clientHandles, System::nanoTime);
+    }
+
+    RateLimiter(TournamentProperties tournamentProperties, ClientHandles clientHandles, LongSupplier nanoClock) {
+        this.clientRate = tournamentProperties.getClientMessageRate();
+        this.clientBurst = Math.max(1, tournamentProperties.getClientMessageBurst());
+        this.teamRate = tournamentProperties.getTeamMessageRate();
+        this.teamBurst = Math.max(1, tournamentProperties.getTeamMessageBurst());
+        this.queryRate = tournamentProperties.getQueryMessageRate();
+        this.queryBurst = Math.max(1, tournamentProperties.getQueryMessageBurst());
+        this.clientHandles = clientHandles;
+        this.nanoClock = nanoClock;
+        this.unknownClientBucket = new TokenBucket(clientBurst, nanoClock.getAsLong());
+    }
+
+    // least recently used first
+    private static <K> Map<K, TokenBucket> newBuckets() {
+        return new LinkedHashMap<K, TokenBucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, TokenBucket> eldest) {
+                return size() > MAX_BUCKETS;
+            }
+        };
+    }
+
+    /**
+     * Returns false if the message must be dropped. senderId is null for messages without a sender id.
+     */
+    public boolean tryAcquire(String topic, String senderId) {
+        String roomTopic = getRoomTopic(topic);
+        if (roomTopic != null && InboundLanes.classify(roomTopic) == InboundLanes.Lane.QUERY) {
+            return tryAcquireQuery(topic.substring(0, topic.length() - roomTopic.length()));
+        }
+        String teamId = getTeamId(topic);
+        if (teamId == null) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        if (clientRate > 0 && !getClientBucket(senderId, teamId, now).take(clientRate, clientBurst, now)) {
+            if (clientDrops.incrementAndGet() % 1000 == 1) {
+                log.warn("Dropping game messages from client " + senderId + ", " + clientDrops.get() + " dropped so far");
+            }
+            return false;
+        }
+        if (teamRate > 0 && !getBucket(teamBuckets, teamId, teamBurst, now).take(teamRate, teamBurst, now)) {
+            if (teamDrops.incrementAndGet() % 1000 == 1) {
+                log.warn("Dropping game messages for team " + teamId + ", " + teamDrops.get() + " dropped so far");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private boolean tryAcquireQuery(String roomPrefix) {
+        if (queryRate <= 0) {
+            return true;
+        }
+        long now = nanoClock.getAsLong();
+        if (!getBucket(queryBuckets, roomPrefix, queryBurst, now).take(queryRate, queryBurst, now)) {
+            if (queryDrops.incrementAndGet() % 1000 == 1) {
+                log.warn("Dropping queries for room " + roomPrefix + ", " + queryDrops.get() + " dropped so far");
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private TokenBucket getClientBucket(String senderId, String teamId, long now) {
+        int handle = clientHandles.find(senderId);
+        if (handle == ClientHandles.NONE || !teamId.equals(clientHandles.teamOf(handle))) {
+            return unknownClientBucket;
+        }
+        return getBucket(clientBuckets, handle, clientBurst, now);
+    }
+
+    private static <K> TokenBucket getBucket(Map<K, TokenBucket> buckets, K key, double burst, long now) {
+        synchronized (buckets) {
+            return buckets.computeIfAbsent(key, k -> new TokenBucket(burst, now));
+        }
+    }
+
+    int getBucketCount() {
+        synchronized (clientBuckets) {
+            synchronized (teamBuckets) {
+                return clientBuckets.size() + teamBuckets.size();
+            }
+        }
+    }
+
+    public long getClientDrops() {
+        return clientDrops.get();
+    }
+
+    public long getTeamDrops() {
+        return teamDrops.get();
+    }
+
+    public long getQueryDrops() {
+        return queryDrops.get();
+    }
+
+    // the topic below rooms/{roomId}/, the topic itself in the default room, null for rooms/{roomId}
+    static String getRoomTopic(String topic) {
+        if (!topic.startsWith("rooms/")) {
+            return topic;
+        }
+        int start = topic.indexOf('/', "rooms/".length()) + 1;
+        return start == 0 ? null : topic.substring(start);
+    }
+
+    // games/{teamId}/..., also below rooms/{roomId}/
+    static String getTeamId(String topic) {
+        String roomTopic = getRoomTopic(topic);
+        if (roomTopic == null || !roomTopic.startsWith("games/")) {
+            return null;
+        }
+        int start = "games/".length();
+        int end = roomTopic.indexOf('/', start);
+        return end < 0 ? roomTopic.substring(start) : roomTopic.substring(start, end);
+    }
+
+    private static class TokenBucket {
+        private double tokens;
+        private long lastRefill;
+
+        private TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private synchronized boolean take(double rate, double burst, long now) {
+            refill(rate, burst, now);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private void refill(double rate, double burst, long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(burst, tokens + (now - lastRefill) * rate / 1e9);
+                lastRefill = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.AddUserMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Admission stage for registrations.
+ *
+ * Registrations are drained from the queue in batches of up to batchSize and handed to the batch handler, which acks
+ * each user. When a batch changed the roster, the roster update runs at most once per window no matter how many
+ * batches arrive in between. Batches run one at a time on the executor, and a roster update that has to wait for the
+ * end of its window is scheduled on a timer of the clock, so the window follows a virtual clock like the games do.
+ */
+public class RegistrationPipeline {
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final BlockingQueue<AddUserMessage> queue = new LinkedBlockingQueue<>();
+    private final int batchSize;
+    private final long window;
+    private final Predicate<List<AddUserMessage>> batchHandler;
+    private final Runnable rosterUpdate;
+    private final Executor executor;
+    // set when the pipeline created its executor
+    private final ExecutorService ownExecutor;
+    private final GameClock clock;
+    private final Timer timer;
+    // a drain is queued on the executor or running
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean rosterUpdateScheduled = new AtomicBoolean();
+    private volatile boolean started = false;
+    private volatile boolean stopped = false;
+    // only changed by the drain, which runs one at a time
+    private volatile boolean rosterPending = false;
+    private volatile long nextRosterUpdate = 0;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong rosterUpdates = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int largestBatchSize;
+
+    /**
+     * Creates a pipeline that runs on a thread of its own.
+     *
+     * @param batchHandler handles one batch and returns true if the roster changed
+     */
+    public RegistrationPipeline(int batchSize, long window,
+                                Predicate<List<AddUserMessage>> batchHandler, Runnable rosterUpdate) {
+        this(batchSize, window, batchHandler, rosterUpdate, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RegistrationPipeline");
+            thread.setDaemon(true);
+            return thread;
+        }), true, GameClock.SYSTEM);
+    }
+
+    /**
+     * Creates a pipeline that runs its batches on the executor and times its roster window on the clock.
+     */
+    public RegistrationPipeline(int batchSize, long window, Predicate<List<AddUserMessage>> batchHandler,
+                                Runnable rosterUpdate, Executor executor, GameClock clock) {
+        this(batchSize, window, batchHandler, rosterUpdate, executor, false, clock);
+    }
+
+    private RegistrationPipeline(int batchSize, long window, Predicate<List<AddUserMessage>> batchHandler,
+                                 Runnable rosterUpdate, Executor executor, boolean ownExecutor, GameClock clock) {
+        this.batchSize = Math.max(1, batchSize);
+        this.window = window;
+        this.batchHandler = batchHandler;
+        this.rosterUpdate = rosterUpdate;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor ? (ExecutorService) executor : null;
+        this.clock = clock;
+        this.timer = clock.newTimer("RegistrationPipeline");
+    }
+
+    public void start() {
+        started = true;
+        scheduleDrain();
+    }
+
+    public void stop() {
+        stopped = true;
+        timer.cancel();
+        if (ownExecutor != null) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    public void submit(AddUserMessage addUserMessage) {
+        queue.add(addUserMessage);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!started || stopped || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+            draining.set(false);
+            log.error("Unable to process registrations, the pipeline is shut down", ex);
+        }
+    }
+
+    private void drain() {
+        try {
+            List<AddUserMessage> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            if (!batch.isEmpty()) {
+                try {
+                    if (batchHandler.test(batch)) {
+                        rosterPending = true;
+                    }
+                } catch (RuntimeException ex) {
+                    log.error("Unable to process registration batch", ex);
+                }
+                recordBatch(batch.size());
+            }
+            long now = clock.millis();
+            if (rosterPending && now >= nextRosterUpdate) {
+                rosterPending = false;
+                nextRosterUpdate = now + window;
+                rosterUpdates.incrementAndGet();
+                rosterUpdate.run();
+            } else if (rosterPending && !stopped && rosterUpdateScheduled.compareAndSet(false, true)) {
+                timer.schedule(new TimerTask() {
+                    @Override
+                    public void run() {
+                        rosterUpdateScheduled.set(false);
+                        scheduleDrain();
+                    }
+                }, nextRosterUpdate - now);
+            }
+        } catch (RuntimeException ex) {
+            log.error("Unable to update the roster", ex);
+        } finally {
+            draining.set(false);
+        }
+        // registrations or a roster update that came due while the drain ran
+        if (!queue.isEmpty() || rosterPending && clock.millis() >= nextRosterUpdate) {
+            scheduleDrain();
+        }
+    }
+
+    private void recordBatch(int size) {
+        batches.incrementAndGet();
+        admitted.addAndGet(size);
+        lastBatchSize = size;
+        if (size > largestBatchSize) {
+            largestBatchSize = size;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Registration batch of " + size + ", " + queue.size() + " waiting, " +
+                    batches.get() + " batches, " + rosterUpdates.get() + " roster updates");
+        }
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getWindow() {
+        return window;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getRosterUpdates() {
+        return rosterUpdates.get();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public int getLargestBatchSize() {
+        return largestBatchSize;
+    }
+}
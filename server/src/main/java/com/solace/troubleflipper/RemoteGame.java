@@ -0,0 +1,184 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.AttackResult;
+import com.solace.troubleflipper.messages.ClusterCommandMessage;
+import com.solace.troubleflipper.messages.ClusterEventMessage;
+import com.solace.troubleflipper.messages.PlayerState;
+import com.solace.troubleflipper.model.Game;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Coordinator side stand-in for a game whose board is hosted by another node.
+ *
+ * Calls from the tournament are sent to the owner node as commands. Correct pieces, character readiness and player
+ * scores are taken from the events of the owner node, which is where moves are handled. An attack completes when the
+ * owner node reports whether it hit, or as a miss when the game stops first.
+ */
+public class RemoteGame extends Game {
+
+    private final ClusterCoordinator clusterCoordinator;
+    private final String owner;
+    private final int gameNumber;
+
+    private volatile int correctPieces;
+    private volatile boolean gameOver;
+    private volatile boolean charactersReady;
+    private final AtomicLong nextAttackId = new AtomicLong();
+    private final Map<Long, PendingAttack> pendingAttacks = new ConcurrentHashMap<>();
+
+    RemoteGame(Team team, TournamentProperties tournamentProperties, ClusterCoordinator clusterCoordinator, String owner) {
+        super(team, tournamentProperties);
+        this.clusterCoordinator = clusterCoordinator;
+        this.owner = owner;
+        this.gameNumber = team.getCompletedGames();
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    int getGameNumber() {
+        return gameNumber;
+    }
+
+    @Override
+    public void start() {
+        clusterCoordinator.send(this, ClusterCommandMessage.ACTION_START, false);
+    }
+
+    // a game won while stopping is not reported back to the tournament
+    @Override
+    public boolean stop() {
+        clusterCoordinator.send(this, ClusterCommandMessage.ACTION_STOP, false);
+        for (Long attackId : new ArrayList<>(pendingAttacks.keySet())) {
+            PendingAttack pendingAttack = pendingAttacks.remove(attackId);
+            if (pendingAttack != null) {
+                pendingAttack.attackResult.setHit(false);
+                pendingAttack.completion.accept(pendingAttack.attackResult);
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void updatePuzzleForTeam(boolean tournamentStopped) {
+        clusterCoordinator.send(this, ClusterCommandMessage.ACTION_UPDATE_PUZZLE, tournamentStopped);
+    }
+
+    @Override
+    public void catchUp(String clientName, Long lastSequence) {
+        ClusterCommandMessage command = clusterCoordinator.newCommand(this, ClusterCommandMessage.ACTION_CATCH_UP);
+        command.setClientName(clientName);
+        command.setLastSequence(lastSequence);
+        clusterCoordinator.send(this, command);
+    }
+
+    @Override
+    public void updateCharactersForTeam(boolean forceAssign) {
+        clusterCoordinator.send(this, ClusterCommandMessage.ACTION_UPDATE_CHARACTERS, forceAssign);
+    }
+
+    @Override
+    public boolean isCharacterReadyForTeam() {
+        return charactersReady;
+    }
+
+    // attacks go through attack(), which waits for the owner node
+    @Override
+    public boolean troubleFlipper(Player bowser) {
+        throw new UnsupportedOperationException("The owner node of team " + getTeam().getId() + " runs its attacks");
+    }
+
+    @Override
+    public boolean greenShell() {
+        throw new UnsupportedOperationException("The owner node of team " + getTeam().getId() + " runs its attacks");
+    }
+
+    @Override
+    public void attack(Player attacker, AttackResult attackResult, Consumer<AttackResult> completion) {
+        String action = AttackResult.POWER_TROUBLE_FLIPPER.equals(attackResult.getPower()) ?
+                ClusterCommandMessage.ACTION_TROUBLE_FLIPPER : ClusterCommandMessage.ACTION_GREEN_SHELL;
+        ClusterCommandMessage command = clusterCoordinator.newCommand(this, action);
+        PlayerState attackerState = new PlayerState();
+        attackerState.setClientName(attacker.getClientName());
+        attackerState.setGamerTag(attacker.getGamerTag());
+        command.setAttacker(attackerState);
+        command.setAttackerTeamName(attacker.getTeam().getName());
+        command.setAttackResult(attackResult);
+        long attackId = nextAttackId.incrementAndGet();
+        command.setAttackId(attackId);
+        pendingAttacks.put(attackId, new PendingAttack(attackResult, completion));
+        clusterCoordinator.send(this, command);
+    }
+
+    @Override
+    public void attackCompleted(AttackResult attackResult) {
+        ClusterCommandMessage command = clusterCoordinator.newCommand(this, ClusterCommandMessage.ACTION_ATTACK_COMPLETED);
+        command.setAttackResult(attackResult);
+        clusterCoordinator.send(this, command);
+    }
+
+    @Override
+    public int getCorrectPieces() {
+        return correctPieces;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    void applyStatus(ClusterEventMessage statusMessage) {
+        if (statusMessage.getPlayers() != null) {
+            for (PlayerState playerState : statusMessage.getPlayers()) {
+                Player player = getTeam().getPlayer(playerState.getClientName());
+                if (player == null) {
+                    continue;
+                }
+                player.setRightMoves(playerState.getRightMoves());
+                player.setWrongMoves(playerState.getWrongMoves());
+                if (player.getCharacter() == null && playerState.getCharacterType() != null) {
+                    getTeam().chooseCharacter(playerState.getCharacterType(), player);
+                }
+            }
+        }
+        charactersReady = statusMessage.isCharactersReady();
+        if (correctPieces != statusMessage.getCorrectPieces()) {
+            correctPieces = statusMessage.getCorrectPieces();
+            fireCorrectPiecesChanged();
+        }
+    }
+
+    void applyAttackResult(ClusterEventMessage attackResultMessage) {
+        PendingAttack pendingAttack = pendingAttacks.remove(attackResultMessage.getAttackId());
+        if (pendingAttack != null && attackResultMessage.getAttackResult() != null) {
+            pendingAttack.attackResult.setHit(attackResultMessage.getAttackResult().isHit());
+            pendingAttack.completion.accept(pendingAttack.attackResult);
+        }
+    }
+
+    void applyGameOver() {
+        if (!gameOver) {
+            gameOver = true;
+            fireGameOver();
+        }
+    }
+
+    private static class PendingAttack {
+        private final AttackResult attackResult;
+        private final Consumer<AttackResult> completion;
+
+        private PendingAttack(AttackResult attackResult, Consumer<AttackResult> completion) {
+            this.attackResult = attackResult;
+            this.completion = completion;
+        }
+    }
+}
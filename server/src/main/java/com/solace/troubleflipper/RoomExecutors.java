@@ -0,0 +1,212 @@
+package com.solace.troubleflipper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The threads every room of the server runs on.
+ *
+ * The inbound lanes, registrations, team lanes and puzzle boards of all rooms share one pool of workers sized to the
+ * cores, team setups share one fork join pool and timers one scheduler, so the server keeps the same threads however
+ * many rooms it runs. A room keeps its order by queueing on serial executors on top of these, it never blocks a worker
+ * waiting for work. The timers of {@link #getClock()} run their tasks on the scheduler.
+ */
+public class RoomExecutors {
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final ExecutorService workers;
+    private final ForkJoinPool teamSetupPool;
+    private final ScheduledExecutorService scheduler;
+    private final GameClock clock = new ScheduledClock();
+
+    public RoomExecutors(int teamSetupParallelism) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        workers = Executors.newFixedThreadPool(cores, daemonThreads("RoomWorker"));
+        teamSetupPool = new ForkJoinPool(Math.max(1, teamSetupParallelism));
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, cores / 2), daemonThreads("RoomTimer"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public ExecutorService getWorkers() {
+        return workers;
+    }
+
+    public ForkJoinPool getTeamSetupPool() {
+        return teamSetupPool;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    // the wall clock, with timers on the scheduler
+    public GameClock getClock() {
+        return clock;
+    }
+
+    public void shutdown() {
+        workers.shutdown();
+        teamSetupPool.shutdown();
+        scheduler.shutdownNow();
+    }
+
+    private class ScheduledClock extends GameClock {
+        @Override
+        public Timer newTimer(String name) {
+            return new ScheduledTimer(name);
+        }
+    }
+
+    /**
+     * A timer whose tasks run on the scheduler. Like on a {@link VirtualClock}, a repeating task that cancels itself
+     * from run() has to be a {@link ClockTask}, a plain TimerTask repeats until its timer is cancelled.
+     */
+    private class ScheduledTimer extends Timer {
+
+        private final Set<ScheduledTask> tasks = ConcurrentHashMap.newKeySet();
+        private volatile boolean cancelled = false;
+
+        private ScheduledTimer(String name) {
+            super(name, true);
+            // the thread of the timer is never used
+            super.cancel();
+        }
+
+        private void schedule(TimerTask task, long delay, boolean repeating,
+                              Function<Runnable, ScheduledFuture<?>> scheduling) {
+            if (delay < 0) {
+                throw new IllegalArgumentException("Negative delay");
+            }
+            if (cancelled) {
+                throw new IllegalStateException("Timer already cancelled");
+            }
+            ScheduledTask scheduled = new ScheduledTask(this, task, repeating);
+            tasks.add(scheduled);
+            scheduled.setFuture(scheduling.apply(scheduled));
+        }
+
+        @Override
+        public void schedule(TimerTask task, long delay) {
+            schedule(task, delay, false, runnable -> scheduler.schedule(runnable, delay, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date time) {
+            schedule(task, Math.max(0, time.getTime() - System.currentTimeMillis()));
+        }
+
+        @Override
+        public void schedule(TimerTask task, long delay, long period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("Non-positive period");
+            }
+            schedule(task, delay, true, runnable ->
+                    scheduler.scheduleWithFixedDelay(runnable, delay, period, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date firstTime, long period) {
+            schedule(task, Math.max(0, firstTime.getTime() - System.currentTimeMillis()), period);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("Non-positive period");
+            }
+            schedule(task, delay, true, runnable ->
+                    scheduler.scheduleAtFixedRate(runnable, delay, period, TimeUnit.MILLISECONDS));
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, Date firstTime, long period) {
+            scheduleAtFixedRate(task, Math.max(0, firstTime.getTime() - System.currentTimeMillis()), period);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            tasks.forEach(ScheduledTask::stop);
+        }
+
+        @Override
+        public int purge() {
+            return 0;
+        }
+    }
+
+    private class ScheduledTask implements Runnable {
+        private final ScheduledTimer timer;
+        private final TimerTask task;
+        private final boolean repeating;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean stopped = false;
+
+        private ScheduledTask(ScheduledTimer timer, TimerTask task, boolean repeating) {
+            this.timer = timer;
+            this.task = task;
+            this.repeating = repeating;
+        }
+
+        private void setFuture(ScheduledFuture<?> future) {
+            this.future = future;
+            // stopped before it was scheduled
+            if (stopped) {
+                future.cancel(false);
+            }
+        }
+
+        private boolean isCancelled() {
+            return timer.cancelled || task instanceof ClockTask && ((ClockTask) task).isCancelled();
+        }
+
+        @Override
+        public void run() {
+            if (stopped || isCancelled()) {
+                stop();
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.error("Unable to run a timer task", ex);
+            }
+            if (!repeating || isCancelled()) {
+                stop();
+            }
+        }
+
+        private void stop() {
+            stopped = true;
+            timer.tasks.remove(this);
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
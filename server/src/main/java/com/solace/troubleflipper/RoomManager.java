@@ -0,0 +1,269 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.RoomMessage;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.SubscriberException;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Runs one {@link Tournament} per room.
+ *
+ * The default room uses the original topics, every other room lives under rooms/{roomId}/. Each room gets its own
+ * last value cache and lanes its message handlers run on, which take control messages before registrations and
+ * moves, see {@link InboundLanes}. The rooms run in parallel on {@link RoomExecutors} shared by all of them, so the
+ * threads of the server do not grow with its rooms, and their players hold handles in the {@link ClientHandles} of
+ * the server. The game masters create and close rooms with a {@link RoomMessage} on the rooms topic, up to maxRooms
+ * besides the default one.
+ *
+ * In partitioned mode only the coordinator runs the tournament of a room and takes the room topics, except for the
+ * game topics. The other nodes run a {@link ClusterNode} that hosts the games of the teams they own.
+ *
+ * A standby server only follows the replication topic of its rooms. A room is taken over, with its topics and
+ * timers, once the primary stops replicating it. A replicating primary follows the replication topic as well and
+ * steps down, leaving all topics of the room, when a standby took the room over with a higher epoch.
+ */
+@Component
+public class RoomManager {
+
+    public static final String DEFAULT_ROOM = "";
+
+    // the topics a room receives messages on, relative to the room
+    private static final List<String> ROOM_TOPICS = Arrays.asList("users", "tournaments", "leaderboard",
+            "state/query", "roster/snapshot");
+    private static final Pattern ROOM_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final TournamentProperties tournamentProperties;
+    private final Subscriber subscriber;
+    private final Publisher publisher;
+    private final TeamPartitioner teamPartitioner;
+    private final PuzzleTiler puzzleTiler;
+    private final RoomExecutors executors;
+    private final ClientHandles clientHandles;
+    // a partitioned cluster has no standby
+    private final boolean standby;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+
+    public RoomManager(TournamentProperties tournamentProperties, Subscriber subscriber, Publisher publisher,
+                       LastValueCache lastValueCache) {
+        this(tournamentProperties, subscriber, publisher, lastValueCache, null, new ClientHandles());
+    }
+
+    @Autowired
+    public RoomManager(TournamentProperties tournamentProperties, Subscriber subscriber, Publisher publisher,
+                       LastValueCache lastValueCache, PuzzleTiler puzzleTiler, ClientHandles clientHandles) {
+        this.tournamentProperties = tournamentProperties;
+        this.puzzleTiler = puzzleTiler;
+        this.subscriber = subscriber;
+        this.publisher = publisher;
+        this.teamPartitioner = new TeamPartitioner(tournamentProperties);
+        this.executors = new RoomExecutors(tournamentProperties.getTeamSetupParallelism());
+        this.clientHandles = clientHandles;
+        this.standby = tournamentProperties.isStandby() && !teamPartitioner.isPartitioned();
+        rooms.put(DEFAULT_ROOM, newRoom(DEFAULT_ROOM, lastValueCache));
+        subscriber.registerHandler(RoomMessage.class, "rooms", this::handleRoomMsg);
+    }
+
+    // null on nodes other than the coordinator
+    public Tournament getTournament(String roomId) {
+        Room room = rooms.get(roomId);
+        return room == null ? null : room.tournament;
+    }
+
+    // null unless this node hosts games for the coordinator
+    public ClusterNode getClusterNode(String roomId) {
+        Room room = rooms.get(roomId);
+        return room == null ? null : room.clusterNode;
+    }
+
+    public Set<String> getRoomIds() {
+        return Collections.unmodifiableSet(rooms.keySet());
+    }
+
+    private void handleRoomMsg(RoomMessage roomMessage) {
+        if (!tournamentProperties.getGameMasters().contains(roomMessage.getClientId())) {
+            log.error("Client " + roomMessage.getClientId() + " is not a game master and may not manage rooms");
+            return;
+        }
+        String roomId = roomMessage.getRoomId();
+        if (roomId == null || !ROOM_ID.matcher(roomId).matches()) {
+            log.error("Invalid room id " + roomId);
+            return;
+        }
+        if (RoomMessage.ACTION_CREATE.equals(roomMessage.getAction())) {
+            createRoom(roomId);
+        } else if (RoomMessage.ACTION_CLOSE.equals(roomMessage.getAction())) {
+            closeRoom(roomId);
+        } else {
+            log.error("Unknown room action " + roomMessage.getAction());
+        }
+    }
+
+    // null if the server already runs maxRooms rooms
+    public synchronized Tournament createRoom(String roomId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            if (rooms.size() > tournamentProperties.getMaxRooms()) {
+                log.error("Room " + roomId + " not created, the server already runs " + (rooms.size() - 1) + " rooms");
+                return null;
+            }
+            room = newRoom(roomId, new LastValueCache());
+            rooms.put(roomId, room);
+            log.info("Room " + roomId + " created");
+        }
+        return room.tournament;
+    }
+
+    public synchronized void closeRoom(String roomId) {
+        if (DEFAULT_ROOM.equals(roomId)) {
+            return;
+        }
+        Room room = rooms.remove(roomId);
+        if (room == null) {
+            return;
+        }
+        if (room.standbyReplica != null) {
+            room.standbyReplica.close();
+        }
+        boolean following = room.tournament != null && !room.tournament.isActive();
+        for (String topic : following ? Collections.singletonList("replication") : getServingTopics()) {
+            try {
+                room.subscriber.unsubscribe(topic);
+            } catch (SubscriberException ex) {
+                log.error("Unable to remove subscription of room " + roomId, ex);
+            }
+        }
+        if (room.tournament != null) {
+            room.tournament.close();
+        }
+        if (room.clusterNode != null) {
+            room.clusterNode.close();
+        }
+        room.lane.shutdown();
+    }
+
+    private Room newRoom(String roomId, LastValueCache lastValueCache) {
+        String topicPrefix = roomId.isEmpty() ? "" : "rooms/" + roomId + "/";
+        InboundLanes lane = new InboundLanes(tournamentProperties.getGameplayLaneWeight(), executors.getWorkers());
+        Subscriber roomSubscriber = subscriber.forRoom(topicPrefix, lane);
+        Publisher roomPublisher = publisher.forRoom(topicPrefix, lastValueCache);
+        Tournament tournament = null;
+        ClusterNode clusterNode = null;
+        StandbyReplica standbyReplica = null;
+        if (teamPartitioner.isCoordinator()) {
+            tournament = new Tournament(roomId, tournamentProperties, roomSubscriber, roomPublisher, lastValueCache,
+                    puzzleTiler, executors.getClock(), executors, clientHandles);
+            tournament.setStepDownHandler(() -> stepDown(roomId));
+        } else {
+            clusterNode = new ClusterNode(teamPartitioner.getLocalNode(), tournamentProperties, roomSubscriber,
+                    roomPublisher, executors.getClock(), executors.getWorkers(), clientHandles);
+        }
+        try {
+            if (standby) {
+                standbyReplica = new StandbyReplica(roomSubscriber, tournamentProperties.getHeartbeatInterval(),
+                        tournamentProperties.getFailoverTimeout(), () -> takeOver(roomId), executors.getClock());
+                roomSubscriber.subscribe("replication");
+            } else {
+                if (tournament != null) {
+                    tournament.activate();
+                }
+                for (String topic : getServingTopics()) {
+                    roomSubscriber.subscribe(topic);
+                }
+            }
+        } catch (SubscriberException ex) {
+            log.error("Unable to subscribe to the topics of room " + roomId, ex);
+        }
+        return new Room(tournament, clusterNode, standbyReplica, roomSubscriber, lane);
+    }
+
+    private void takeOver(String roomId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        room.standbyReplica.close();
+        room.tournament.restore(room.standbyReplica);
+        room.tournament.activate();
+        try {
+            // the replication topic stays, a later primary fences this one off on it
+            for (String topic : getTopics()) {
+                room.subscriber.subscribe(topic);
+            }
+        } catch (SubscriberException ex) {
+            log.error("Unable to take over the topics of room " + roomId, ex);
+        }
+        log.info("Took over room " + roomId + " with epoch " + room.tournament.getEpoch() + " in " +
+                (System.currentTimeMillis() - start) + " ms, " +
+                (System.currentTimeMillis() - room.standbyReplica.getLastHeartbeat()) + " ms after the last heartbeat");
+    }
+
+    // runs on the lane of the room, the room stays in place without topics until it is closed
+    private void stepDown(String roomId) {
+        Room room = rooms.get(roomId);
+        if (room == null) {
+            return;
+        }
+        for (String topic : getServingTopics()) {
+            try {
+                room.subscriber.unsubscribe(topic);
+            } catch (SubscriberException ex) {
+                log.error("Unable to remove subscription of room " + roomId, ex);
+            }
+        }
+        room.tournament.close();
+        log.info("Room " + roomId + " stepped down");
+    }
+
+    // partitioned nodes subscribe to the game topics of their own teams when they get them
+    private List<String> getTopics() {
+        List<String> topics = new ArrayList<>();
+        if (teamPartitioner.isCoordinator()) {
+            topics.addAll(ROOM_TOPICS);
+        }
+        if (!teamPartitioner.isPartitioned()) {
+            topics.add("games/>");
+        } else if (teamPartitioner.isCoordinator()) {
+            topics.add("cluster/coordinator");
+        } else {
+            topics.add("cluster/" + teamPartitioner.getLocalNode());
+        }
+        return topics;
+    }
+
+    // a replicating primary also follows the replication topic
+    private List<String> getServingTopics() {
+        List<String> topics = getTopics();
+        if (tournamentProperties.isReplication() && teamPartitioner.isCoordinator()) {
+            topics.add("replication");
+        }
+        return topics;
+    }
+
+    private static class Room {
+        private final Tournament tournament;
+        private final ClusterNode clusterNode;
+        private final StandbyReplica standbyReplica;
+        private final Subscriber subscriber;
+        private final InboundLanes lane;
+
+        private Room(Tournament tournament, ClusterNode clusterNode, StandbyReplica standbyReplica,
+                     Subscriber subscriber, InboundLanes lane) {
+            this.tournament = tournament;
+            this.clusterNode = clusterNode;
+            this.standbyReplica = standbyReplica;
+            this.subscriber = subscriber;
+            this.lane = lane;
+        }
+    }
+}
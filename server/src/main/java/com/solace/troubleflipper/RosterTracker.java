@@ -0,0 +1,82 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.RosterChange;
+import com.solace.troubleflipper.messages.RosterDeltaMessage;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.Team;
+
+import java.util.*;
+
+/**
+ * Tracks the roster last sent to game masters and turns the current roster into versioned deltas.
+ *
+ * Every delta carries the next version number. A game master that sees a version other than the one after its own
+ * has missed a delta and requests a snapshot, which carries the version of the last delta.
+ */
+public class RosterTracker {
+
+    private final Map<String, Entry> published = new HashMap<>();
+    private long version = 0;
+    private boolean started = false;
+
+    /**
+     * Compares the roster with the last published one.
+     *
+     * @return the delta to publish, or null if nothing changed
+     */
+    public synchronized RosterDeltaMessage nextDelta(Collection<Player> players, boolean tournamentStarted) {
+        List<RosterChange> changes = new ArrayList<>();
+        Set<String> current = new HashSet<>();
+        for (Player player : players) {
+            String clientName = player.getClientName();
+            current.add(clientName);
+            Team team = player.getTeam();
+            String teamId = team == null ? null : team.getId();
+            String teamName = team == null ? null : team.getName();
+            Entry entry = published.get(clientName);
+            if (entry == null) {
+                published.put(clientName, new Entry(player.getGamerTag(), teamId));
+                changes.add(new RosterChange(RosterChange.TYPE_ADD, clientName, player.getGamerTag(), teamId, teamName));
+                continue;
+            }
+            if (!Objects.equals(entry.gamerTag, player.getGamerTag())) {
+                entry.gamerTag = player.getGamerTag();
+                changes.add(new RosterChange(RosterChange.TYPE_RENAME, clientName, entry.gamerTag, null, null));
+            }
+            if (!Objects.equals(entry.teamId, teamId)) {
+                entry.teamId = teamId;
+                changes.add(new RosterChange(RosterChange.TYPE_ASSIGN, clientName, entry.gamerTag, teamId, teamName));
+            }
+        }
+        for (Iterator<Map.Entry<String, Entry>> it = published.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Entry> publishedEntry = it.next();
+            if (!current.contains(publishedEntry.getKey())) {
+                it.remove();
+                changes.add(new RosterChange(RosterChange.TYPE_REMOVE, publishedEntry.getKey(), null, null, null));
+            }
+        }
+        if (changes.isEmpty() && started == tournamentStarted) {
+            return null;
+        }
+        started = tournamentStarted;
+        RosterDeltaMessage rosterDeltaMessage = new RosterDeltaMessage();
+        rosterDeltaMessage.setVersion(++version);
+        rosterDeltaMessage.setStarted(tournamentStarted);
+        rosterDeltaMessage.setChanges(changes);
+        return rosterDeltaMessage;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private static class Entry {
+        private String gamerTag;
+        private String teamId;
+
+        private Entry(String gamerTag, String teamId) {
+            this.gamerTag = gamerTag;
+            this.teamId = teamId;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.PlayerState;
+import com.solace.troubleflipper.messages.ReplicationMessage;
+import com.solace.troubleflipper.messages.TeamState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Copy of the state of one room on a standby server, kept up to date from the replication topic.
+ *
+ * Every replication message doubles as a heartbeat of the primary. When none arrives for failoverTimeout the
+ * takeover is run once, from the replica's timer. The takeover serves the room with an epoch above every epoch the
+ * replica saw, so a primary that was only paused steps down once it sees the replication messages of the new one.
+ * Messages of an older epoch than the last one seen are ignored.
+ */
+public class StandbyReplica {
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    private final Subscriber subscriber;
+    private final long failoverTimeout;
+    private final Runnable takeOver;
+    private final GameClock clock;
+    private final Timer timer;
+
+    private volatile long lastHeartbeat;
+    private long epoch = 0;
+    private long lastSequence = 0;
+    private boolean tournamentStarted;
+    private boolean gameStarted;
+    private final Map<String, PlayerState> players = new LinkedHashMap<>();
+    private final Map<String, TeamState> teams = new LinkedHashMap<>();
+    private boolean takenOver = false;
+
+    public StandbyReplica(Subscriber subscriber, long heartbeatInterval, long failoverTimeout, Runnable takeOver) {
+        this(subscriber, heartbeatInterval, failoverTimeout, takeOver, GameClock.SYSTEM);
+    }
+
+    /**
+     * Creates a replica that measures the silence of the primary on the clock.
+     */
+    public StandbyReplica(Subscriber subscriber, long heartbeatInterval, long failoverTimeout, Runnable takeOver,
+                          GameClock clock) {
+        this.subscriber = subscriber;
+        this.failoverTimeout = failoverTimeout;
+        this.takeOver = takeOver;
+        this.clock = clock;
+        this.timer = clock.newTimer("StandbyTimer");
+        this.lastHeartbeat = clock.millis();
+        subscriber.registerHandler(ReplicationMessage.class, "replication", this::apply);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                checkPrimary();
+            }
+        }, heartbeatInterval, heartbeatInterval);
+    }
+
+    private synchronized void apply(ReplicationMessage replicationMessage) {
+        if (takenOver || replicationMessage.getEpoch() < epoch) {
+            return;
+        }
+        lastHeartbeat = clock.millis();
+        if (replicationMessage.getEpoch() > epoch) {
+            // a new primary starts its own sequence
+            epoch = replicationMessage.getEpoch();
+            lastSequence = 0;
+        }
+        if (!replicationMessage.isFull() && lastSequence != 0 && replicationMessage.getSequence() != lastSequence + 1) {
+            log.warn("Missed replication messages after " + lastSequence + ", teams are stale until the next full message");
+        }
+        lastSequence = replicationMessage.getSequence();
+        tournamentStarted = replicationMessage.isTournamentStarted();
+        gameStarted = replicationMessage.isGameStarted();
+        if (replicationMessage.getPlayers() != null) {
+            players.clear();
+            replicationMessage.getPlayers().forEach(player -> players.put(player.getClientName(), player));
+        }
+        if (replicationMessage.isFull()) {
+            teams.clear();
+        }
+        if (replicationMessage.getTeams() != null) {
+            replicationMessage.getTeams().forEach(team -> teams.put(team.getTeamId(), team));
+        }
+    }
+
+    private void checkPrimary() {
+        long silence = clock.millis() - lastHeartbeat;
+        if (silence <= failoverTimeout) {
+            return;
+        }
+        synchronized (this) {
+            takenOver = true;
+        }
+        timer.cancel();
+        log.info("No replication message for " + silence + " ms after sequence " + getLastSequence() + ", take over");
+        takeOver.run();
+    }
+
+    public void close() {
+        timer.cancel();
+        subscriber.deregisterHandler("replication");
+    }
+
+    public long getLastHeartbeat() {
+        return lastHeartbeat;
+    }
+
+    // the epoch of the primary the replica followed last
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized boolean isTournamentStarted() {
+        return tournamentStarted;
+    }
+
+    public synchronized boolean isGameStarted() {
+        return gameStarted;
+    }
+
+    public synchronized List<PlayerState> getPlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    public synchronized List<TeamState> getTeams() {
+        return new ArrayList<>(teams.values());
+    }
+}
@@ -0,0 +1,148 @@
+package com.solace.troubleflipper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+/**
+ * Serves the puzzle images under /static and the tiles under /tiles with ETags, cache headers and single byte ranges.
+ *
+ * On Tomcat the body is handed to the connector as a sendfile, otherwise it is written from the memory mapped asset.
+ */
+@Controller
+public class StaticAssetController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    // returned by parseRange for a range outside of the asset
+    static final long[] NOT_SATISFIABLE = new long[0];
+
+    private final StaticAssets staticAssets;
+
+    @Autowired
+    public StaticAssetController(StaticAssets staticAssets) {
+        this.staticAssets = staticAssets;
+    }
+
+    @GetMapping({"/static/**", "/" + PuzzleTiler.TILE_PATH + "/**"})
+    public void get(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length() + 1);
+        StaticAssets.Asset asset = staticAssets.get(path);
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        String rangeHeader = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.equals(asset.getEtag())) {
+            rangeHeader = null;
+        }
+        // a range is served from the asset itself, so it refers to the bytes of the image
+        if (rangeHeader == null) {
+            asset = asset.select(request.getHeader("Accept-Encoding"));
+        }
+        if (asset.hasVariants() || asset.getEncoding() != null) {
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+        response.setHeader("ETag", asset.getEtag());
+        response.setHeader("Cache-Control", asset.isImmutable() ? "public, max-age=31536000, immutable" :
+                "public, max-age=3600");
+        response.setHeader("Accept-Ranges", "bytes");
+        if (matches(request.getHeader("If-None-Match"), asset.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long[] range = parseRange(rangeHeader, asset.getLength());
+        if (range == NOT_SATISFIABLE) {
+            response.setHeader("Content-Range", "bytes */" + asset.getLength());
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        long start = 0;
+        long end = asset.getLength() - 1;
+        if (range != null) {
+            start = range[0];
+            end = range[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + asset.getLength());
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentType(asset.getContentType());
+        if (asset.getEncoding() != null) {
+            response.setHeader("Content-Encoding", asset.getEncoding());
+        }
+        response.setContentLengthLong(end - start + 1);
+        if ("HEAD".equals(request.getMethod()) || end < start) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, asset.getFile().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        asset.transferTo(start, end - start + 1, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses a single range of a Range header. Returns null to send the whole asset, NOT_SATISFIABLE or the first
+     * and the last byte of the range.
+     */
+    static long[] parseRange(String rangeHeader, long length) {
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || rangeHeader.indexOf(',') >= 0) {
+            return null;
+        }
+        String range = rangeHeader.substring("bytes=".length()).trim();
+        int dash = range.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            long start;
+            long end;
+            if (dash == 0) {
+                // the last bytes
+                long suffix = Long.parseLong(range.substring(1));
+                if (suffix == 0) {
+                    return NOT_SATISFIABLE;
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(range.substring(0, dash));
+                end = dash == range.length() - 1 ? length - 1 : Math.min(Long.parseLong(range.substring(dash + 1)), length - 1);
+                if (end < start) {
+                    return start >= length ? NOT_SATISFIABLE : null;
+                }
+            }
+            if (start >= length) {
+                return NOT_SATISFIABLE;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Puzzle images and tiles kept open and memory mapped for the static asset controller.
+ *
+ * An asset is mapped once and hashed for its ETag, later downloads only write out slices of the mapping. Socket and
+ * file targets get the bytes through {@link FileChannel#transferTo}, so they never pass through the heap. A file next
+ * to an asset with a .br or .gz extension is served as its precompressed variant. Tile sets are content addressed,
+ * so their assets are immutable.
+ */
+@Component
+public class StaticAssets {
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+    // preferred first
+    private static final String[][] ENCODINGS = {{"br", ".br"}, {"gzip", ".gz"}};
+
+    static {
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("css", "text/css");
+        CONTENT_TYPES.put("js", "application/javascript");
+        CONTENT_TYPES.put("json", "application/json");
+    }
+
+    private Logger log = LoggerFactory.getLogger("tournament");
+
+    // URL path prefix to directory
+    private final Map<String, Path> roots = new HashMap<>();
+    private final Map<Path, Asset> assets = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StaticAssets(TournamentProperties tournamentProperties) {
+        addRoot("static", tournamentProperties.getPuzzleImageDirectory());
+        addRoot(PuzzleTiler.TILE_PATH, tournamentProperties.getTileDirectory());
+    }
+
+    private void addRoot(String prefix, String directory) {
+        if (directory != null && !directory.isEmpty()) {
+            roots.put(prefix, Paths.get(directory).toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * Returns the asset for a URL path such as tiles/puzzle1-5-0a1b2c/3.jpg, or null if there is none.
+     */
+    public Asset get(String path) {
+        int slash = path.indexOf('/');
+        if (slash < 0) {
+            return null;
+        }
+        Path root = roots.get(path.substring(0, slash));
+        if (root == null) {
+            return null;
+        }
+        Path file = root.resolve(path.substring(slash + 1)).normalize();
+        if (!file.startsWith(root) || file.getFileName().toString().startsWith(".")) {
+            return null;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return null;
+            }
+            Asset asset = assets.get(file);
+            // a replaced file is mapped again
+            if (asset == null || asset.length != attributes.size() ||
+                    asset.lastModified != attributes.lastModifiedTime().toMillis()) {
+                asset = load(file, attributes, PuzzleTiler.TILE_PATH.equals(path.substring(0, slash)));
+                assets.put(file, asset);
+            }
+            return asset;
+        } catch (IOException ex) {
+            log.debug("No static asset " + path);
+            return null;
+        }
+    }
+
+    private Asset load(Path file, BasicFileAttributes attributes, boolean immutable) throws IOException {
+        String fileName = file.getFileName().toString();
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        String contentType = CONTENT_TYPES.getOrDefault(extension, "application/octet-stream");
+        Asset asset = open(file, attributes, contentType, null, immutable);
+        for (String[] encoding : ENCODINGS) {
+            Path variantFile = file.resolveSibling(fileName + encoding[1]);
+            if (Files.isRegularFile(variantFile)) {
+                asset.variants.put(encoding[0], open(variantFile,
+                        Files.readAttributes(variantFile, BasicFileAttributes.class), contentType, encoding[0], immutable));
+            }
+        }
+        return asset;
+    }
+
+    private static Asset open(Path file, BasicFileAttributes attributes, String contentType, String encoding,
+                              boolean immutable) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, attributes.size());
+            return new Asset(file, mapped, attributes.size(), attributes.lastModifiedTime().toMillis(), contentType,
+                    encoding, "\"" + hash(mapped.duplicate()) + "\"", immutable);
+        }
+    }
+
+    private static String hash(ByteBuffer content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(content);
+            StringBuilder hash = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hash.append(String.format("%02x", b & 0xff));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not available", ex);
+        }
+    }
+
+    public static class Asset {
+        private final Path file;
+        private final MappedByteBuffer mapped;
+        private final long length;
+        private final long lastModified;
+        private final String contentType;
+        private final String encoding;
+        private final String etag;
+        private final boolean immutable;
+        private final Map<String, Asset> variants = new LinkedHashMap<>();
+
+        private Asset(Path file, MappedByteBuffer mapped, long length, long lastModified, String contentType,
+                      String encoding, String etag, boolean immutable) {
+            this.file = file;
+            this.mapped = mapped;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.encoding = encoding;
+            this.etag = etag;
+            this.immutable = immutable;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        // null for the asset itself
+        public String getEncoding() {
+            return encoding;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public boolean isImmutable() {
+            return immutable;
+        }
+
+        public boolean hasVariants() {
+            return !variants.isEmpty();
+        }
+
+        /**
+         * Returns the precompressed variant the client accepts, or this asset.
+         */
+        public Asset select(String acceptEncoding) {
+            if (acceptEncoding == null || variants.isEmpty()) {
+                return this;
+            }
+            for (Map.Entry<String, Asset> variant : variants.entrySet()) {
+                if (accepts(acceptEncoding, variant.getKey())) {
+                    return variant.getValue();
+                }
+            }
+            return this;
+        }
+
+        public void transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            if (target instanceof FileChannel || target instanceof SelectableChannel) {
+                // the kernel copies from the page cache straight to the target
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    while (count > 0) {
+                        long transferred = channel.transferTo(position, count, target);
+                        position += transferred;
+                        count -= transferred;
+                    }
+                }
+                return;
+            }
+            ByteBuffer slice = mapped.duplicate();
+            slice.position((int) position);
+            slice.limit((int) (position + count));
+            while (slice.hasRemaining()) {
+                target.write(slice);
+            }
+        }
+
+        private static boolean accepts(String acceptEncoding, String encoding) {
+            for (String accepted : acceptEncoding.split(",")) {
+                String[] parts = accepted.trim().split(";");
+                if (parts[0].trim().equalsIgnoreCase(encoding)) {
+                    return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+                }
+            }
+            return false;
+        }
+    }
+}
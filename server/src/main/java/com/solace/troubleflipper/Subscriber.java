@@ -1,6 +1,7 @@
 package com.solace.troubleflipper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.model.PublisherException;
 import com.solace.troubleflipper.model.SubscriberException;
 import com.solacesystems.jcsmp.*;
 import org.slf4j.Logger;
@@ -8,22 +9,36 @@ import org.slf4j.LoggerFactory;
 
 import javax.validation.constraints.Null;
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class Subscriber {
 
     private Logger log = LoggerFactory.getLogger("message");
     private ObjectMapper objectMapper;
     private JCSMPSession session;
+    private Publisher publisher;
 
-    private Map<String, Object> handlers = new HashMap<>();
-    private Map<String, Class<?>> mappers = new HashMap<>();
+    // teams register their handlers in parallel while the tournament is built
+    private Map<String, Object> handlers;
+    private Map<String, Class<?>> mappers;
 
-    public Subscriber(JCSMPSession session, ObjectMapper objectMapper) throws JCSMPException {
+    // set on room views only, the root subscriber dispatches on the consumer thread without a topic prefix
+    private final String topicPrefix;
+    private final InboundLanes lanes;
+    // checked by the root subscriber only, null lets every message through
+    private volatile RateLimiter rateLimiter;
+
+    public Subscriber(JCSMPSession session, ObjectMapper objectMapper, Publisher publisher) throws JCSMPException {
         this.objectMapper = objectMapper;
         this.session = session;
+        this.publisher = publisher;
+        this.handlers = new ConcurrentHashMap<>();
+        this.mappers = new ConcurrentHashMap<>();
+        this.topicPrefix = "";
+        this.lanes = null;
         XMLMessageConsumer consumer = session.getMessageConsumer(new XMLMessageListener() {
 
             @Override
@@ -39,55 +54,145 @@ public class Subscriber {
         consumer.start();
     }
 
+    private Subscriber(Subscriber parent, String topicPrefix, InboundLanes lanes) {
+        this.objectMapper = parent.objectMapper;
+        this.session = parent.session;
+        this.publisher = parent.publisher;
+        this.handlers = parent.handlers;
+        this.mappers = parent.mappers;
+        this.topicPrefix = parent.topicPrefix + topicPrefix;
+        this.lanes = lanes;
+    }
+
+    /**
+     * Returns a view of this subscriber for one room. Topics are prefixed with topicPrefix and message handlers run on
+     * the lane of their topic, so a room handles its messages without holding up the other rooms and control
+     * messages overtake queued moves. Request handlers run and reply on their lane as well.
+     */
+    public Subscriber forRoom(String topicPrefix, InboundLanes lanes) {
+        return new Subscriber(this, topicPrefix, lanes);
+    }
+
+
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
 
     @SuppressWarnings("unchecked")
     private void handleMessage(BytesXMLMessage message) {
         String topic = message.getDestination().getName();
+        RateLimiter rateLimiter = this.rateLimiter;
+        if (rateLimiter != null && !rateLimiter.tryAcquire(topic, message.getSenderId())) {
+            return;
+        }
         Class<?> messageType = mappers.get(topic);
         if (messageType != null) {
-            Consumer consumer = (Consumer) handlers.get(topic);
-            if (consumer != null) {
+            Object handler = handlers.get(topic);
+            if (handler != null) {
                 byte[] buf = new byte[message.getAttachmentContentLength()];
                 message.readAttachmentBytes(buf);
                 String messageText = new String(buf);
                 try {
-                    Object m = objectMapper.readValue(buf, mappers.get(topic));
+                    Object m = objectMapper.readValue(buf, messageType);
                     log.trace("Message received: " + messageText);
-                    consumer.accept(m);
+                    if (handler instanceof RequestHandler) {
+                        ((RequestHandler) handler).handle(message, m);
+                    } else {
+                        ((Consumer) handler).accept(m);
+                    }
                 } catch (IOException ex) {
                     log.error("Unable to handle message from topic " + topic + ". Message: " + messageText, ex);
                 }
             }
         } else {
             log.info("Start new thread for " + topic);
-            Runnable runnable = (Runnable) handlers.get(topic);
-            if (runnable == null) {
+            Object runnable = handlers.get(topic);
+            if (!(runnable instanceof Runnable)) {
                 log.error("Null handler for topic " + topic);
             } else {
-                runnable.run();
+                ((Runnable) runnable).run();
             }
         }
     }
 
     public <T> void registerHandler(Class<T> clazz, String topic, Consumer<T> handler) {
-        handlers.put(topic, handler);
-        mappers.put(topic, clazz);
+        mappers.put(topicPrefix + topic, clazz);
+        if (lanes == null) {
+            handlers.put(topicPrefix + topic, handler);
+        } else {
+            InboundLanes.Lane lane = InboundLanes.classify(topic);
+            handlers.put(topicPrefix + topic, (Consumer<T>) m -> lanes.execute(lane, () -> handler.accept(m)));
+        }
+    }
+
+    /**
+     * Registers a handler whose result is sent back to the requester only, as the reply to the request message.
+     * Results other than a byte array are serialized to JSON.
+     */
+    public <T> void registerRequestHandler(Class<T> clazz, String topic, Function<T, ?> handler) {
+        mappers.put(topicPrefix + topic, clazz);
+        RequestHandler requestHandler = (request, m) -> reply(request, topic, handler.apply(clazz.cast(m)));
+        if (lanes == null) {
+            handlers.put(topicPrefix + topic, requestHandler);
+        } else {
+            // the handler runs and replies on the lane, not on the consumer thread
+            InboundLanes.Lane lane = InboundLanes.classify(topic);
+            handlers.put(topicPrefix + topic, (RequestHandler) (request, m) ->
+                    lanes.execute(lane, () -> requestHandler.handle(request, m)));
+        }
+    }
+
+    private void reply(BytesXMLMessage request, String topic, Object reply) {
+        try {
+            if (reply instanceof byte[]) {
+                publisher.reply(request, (byte[]) reply);
+            } else {
+                publisher.reply(request, objectMapper.writeValueAsBytes(reply));
+            }
+        } catch (IOException | PublisherException ex) {
+            log.error("Unable to reply to request from topic " + topicPrefix + topic, ex);
+        }
     }
 
     public void registerHandler(String topic, Runnable runnable) {
         if (runnable == null) {
             throw new NullPointerException("The runnable cannot be null for topic " + topic);
         }
-        handlers.put(topic, runnable);
-        mappers.put(topic, null);
+        if (lanes == null) {
+            handlers.put(topicPrefix + topic, runnable);
+        } else {
+            InboundLanes.Lane lane = InboundLanes.classify(topic);
+            handlers.put(topicPrefix + topic, (Runnable) () -> lanes.execute(lane, runnable));
+        }
+        // no message type, the handler is run without a message
+        mappers.remove(topicPrefix + topic);
     }
 
     public void deregisterHandler(String topic) {
-        handlers.remove(topic);
-        mappers.remove(topic);
+        handlers.remove(topicPrefix + topic);
+        mappers.remove(topicPrefix + topic);
+    }
+
+    public void subscribe(String topicName) throws SubscriberException {
+        Topic topic = JCSMPFactory.onlyInstance().createTopic(topicPrefix + topicName);
+        try {
+            session.addSubscription(topic);
+        } catch (JCSMPException ex) {
+            throw new SubscriberException("Unable to add subscription on topic " + topic.getName(), ex);
+        }
+    }
+
+    public void unsubscribe(String topicName) throws SubscriberException {
+        Topic topic = JCSMPFactory.onlyInstance().createTopic(topicPrefix + topicName);
+        try {
+            session.removeSubscription(topic);
+        } catch (JCSMPException ex) {
+            throw new SubscriberException("Unable to remove subscription on topic " + topic.getName(), ex);
+        }
     }
 
     public void subscribeForClient(String topicName, String clientName) throws SubscriberException {
+        topicName = topicPrefix + topicName;
         Topic topic = JCSMPFactory.onlyInstance().createTopic(topicName);
         try {
             session.addSubscription(JCSMPFactory.onlyInstance().createClientName(clientName), topic, JCSMPSession.WAIT_FOR_CONFIRM);
@@ -102,4 +207,9 @@ public class Subscriber {
             throw new SubscriberException(message, ex);
         }
     }
+
+    // a handler that replies to the request message
+    private interface RequestHandler {
+        void handle(BytesXMLMessage request, Object message);
+    }
 }
@@ -0,0 +1,84 @@
+package com.solace.troubleflipper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The team names of one room.
+ *
+ * A room keeps the names its teams use until it is reset for the next tournament, so rooms running at the same time
+ * never share or clear each other's names. The names are shuffled with the random of the room, which comes from its
+ * clock.
+ */
+public class TeamNames {
+
+    private static final String[] teamNamesPart_1 = {
+        "Meandering", "Snippy", "Sliding", "Wavering", "Indecisive", "Messy",
+        "Splattered", "Wide-eyed", "Burnt", "Toasted", "Spoiled", "Drooling",
+        "Flipperdy", "Restless", "Left Over", "Sprinkled",
+        "Slushy", "Muddy", "Oiled", "Buggy"
+        };
+
+    private static final String[] teamNamesPart_2 = {
+        "Peaches", "Gang", "Flippers", "Toads",
+        "Toadettes", "Koopalings", "Piranhas", "Warts", "Waluigis",
+        "Kongs", "Birdos", "Lumas", "Diddys", "Magikoopas"
+        };
+
+    private final Set<String> teamNamesUsed = new HashSet<>();
+    private final Random randomGen;
+
+    public TeamNames(Random randomGen) {
+        this.randomGen = randomGen;
+    }
+
+    public synchronized void reset() {
+        this.teamNamesUsed.clear();
+    }
+
+    /**
+     * Picks names for a whole tournament at once. Once every combination is used, names are reused with a number.
+     */
+    public synchronized List<String> getNewTeamNames(int count) {
+        List<String> combinations = new ArrayList<>(teamNamesPart_1.length * teamNamesPart_2.length);
+        for (String fName : teamNamesPart_1) {
+            for (String lName : teamNamesPart_2) {
+                combinations.add(fName + " " + lName);
+            }
+        }
+        Collections.shuffle(combinations, randomGen);
+        List<String> newNames = new ArrayList<>(count);
+        for (int round = 1; newNames.size() < count; round++) {
+            for (String combination : combinations) {
+                if (newNames.size() == count) {
+                    break;
+                }
+                String tempName = round == 1 ? combination : combination + " " + round;
+                if (this.teamNamesUsed.add(tempName)) {
+                    newNames.add(tempName);
+                }
+            }
+        }
+        return newNames;
+    }
+
+    // null once every combination is used
+    public synchronized String getNewTeamName() {
+        int    fNameCount = teamNamesPart_1.length;
+        int    lNameCount = teamNamesPart_2.length;
+        int totalNames = fNameCount * lNameCount;
+
+        while (this.teamNamesUsed.size() < totalNames) {
+            String tempName = teamNamesPart_1[randomGen.nextInt(fNameCount)] + " " +
+                    teamNamesPart_2[randomGen.nextInt(lNameCount)];
+            if (this.teamNamesUsed.add(tempName)) {
+                return tempName;
+            }
+        }
+        return null;
+    }
+}
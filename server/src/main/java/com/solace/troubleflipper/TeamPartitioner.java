@@ -0,0 +1,80 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.properties.TournamentProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Consistent hash ring that assigns every team to one node of the cluster.
+ *
+ * Each node is placed on the ring virtualNodes times and a team belongs to the first node at or after the hash of its
+ * id, so adding or removing a node only moves the teams of that node's slices. Without nodes the local node owns
+ * every team.
+ */
+public class TeamPartitioner {
+
+    private final List<String> nodes;
+    private final String localNode;
+    private final TreeMap<Integer, String> ring = new TreeMap<>();
+
+    public TeamPartitioner(TournamentProperties tournamentProperties) {
+        this(tournamentProperties.getNodes(), tournamentProperties.getNodeId(), tournamentProperties.getVirtualNodes());
+    }
+
+    public TeamPartitioner(List<String> nodes, String localNode, int virtualNodes) {
+        this.nodes = new ArrayList<>(nodes);
+        this.localNode = localNode;
+        if (!this.nodes.isEmpty() && !this.nodes.contains(localNode)) {
+            throw new IllegalArgumentException("Node " + localNode + " is not one of the nodes " + nodes);
+        }
+        for (String node : this.nodes) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public boolean isPartitioned() {
+        return !nodes.isEmpty();
+    }
+
+    public String getLocalNode() {
+        return localNode;
+    }
+
+    public List<String> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public String getCoordinator() {
+        return isPartitioned() ? nodes.get(0) : localNode;
+    }
+
+    public boolean isCoordinator() {
+        return getCoordinator().equals(localNode);
+    }
+
+    public String getOwner(String teamId) {
+        if (!isPartitioned()) {
+            return localNode;
+        }
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(hash(teamId));
+        return entry == null ? ring.firstEntry().getValue() : entry.getValue();
+    }
+
+    public boolean isLocal(String teamId) {
+        return getOwner(teamId).equals(localNode);
+    }
+
+    private static int hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ((digest[0] & 0xff) << 24) | ((digest[1] & 0xff) << 16) | ((digest[2] & 0xff) << 8) | (digest[3] & 0xff);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("MD5 is not available", ex);
+        }
+    }
+}
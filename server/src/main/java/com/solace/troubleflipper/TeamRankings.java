@@ -0,0 +1,150 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.Team;
+
+import java.util.*;
+
+/**
+ * Team ranking index ordered by completed games then correct pieces.
+ *
+ * Scores are pushed in when they change instead of being read from the team's current game, so the ranking stays
+ * valid in the gap between two games. A score change only moves the team past the neighbours it overtakes, which
+ * keeps updates cheap and lets "team directly ahead" and rank lookups run in constant time.
+ */
+public class TeamRankings {
+
+    private final List<Entry> ranking = new ArrayList<>();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Set<Entry> changed = new LinkedHashSet<>();
+
+    public synchronized void add(Team team) {
+        addEntry(team);
+        // total number of teams changed, every team needs a new rank message
+        changed.addAll(ranking);
+    }
+
+    public synchronized void addAll(Collection<Team> teams) {
+        teams.forEach(this::addEntry);
+        changed.addAll(ranking);
+    }
+
+    private void addEntry(Team team) {
+        if (entries.containsKey(team.getId())) {
+            return;
+        }
+        Entry entry = new Entry(team);
+        entry.completedGames = team.getCompletedGames();
+        entry.position = ranking.size();
+        ranking.add(entry);
+        entries.put(team.getId(), entry);
+        moveUp(entry);
+    }
+
+    public synchronized void clear() {
+        ranking.clear();
+        entries.clear();
+        changed.clear();
+    }
+
+    public synchronized void update(Team team, int completedGames, int correctPieces) {
+        Entry entry = entries.get(team.getId());
+        if (entry == null) {
+            return;
+        }
+        int oldCompletedGames = entry.completedGames;
+        int oldCorrectPieces = entry.correctPieces;
+        entry.completedGames = completedGames;
+        entry.correctPieces = correctPieces;
+        if (compare(entry.completedGames, entry.correctPieces, oldCompletedGames, oldCorrectPieces) > 0) {
+            moveUp(entry);
+        } else {
+            moveDown(entry);
+        }
+    }
+
+    public synchronized int getRank(Team team) {
+        Entry entry = entries.get(team.getId());
+        return entry == null ? -1 : entry.position + 1;
+    }
+
+    public synchronized Team getTeamAhead(Team team) {
+        Entry entry = entries.get(team.getId());
+        if (entry == null || entry.position == 0) {
+            return null;
+        }
+        return ranking.get(entry.position - 1).team;
+    }
+
+    public synchronized int size() {
+        return ranking.size();
+    }
+
+    public synchronized List<Team> getTeams() {
+        List<Team> teams = new ArrayList<>(ranking.size());
+        for (Entry entry : ranking) {
+            teams.add(entry.team);
+        }
+        return teams;
+    }
+
+    /**
+     * Returns the teams whose rank changed since the last call, with their current rank.
+     */
+    public synchronized Map<Team, Integer> drainChangedRanks() {
+        Map<Team, Integer> changedRanks = new LinkedHashMap<>();
+        for (Entry entry : changed) {
+            changedRanks.put(entry.team, entry.position + 1);
+        }
+        changed.clear();
+        return changedRanks;
+    }
+
+    private void moveUp(Entry entry) {
+        while (entry.position > 0) {
+            Entry ahead = ranking.get(entry.position - 1);
+            if (compare(entry.completedGames, entry.correctPieces, ahead.completedGames, ahead.correctPieces) <= 0) {
+                break;
+            }
+            swap(ahead, entry);
+        }
+    }
+
+    private void moveDown(Entry entry) {
+        while (entry.position < ranking.size() - 1) {
+            Entry behind = ranking.get(entry.position + 1);
+            if (compare(behind.completedGames, behind.correctPieces, entry.completedGames, entry.correctPieces) <= 0) {
+                break;
+            }
+            swap(entry, behind);
+        }
+    }
+
+    // first must be directly ahead of second
+    private void swap(Entry first, Entry second) {
+        int position = first.position;
+        second.position = position;
+        first.position = position + 1;
+        ranking.set(position, second);
+        ranking.set(position + 1, first);
+        changed.add(first);
+        changed.add(second);
+    }
+
+    private static int compare(int completedGames1, int correctPieces1, int completedGames2, int correctPieces2) {
+        if (completedGames1 != completedGames2) {
+            return Integer.compare(completedGames1, completedGames2);
+        }
+        return Integer.compare(correctPieces1, correctPieces2);
+    }
+
+    private static class Entry {
+        private final Team team;
+        private int completedGames;
+        private int correctPieces;
+        private int position;
+
+        private Entry(Team team) {
+            this.team = team;
+        }
+    }
+}
@@ -8,52 +8,293 @@ import com.solace.troubleflipper.properties.TournamentProperties;
 import com.solacesystems.jcsmp.JCSMPErrorResponseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
-@Component
-public class Tournament implements GameOverListener, BadGuyActionHandler {
+/**
+ * One room of the server. Each room has its own players, teams, timer and lock, and talks to its clients through
+ * room scoped views of the subscriber and publisher, so rooms never contend with each other. Rooms are created and
+ * closed by the {@link RoomManager}.
+ */
+public class Tournament implements GameOverListener, GameProgressListener, BadGuyActionHandler {
+
+    // every so many replication messages carry all teams, so a standby that started late catches up
+    private static final int FULL_REPLICATION_INTERVAL = 20;
 
     private static List<String> PUZZLE_NAMES = Arrays.asList("puzzle5.jpg", "puzzle-cookies-icing.jpg", "puzzle4.jpg", "puzzle-brick-loading-docs.jpg",  "puzzle1.jpg", "puzzle-Ian-is-not-Santa.jpg", "puzzle2.jpg", "puzzle3.jpg");
 
     private Logger log = LoggerFactory.getLogger("tournament");
 
-    private final List<Player> players = new ArrayList<>();
+    private final ClientHandles clientHandles;
+    private final PlayerRegistry players;
     private volatile boolean gameStarted = false;
     private volatile boolean tournamentStarted = false;
     private int waitCounter = 10;
     private boolean resetWaitCounter = false;
     private Map<String, Team> teams = new HashMap<>();
     private Map<String, Game> activeGames = new HashMap<>();
-    private Map<String, Collection<Game>> completedGames = new HashMap<>();
-    private final LinkedList<Team> teamRankings = new LinkedList<>();
+    // only summaries, so the boards, teams and handlers of finished games can be collected
+    private Map<String, List<GameSummary>> completedGames = new HashMap<>();
+    private final TeamRankings teamRankings = new TeamRankings();
     private final LinkedList<Player> playerRankings = new LinkedList<>();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final RosterTracker rosterTracker = new RosterTracker();
 
     private final Subscriber subscriber;
     private final Publisher publisher;
+    private final LastValueCache lastValueCache;
 
     private final TournamentProperties tournamentProperties;
 
-    private Timer timer = new Timer("TournamentTimer");
-    private Random randomGen = new Random();
+    private final String roomId;
+    private Timer timer;
+    private final GameClock clock;
+    private final Random randomGen;
+    private final TeamNames teamNames;
 
     private final Object tournamentLock = new Object();
 
-    @Autowired
-    public Tournament(TournamentProperties tournamentProperties,
-                      Subscriber subscriber, Publisher publisher) {
+    private final RegistrationPipeline registrationPipeline;
+    private final ForkJoinPool teamSetupPool;
+    private int buildGeneration = 0;
+    // attacks run on the lane of the team they change, so they never block the handler of the attacking team
+    private final ExecutorService lanePool;
+    private final RoomExecutors executors;
+    // false when the executors are shared with other rooms
+    private final boolean ownExecutors;
+    private final Map<String, SerialExecutor> teamLanes = new ConcurrentHashMap<>();
+    private final PuzzleBoardPool boardPool;
+    // null when the clients cut the puzzle images themselves
+    private final PuzzleTiler puzzleTiler;
+    // only set in partitioned mode
+    private final ClusterCoordinator clusterCoordinator;
+
+    private volatile boolean active = false;
+    private volatile boolean closed = false;
+    private Timer replicationTimer;
+    // goes up with every takeover of the room
+    private volatile long epoch = 1;
+    private Runnable stepDownHandler;
+    private long replicationSequence = 0;
+    private boolean fullReplicationPending = true;
+    // the players go out with the next replication message, set whenever the tournament update is rebuilt
+    private boolean rosterReplicationPending = true;
+    private final Set<String> changedTeamIds = ConcurrentHashMap.newKeySet();
+
+    public Tournament(String roomId, TournamentProperties tournamentProperties,
+                      Subscriber subscriber, Publisher publisher, LastValueCache lastValueCache) {
+        this(roomId, tournamentProperties, subscriber, publisher, lastValueCache, null);
+    }
+
+    public Tournament(String roomId, TournamentProperties tournamentProperties, Subscriber subscriber,
+                      Publisher publisher, LastValueCache lastValueCache, PuzzleTiler puzzleTiler) {
+        this(roomId, tournamentProperties, subscriber, publisher, lastValueCache, puzzleTiler, GameClock.SYSTEM);
+    }
+
+    /**
+     * Creates a tournament whose timers, games and puzzle choices run on the clock.
+     */
+    public Tournament(String roomId, TournamentProperties tournamentProperties, Subscriber subscriber,
+                      Publisher publisher, LastValueCache lastValueCache, PuzzleTiler puzzleTiler, GameClock clock) {
+        this(roomId, tournamentProperties, subscriber, publisher, lastValueCache, puzzleTiler, clock,
+                new RoomExecutors(tournamentProperties.getTeamSetupParallelism()), new ClientHandles(), true);
+    }
+
+    /**
+     * Creates a tournament that runs its background work on executors shared with the other rooms, and keys its
+     * players on the client handles of the server.
+     */
+    public Tournament(String roomId, TournamentProperties tournamentProperties, Subscriber subscriber,
+                      Publisher publisher, LastValueCache lastValueCache, PuzzleTiler puzzleTiler, GameClock clock,
+                      RoomExecutors executors, ClientHandles clientHandles) {
+        this(roomId, tournamentProperties, subscriber, publisher, lastValueCache, puzzleTiler, clock, executors,
+                clientHandles, false);
+    }
+
+    private Tournament(String roomId, TournamentProperties tournamentProperties, Subscriber subscriber,
+                       Publisher publisher, LastValueCache lastValueCache, PuzzleTiler puzzleTiler, GameClock clock,
+                       RoomExecutors executors, ClientHandles clientHandles, boolean ownExecutors) {
+        this.roomId = roomId;
+        this.puzzleTiler = puzzleTiler;
+        this.clock = clock;
+        this.randomGen = clock.newRandom();
+        this.teamNames = new TeamNames(clock.newRandom());
+        this.timer = newTimer();
         this.tournamentProperties = tournamentProperties;
         this.subscriber = subscriber;
         this.publisher = publisher;
-        subscriber.registerHandler(AddUserMessage.class, "users", this::addUser);
+        this.lastValueCache = lastValueCache;
+        this.executors = executors;
+        this.ownExecutors = ownExecutors;
+        this.clientHandles = clientHandles;
+        this.players = new PlayerRegistry(clientHandles);
+        registrationPipeline = new RegistrationPipeline(tournamentProperties.getRegistrationBatchSize(),
+                tournamentProperties.getRegistrationWindow(), this::addUsers, this::publishRoster,
+                executors.getWorkers(), clock);
+        registrationPipeline.start();
+        teamSetupPool = executors.getTeamSetupPool();
+        lanePool = executors.getWorkers();
+        boardPool = new PuzzleBoardPool(tournamentProperties.getPuzzleSize(), lanePool, clock.newRandom());
+        TeamPartitioner teamPartitioner = new TeamPartitioner(tournamentProperties);
+        clusterCoordinator = teamPartitioner.isPartitioned() ?
+                new ClusterCoordinator(teamPartitioner, tournamentProperties, subscriber, publisher, this) : null;
+    }
+
+    /**
+     * Starts handling the messages of the room. A standby only activates its tournament once it takes over.
+     */
+    public void activate() {
+        subscriber.registerHandler(AddUserMessage.class, "users", registrationPipeline::submit);
         subscriber.registerHandler(TournamentMessage.class, "tournaments", this::handleTournamentMsg);
+        subscriber.registerHandler(LeaderboardQueryMessage.class, "leaderboard", this::handleLeaderboardQuery);
+        subscriber.registerRequestHandler(StateQueryMessage.class, "state/query", this::handleStateQuery);
+        subscriber.registerRequestHandler(TournamentMessage.class, "roster/snapshot", this::handleRosterSnapshot);
+        if (tournamentProperties.isReplication()) {
+            subscriber.registerHandler(ReplicationMessage.class, "replication", this::handleReplication);
+            replicationTimer = clock.newTimer("ReplicationTimer");
+            replicationTimer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    publishReplication();
+                }
+            }, 0, tournamentProperties.getHeartbeatInterval());
+        }
+        active = true;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Sets what runs when a primary of a higher epoch serves the room, by default the tournament closes.
+     */
+    public void setStepDownHandler(Runnable stepDownHandler) {
+        this.stepDownHandler = stepDownHandler;
+    }
+
+    // its own messages come back with the same epoch
+    private void handleReplication(ReplicationMessage replicationMessage) {
+        if (!active || replicationMessage.getEpoch() <= epoch) {
+            return;
+        }
+        log.warn("Room " + roomId + " is served by a primary of epoch " + replicationMessage.getEpoch() +
+                ", stepping down from epoch " + epoch);
+        if (stepDownHandler != null) {
+            stepDownHandler.run();
+        } else {
+            close();
+        }
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public RegistrationPipeline getRegistrationPipeline() {
+        return registrationPipeline;
+    }
+
+    Team getTeam(String teamId) {
+        synchronized (tournamentLock) {
+            return teams.get(teamId);
+        }
     }
 
+    List<Team> getTeams() {
+        synchronized (tournamentLock) {
+            return new ArrayList<>(teams.values());
+        }
+    }
+
+    // the summaries of the games the team completed, oldest first
+    List<GameSummary> getCompletedGames(String teamId) {
+        synchronized (tournamentLock) {
+            List<GameSummary> summaries = completedGames.get(teamId);
+            return summaries == null ? Collections.emptyList() : new ArrayList<>(summaries);
+        }
+    }
+
+    boolean isGameStarted() {
+        return gameStarted;
+    }
+
+    /**
+     * Stops the games and the background work of this room and removes its handlers.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        subscriber.deregisterHandler("users");
+        subscriber.deregisterHandler("tournaments");
+        subscriber.deregisterHandler("leaderboard");
+        subscriber.deregisterHandler("state/query");
+        subscriber.deregisterHandler("roster/snapshot");
+        if (active && tournamentProperties.isReplication()) {
+            subscriber.deregisterHandler("replication");
+        }
+        active = false;
+        registrationPipeline.stop();
+        closed = true;
+        synchronized (tournamentLock) {
+            tournamentStarted = false;
+            gameStarted = false;
+            // a team build still in flight drops its teams
+            buildGeneration++;
+            timer.cancel();
+            activeGames.values().forEach(Game::stop);
+            activeGames.clear();
+        }
+        if (ownExecutors) {
+            executors.shutdown();
+        }
+        if (replicationTimer != null) {
+            replicationTimer.cancel();
+        }
+        if (clusterCoordinator != null) {
+            clusterCoordinator.close();
+        }
+        log.info("Room " + roomId + " closed");
+    }
+
+    private Timer newTimer() {
+        return clock.newTimer(roomId.isEmpty() ? "TournamentTimer" : "TournamentTimer-" + roomId);
+    }
+
+    // returns true if the tournament update message needs to be published
+    private boolean addUsers(List<AddUserMessage> addUserMessages) {
+        boolean rosterChanged = false;
+        for (AddUserMessage addUserMessage : addUserMessages) {
+            if (addUser(addUserMessage)) {
+                rosterChanged = true;
+            }
+        }
+        return rosterChanged;
+    }
+
+    private void publishRoster() {
+        synchronized (tournamentLock) {
+            updateTournamentMessage();
+        }
+    }
+
+    // returns true if the tournament update message needs to be published
     @SubscriptionHandler(topic = "users", messageType = AddUserMessage.class)
-    private void addUser(AddUserMessage addUserMessage) {
+    private boolean addUser(AddUserMessage addUserMessage) {
+        boolean rosterChanged = false;
         if (addUserMessage.getGameMaster() != null && addUserMessage.getGameMaster().booleanValue() == true) {
             AddUserAckMessage addUserAckMessage = new AddUserAckMessage(addUserMessage, AddUserAckMessage.RESULT_SUCCESS);
             try {
@@ -62,9 +303,8 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                 log.info("Game master with id " + clientName + " has been registered in the tournament");
                 try {
                     subscriber.subscribeForClient("tournament/>", clientName);
-                    synchronized (tournamentLock) {
-                        updateTournamentMessage();
-                    }
+                    // game masters fetch the current roster from the last value cache once it exists
+                    rosterChanged = !lastValueCache.contains("tournament/update");
                 } catch (SubscriberException ex) {
                     log.error("Unable to register subscription for game master " + addUserAckMessage.getClientId(), ex);
                 }
@@ -75,32 +315,27 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
 
         } else {
             synchronized (tournamentLock) {
-                Optional<Player> firstMatch = players.stream().filter(item ->
-                        addUserMessage.getClientId().equals(item.getClientName())).findFirst();
-                Player player;
+                Player player = players.get(addUserMessage.getClientId());
                 boolean present = false;
-                if (firstMatch.isPresent()) {
+                if (player != null) {
                     present = true;
-                    player = firstMatch.get();
                     player.setGamerTag(addUserMessage.getUsername());
                     log.trace("Player " + player.getClientName() + " is already registered");
                 } else {
                     player = new Player();
                     player.setGamerTag(addUserMessage.getUsername());
                     player.setClientName(addUserMessage.getClientId());
-                    players.add(player);
+                    players.putIfAbsent(player);
                 }
                 AddUserAckMessage addUserAckMessage = new AddUserAckMessage(addUserMessage, AddUserAckMessage.RESULT_SUCCESS);
                 try {
                     publisher.publish("user/" + player.getClientName(), addUserAckMessage);
                     log.info("Player " + player.getGamerTag() + " with id " + player.getClientName() + " has been registered in the tournament");
-                    updateTournamentMessage();
-                    if (present) {
+                    rosterChanged = true;
+                    if (present && player.getTeam() != null) {
                         // check if there is active game and send out team information
-                        Optional<Game> firstMatchGame = activeGames.values().stream().filter(item ->
-                                item.getTeam().getPlayer(player.getClientName()) != null).findFirst();
-                        if (firstMatchGame.isPresent()) {
-                            Game activeGame = firstMatchGame.get();
+                        Game activeGame = activeGames.get(player.getTeam().getId());
+                        if (activeGame != null) {
                             log.info("Player is part of a game");
                             boolean playerNotFound = false;
                             try {
@@ -112,7 +347,7 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                                     if (((JCSMPErrorResponseException) ex.getCause()).getResponseCode() == 404) {
                                         log.info("Player has lost connection, remove player from team and players list");
                                         playerNotFound = true;
-                                        playerRankings.remove(player);
+                                        // the scoring task drops players without a team from the rankings
                                         activeGame.getTeam().removePlayer(player);
                                         this.players.remove(player);
                                     }
@@ -127,7 +362,15 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                                 if ((player.getCharacter() == null && !playerNotFound) || !gameStarted) {
                                     activeGame.updateCharactersForTeam(false);
                                 } else {
-                                    activeGame.updatePuzzleForTeam(false);
+                                    if (playerNotFound) {
+                                        // the team sees the player leave
+                                        activeGame.updatePuzzleForTeam(false);
+                                    } else {
+                                        // only the reconnecting player needs the board
+                                        activeGame.catchUp(player.getClientName(), addUserMessage.getLastSequence());
+                                    }
+                                    Team team = activeGame.getTeam();
+                                    publishTeamRank(team, teamRankings.getRank(team), teamRankings.size());
                                 }
                             }
                         }
@@ -139,27 +382,22 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                 }
             }
         }
+        return rosterChanged;
+    }
+
+    private byte[] handleStateQuery(StateQueryMessage stateQueryMessage) {
+        byte[] lastValue = null;
+        if (stateQueryMessage.getTopic() != null) {
+            lastValue = lastValueCache.get(stateQueryMessage.getTopic());
+        }
+        // an empty reply means nothing has been published on the topic yet
+        return lastValue == null ? new byte[0] : lastValue;
     }
 
     @SubscriptionHandler(topic = "tournaments", messageType = TournamentMessage.class)
     private void handleTournamentMsg(TournamentMessage tournamentMessage) {
         if (tournamentMessage.getAction().equals("buildTeams")) {
-            synchronized (tournamentLock) {
-                if (players.size() > 0) {
-                    if (tournamentStarted) {
-                        log.info("Tournament is already in progress");
-                        return;
-                    }
-                    log.info("Start tournament");
-                    tournamentStarted = true;
-                    prepareTeams();
-                    for (Game game : activeGames.values()) {
-                        game.addGameOverListener(this);
-                        game.updateCharactersForTeam(false);
-                    }
-                    updateTournamentMessage();
-                }
-            }
+            buildTeams();
         } else if (tournamentMessage.getAction().equals("stopGames")) {
             synchronized (tournamentLock) {
                 if (!tournamentStarted) {
@@ -184,15 +422,21 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                         Team team = game.getTeam();
                         log.info("Game won, update completed game for " + team.getId() + ", " + team.getName());
                         activeGames.remove(team.getId());
-                        completedGames.get(team.getId()).add(game);
+                        completedGames.get(team.getId()).add(game.summarize());
                         team.addCompletedGame();
+                        teamRankings.update(team, team.getCompletedGames(), 0);
                     });;
                 }
+                fullReplicationPending = true;
                 updateTournamentMessage();
             }
         }
     }
 
+    static List<String> getPuzzleNames() {
+        return PUZZLE_NAMES;
+    }
+
     private String getPuzzleName(Team team) {
         String puzzleName = null;
         if (team != null) {
@@ -207,55 +451,120 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
         return puzzleName;
     }
 
+    void buildTeams() {
+        List<List<Player>> playerGroups;
+        List<String> newTeamNames;
+        Timer teamTimer;
+        int generation;
+        synchronized (tournamentLock) {
+            if (players.size() == 0) {
+                return;
+            }
+            if (tournamentStarted) {
+                log.info("Tournament is already in progress");
+                return;
+            }
+            log.info("Start tournament");
+            tournamentStarted = true;
+            playerGroups = prepareTeams();
+            newTeamNames = teamNames.getNewTeamNames(playerGroups.size());
+            teamTimer = timer;
+            generation = ++buildGeneration;
+        }
+
+        // subscriptions are blocking, set up the teams in parallel and outside of the lock so registrations go on
+        long start = System.currentTimeMillis();
+        List<TeamSetup> teamSetups = setupTeams(playerGroups, newTeamNames, teamTimer);
+        log.info("Set up " + teamSetups.size() + " teams in " + (System.currentTimeMillis() - start) + " ms");
+
+        synchronized (tournamentLock) {
+            if (!tournamentStarted || generation != buildGeneration) {
+                log.info("Tournament was stopped while teams were built");
+                teamSetups.forEach(teamSetup -> teamSetup.game.stop());
+                return;
+            }
+            List<Team> newTeams = new ArrayList<>(teamSetups.size());
+            for (TeamSetup teamSetup : teamSetups) {
+                Team team = teamSetup.team;
+                teams.put(team.getId(), team);
+                completedGames.put(team.getId(), new ArrayList<>());
+                activeGames.put(team.getId(), teamSetup.game);
+                playerRankings.addAll(team.getPlayers());
+                newTeams.add(team);
+                teamSetup.game.addGameOverListener(this);
+                for (Player leftPlayer : teamSetup.leftPlayers) {
+                    log.info("Remove " + leftPlayer.getGamerTag() + ", " + leftPlayer.getClientName() + " from players list because it is not connected");
+                    this.players.remove(leftPlayer);
+                }
+            }
+            teamRankings.addAll(newTeams);
+            fullReplicationPending = true;
+            scheduleCharacterSelection();
+            updateTournamentMessage();
+        }
+    }
+
+    static List<List<Player>> partitionPlayers(List<Player> players, int playersPerTeam) {
+        int teamSize = Math.max(1, playersPerTeam);
+        List<List<Player>> playerGroups = new ArrayList<>((players.size() + teamSize - 1) / teamSize);
+        for (int i = 0; i < players.size(); i += teamSize) {
+            playerGroups.add(new ArrayList<>(players.subList(i, Math.min(i + teamSize, players.size()))));
+        }
+        return playerGroups;
+    }
+
+    private List<TeamSetup> setupTeams(List<List<Player>> playerGroups, List<String> teamNames, Timer teamTimer) {
+        List<Callable<TeamSetup>> tasks = new ArrayList<>(playerGroups.size());
+        for (int i = 0; i < playerGroups.size(); i++) {
+            String teamName = teamNames.get(i);
+            List<Player> teamPlayers = playerGroups.get(i);
+            tasks.add(() -> setupTeam(teamName, teamPlayers, teamTimer));
+        }
+        List<TeamSetup> teamSetups = new ArrayList<>(tasks.size());
+        for (Future<TeamSetup> future : teamSetupPool.invokeAll(tasks)) {
+            try {
+                teamSetups.add(future.get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                log.error("Unable to set up team", ex.getCause());
+            }
+        }
+        return teamSetups;
+    }
+
     // call inside synchronized(tournamentLock)
-    private void prepareTeams() {
+    private List<List<Player>> prepareTeams() {
         waitCounter = 10;
         resetWaitCounter = false;
         teams.clear();
         activeGames.clear();
         completedGames.clear();
         teamRankings.clear();
+        teamLanes.clear();
+        boardPool.clear();
         playerRankings.clear();
-        tournamentProperties.resetTeamNamesUsed();
+        leaderboard.clear();
+        lastValueCache.clear();
+        teamNames.reset();
+        if (clusterCoordinator != null) {
+            clusterCoordinator.reset();
+        }
 
         timer.cancel();
         timer.purge();
-        timer = new Timer("TournamentTimer");
-        if (players.size() == 0) {
-            return;
-        }
-        int numberOfPlayers = players.size();
-        int playersPerTeam = tournamentProperties.getPlayersPerTeam();
-        int numberOfTeams = (int)Math.ceil(players.size() / playersPerTeam);
-        log.debug("numberOfTeams " + numberOfTeams);
-        List<Player> teamPlayers = null;
-        String teamName = null;
-        Player player;
-        List<Player> allLeftPlayers = new ArrayList<>();
-        for (int i = 0; i < numberOfPlayers; i++) {
-            if (teamPlayers == null) {
-                teamPlayers = new ArrayList<>();
-            }
-            player =  players.get(i);
-            player.reset();
-            teamPlayers.add(player);
-            if (teamPlayers.size() == playersPerTeam || i == numberOfPlayers - 1) {
-                teamName = tournamentProperties.getNewTeamName();
-                List<Player> leftPlayers = addTeam(teamName, teamPlayers);
-                teamPlayers = null;
-                if (leftPlayers != null) {
-                    allLeftPlayers.addAll(leftPlayers);
-                }
-            }
-        }
-        if (allLeftPlayers.size() > 0) {
-            for (Player leftPlayer : allLeftPlayers) {
-                log.info("Remove " + leftPlayer.getGamerTag() + ", " + leftPlayer.getClientName() + " from players list because it is not connected");
-                this.players.remove(leftPlayer);
-            }
-        }
+        timer = newTimer();
+        List<Player> players = this.players.snapshot();
+        players.forEach(Player::reset);
+        List<List<Player>> playerGroups = partitionPlayers(players, tournamentProperties.getPlayersPerTeam());
+        log.debug("numberOfTeams " + playerGroups.size());
+        return playerGroups;
+    }
 
-        timer.schedule(new TimerTask() {
+    // call inside synchronized(tournamentLock)
+    private void scheduleCharacterSelection() {
+        timer.schedule(new ClockTask() {
             @Override
             public void run() {
                 synchronized (tournamentLock) {
@@ -302,7 +611,7 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                     }
                 }
             }
-        }, 0, 2000);
+        }, 0, tournamentProperties.getCharacterSelectionInterval());
 
     }
 
@@ -311,17 +620,22 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
         log.info("startGames");
         gameStarted = true;
         for (Game game : activeGames.values()) {
-            game.start();
+            startGame(game);
             game.updatePuzzleForTeam(false);
         }
+        scheduleScoring();
+    }
 
-        timer.schedule(new TimerTask() {
+    // call from synchronized(tournamentLock)
+    private void scheduleScoring() {
+        timer.schedule(new ClockTask() {
             @Override
             public void run() {
                 if (!tournamentStarted || !gameStarted) {
                     this.cancel();
                     return;
                 }
+                playerRankings.removeIf(player -> player.getTeam() == null);
                 playerRankings.sort((player1, player2) -> {
                     int player1Score = player1.getRightMoves() - player1.getWrongMoves();
                     int player2Score = player2.getRightMoves() - player2.getWrongMoves();
@@ -339,23 +653,26 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                         log.error("Unable to update the scores for players", ex);
                     }
                 }
+                int leaderboardSize = tournamentProperties.getLeaderboardSize();
+                if (leaderboardSize > 0) {
+                    leaderboard.update(playerRankings);
+                    LeaderboardMessage leaderboardMessage = new LeaderboardMessage();
+                    leaderboardMessage.setTotalPlayers(leaderboard.size());
+                    leaderboardMessage.setTotalTeams(teamRankings.size());
+                    leaderboardMessage.setPlayers(leaderboard.getTop(leaderboardSize));
+                    List<Team> rankedTeams = teamRankings.getTeams();
+                    leaderboardMessage.setTeams(toTeamScores(rankedTeams.subList(0, Math.min(leaderboardSize, rankedTeams.size()))));
+                    try {
+                        publisher.publish("score/players", leaderboardMessage);
+                    } catch (PublisherException ex) {
+                        log.error("Unable to send leaderboard to score/players", ex);
+                    }
+                    return;
+                }
+
                 PlayerListMessage playersMessage = new PlayerListMessage();
                 playersMessage.setPlayers(playerRankings);
-
-                List<Map<String, String>> teams =
-                        teamRankings.stream().map(team -> {
-                            Map<String, String>teamMessage = new HashMap<>();
-                            teamMessage.put("id", team.getId());
-                            teamMessage.put("name", team.getName());
-                            teamMessage.put("completed", new Integer(team.getCompletedGames()).toString());
-
-                            if (team.getGame() != null) {
-                                teamMessage.put("game", team.getGame().getPuzzleName());
-                            }
-                            return teamMessage;
-
-                        }).collect(Collectors.toList());
-                playersMessage.setTeams(teams);
+                playersMessage.setTeams(toTeamScores(teamRankings.getTeams()));
                 try {
                     publisher.publish("score/players", playersMessage);
                 } catch (PublisherException ex) {
@@ -366,41 +683,72 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
             }
         }, 0, 5000);
 
-        timer.schedule(new TimerTask() {
+        timer.schedule(new ClockTask() {
             @Override
             public void run() {
                 if (!tournamentStarted || !gameStarted) {
                     this.cancel();
                     return;
                 }
-                synchronized (teamRankings) {
-                    teamRankings.sort((team1, team2) -> {
-                        int team1Winning = team2.getCompletedGames() - team1.getCompletedGames();
-                        if (team1Winning == 0) {
-                            team1Winning = team2.getGame().getCorrectPieces() - team1.getGame().getCorrectPieces();
-                        }
-                        return team1Winning;
-                    });
-                    for (int i = 0; i < teamRankings.size(); ++i) {
-                        Team team = teamRankings.get(i);
-                        TeamRankMessage teamRankMessage = new TeamRankMessage();
-                        teamRankMessage.setRank(i + 1);
-                        teamRankMessage.setTeamId(team.getId());
-                        teamRankMessage.setTotalTeams(teamRankings.size());
-                        try {
-                            publisher.publish("score/" + team.getId(), teamRankMessage);
-                        } catch (PublisherException ex) {
-                            log.error("Unable to update the scores", ex);
-                        }
-                    }
-                }
+                // only teams whose rank moved since the last run get a new rank message
+                int totalTeams = teamRankings.size();
+                teamRankings.drainChangedRanks().forEach((team, rank) -> publishTeamRank(team, rank, totalTeams));
             }
         }, 0 , 3000);
     }
 
-    private List<Player> addTeam(String teamName, Collection<Player> players) {
-        Team team = new Team();
-        List<Player> leftPlayers = null;
+    private List<Map<String, String>> toTeamScores(List<Team> rankedTeams) {
+        return rankedTeams.stream().map(team -> {
+            Map<String, String>teamMessage = new HashMap<>();
+            teamMessage.put("id", team.getId());
+            teamMessage.put("name", team.getName());
+            teamMessage.put("completed", new Integer(team.getCompletedGames()).toString());
+
+            if (team.getGame() != null) {
+                teamMessage.put("game", team.getGame().getPuzzleName());
+            }
+            return teamMessage;
+
+        }).collect(Collectors.toList());
+    }
+
+    private void handleLeaderboardQuery(LeaderboardQueryMessage leaderboardQueryMessage) {
+        LeaderboardMessage leaderboardMessage = new LeaderboardMessage();
+        leaderboardMessage.setTotalPlayers(leaderboard.size());
+        leaderboardMessage.setTotalTeams(teamRankings.size());
+        String topic;
+        if (leaderboardQueryMessage.getTeamId() != null) {
+            leaderboardMessage.setPlayers(leaderboard.getTeam(leaderboardQueryMessage.getTeamId()));
+            topic = "score/players/team/" + leaderboardQueryMessage.getTeamId();
+        } else {
+            int page = leaderboardQueryMessage.getPage();
+            leaderboardMessage.setPage(page);
+            leaderboardMessage.setPlayers(leaderboard.getPage(page, tournamentProperties.getLeaderboardPageSize()));
+            topic = "score/players/page/" + page;
+        }
+        try {
+            publisher.publish(topic, leaderboardMessage);
+        } catch (PublisherException ex) {
+            log.error("Unable to send leaderboard to " + topic, ex);
+        }
+    }
+
+    private void publishTeamRank(Team team, int rank, int totalTeams) {
+        TeamRankMessage teamRankMessage = new TeamRankMessage();
+        teamRankMessage.setRank(rank);
+        teamRankMessage.setTeamId(team.getId());
+        teamRankMessage.setTotalTeams(totalTeams);
+        try {
+            publisher.publish("score/" + team.getId(), teamRankMessage);
+        } catch (PublisherException ex) {
+            log.error("Unable to update the scores", ex);
+        }
+    }
+
+    // runs on the team setup pool, only touches the new team
+    private TeamSetup setupTeam(String teamName, Collection<Player> players, Timer teamTimer) {
+        Team team = new Team(clientHandles);
+        List<Player> leftPlayers = new ArrayList<>();
 
         if (teamName == null) {
             team.setName(team.getId());
@@ -408,22 +756,12 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
             team.setName(teamName);
         }
         team.setPuzzleNames(new ArrayList<String>(PUZZLE_NAMES));
-        completedGames.put(team.getId(), new ArrayList<>());
-        Game game = new Game(team, subscriber, publisher, timer, tournamentProperties, this);
-        game.setPuzzleName(getPuzzleName(team));
-        team.setGame(game);
         for (Player player : players) {
             team.addPlayer(player);
             player.setTeam(team);
         }
 
-        teams.put(team.getId(), team);
-        teamRankings.add(team);
-
-        activeGames.put(team.getId(), game);
-
         for (Player player : players) {
-            playerRankings.add(player);
             try {
                 subscriber.subscribeForClient("team/" + player.getTeam().getId(), player.getClientName());
                 subscriber.subscribeForClient("score/" + player.getTeam().getId(), player.getClientName());
@@ -434,11 +772,7 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                     if (((JCSMPErrorResponseException) ex.getCause()).getResponseCode() == 404) {
                         log.info("Player has lost connection, remove player from team and players list");
                         playerNotFound = true;
-                        playerRankings.remove(player);
                         team.removePlayer(player);
-                        if (leftPlayers == null) {
-                            leftPlayers = new ArrayList<>();
-                        }
                         leftPlayers.add(player);
                     }
                 }
@@ -448,31 +782,104 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
             }
         }
 
-        return leftPlayers;
+        // created once the players that left are gone, a remote game gets the team as it is now
+        Game game = createGame(team, getPuzzleName(team), teamTimer);
+        game.updateCharactersForTeam(false);
+        return new TeamSetup(team, game, leftPlayers);
+    }
+
+    // in partitioned mode the game of a team owned by another node is played there
+    private Game createGame(Team team, String puzzleName, Timer gameTimer) {
+        Game game;
+        RemoteGame remoteGame = null;
+        if (!isHostedLocally(team)) {
+            game = remoteGame = clusterCoordinator.createRemoteGame(team);
+        } else {
+            if (clusterCoordinator != null) {
+                clusterCoordinator.hostLocally(team);
+            }
+            game = new Game(team, subscriber, publisher, gameTimer, tournamentProperties, this, clock);
+        }
+        game.setPuzzleName(puzzleName);
+        game.setNextPuzzleName(team.peekNextPuzzleName());
+        if (puzzleTiler != null) {
+            game.setTileSet(puzzleTiler.getTileSet(puzzleName));
+            game.setNextTileSet(puzzleTiler.getTileSet(game.getNextPuzzleName()));
+        }
+        if (remoteGame != null) {
+            clusterCoordinator.host(remoteGame);
+        }
+        game.addGameProgressListener(this);
+        team.setGame(game);
+        return game;
+    }
+
+    private boolean isHostedLocally(Team team) {
+        return clusterCoordinator == null || clusterCoordinator.isLocal(team);
     }
 
+    // a local game takes the board prepared for its team and the next one is shuffled while it runs
+    private void startGame(Game game) {
+        Team team = game.getTeam();
+        if (!isHostedLocally(team)) {
+            game.start();
+            return;
+        }
+        game.start(boardPool.take(team.getId()));
+        boardPool.prepare(team.getId());
+    }
+
+    // call inside synchronized(tournamentLock)
     private void updateTournamentMessage() {
+        rosterReplicationPending = true;
+        if (tournamentProperties.isRosterDeltas()) {
+            RosterDeltaMessage rosterDeltaMessage = rosterTracker.nextDelta(players.getPlayers(), tournamentStarted);
+            if (rosterDeltaMessage != null) {
+                try {
+                    log.info("Publish roster delta version " + rosterDeltaMessage.getVersion() + " with " +
+                            rosterDeltaMessage.getChanges().size() + " changes, tournamentStarted " + tournamentStarted);
+                    publisher.publish("tournament/roster", rosterDeltaMessage);
+                } catch (PublisherException ex) {
+                    log.error("Unable to publish the roster delta message", ex);
+                }
+            }
+            return;
+        }
+        try {
+            log.info("Publish tournament update message, tournamentStarted " + tournamentStarted);
+            publisher.publish("tournament/update", buildTournamentSnapshot());
+        } catch (PublisherException ex) {
+            log.error("Unable to update the tournament update message", ex);
+        }
+    }
+
+    private Object handleRosterSnapshot(TournamentMessage tournamentMessage) {
+        synchronized (tournamentLock) {
+            if (tournamentProperties.isRosterDeltas()) {
+                // flush pending changes so the snapshot matches the version it carries
+                updateTournamentMessage();
+            }
+            return buildTournamentSnapshot();
+        }
+    }
+
+    // call inside synchronized(tournamentLock)
+    private UpdateTournamentMessage buildTournamentSnapshot() {
         List<Player> waitingPlayers = new ArrayList<>();
-        List<Team> teams = new ArrayList<>();
-        this.players.forEach(player -> {
+        Set<Team> teams = new LinkedHashSet<>();
+        this.players.getPlayers().forEach(player -> {
             if (player.getTeam() == null) {
                 waitingPlayers.add(player);
             } else {
-                if (!teams.contains(player.getTeam())) {
-                    teams.add(player.getTeam());
-                }
+                teams.add(player.getTeam());
             }
         });
         UpdateTournamentMessage updateTournamentMessage = new UpdateTournamentMessage();
         updateTournamentMessage.setStarted(tournamentStarted);
         updateTournamentMessage.setWaitingPlayers(waitingPlayers);
-        updateTournamentMessage.setTeams(teams);
-        try {
-            log.info("Publish tournament update message, tournamentStarted " + tournamentStarted);
-            publisher.publish("tournament/update", updateTournamentMessage);
-        } catch (PublisherException ex) {
-            log.error("Unable to update the tournament update message", ex);
-        }
+        updateTournamentMessage.setTeams(new ArrayList<>(teams));
+        updateTournamentMessage.setVersion(rosterTracker.getVersion());
+        return updateTournamentMessage;
     }
 
     @Override
@@ -483,64 +890,250 @@ public class Tournament implements GameOverListener, BadGuyActionHandler {
                 log.info("Game won, update completed game for " + teamId + ", " + game.getTeam().getName());
                 Team team = teams.get(teamId);
                 activeGames.remove(teamId);
-                completedGames.get(teamId).add(game);
+                completedGames.get(teamId).add(game.summarize());
                 team.addCompletedGame();
 
-                Game newGame = new Game(team, subscriber, publisher, timer, tournamentProperties, this);
-                newGame.setPuzzleName(getPuzzleName(team));
-                team.setGame(newGame);
+                if (isHostedLocally(team)) {
+                    boardPool.recycle(game.releaseBoard());
+                }
+
+                Game newGame = createGame(team, getPuzzleName(team), timer);
+                teamRankings.update(team, team.getCompletedGames(), 0);
                 timer.schedule(new TimerTask() {
                     @Override
                     public void run() {
                         if (tournamentStarted && gameStarted) {
+                            changedTeamIds.add(teamId);
                             activeGames.put(teamId, newGame);
                             newGame.addGameOverListener(Tournament.this);
-                            newGame.start();
+                            startGame(newGame);
                             newGame.updatePuzzleForTeam(false);
                         }
                     }
-                }, 3000);
+                }, tournamentProperties.getNextGameDelay());
             }
         }
     }
 
     @Override
-    public void troubleFlipper(Player bowserPlayer) {
-        synchronized (teamRankings) {
-            if (tournamentStarted && gameStarted) {
-                int rank = teamRankings.indexOf(bowserPlayer.getTeam());
-                if (rank == 0) {
-                    log.info("Bowser from team " + bowserPlayer.getTeam().getName() + " used trouble flipper, but they are in first place");
-                } else {
-                    int indexOfTeamToAttack = rank - 1;
-                    Team teamToAttack = teamRankings.get(indexOfTeamToAttack);
-                    teamToAttack.getGame().troubleFlipper(bowserPlayer);
-                    Game attackerGame = bowserPlayer.getTeam().getGame();
-                    if (attackerGame != null) {
-                        attackerGame.updatePuzzleForTeam(false);
+    public void puzzleUpdated(Game game) {
+        if (tournamentProperties.isReplication()) {
+            changedTeamIds.add(game.getTeam().getId());
+        }
+    }
+
+    @Override
+    public void charactersChanged(Game game) {
+        puzzleUpdated(game);
+    }
+
+    private void publishReplication() {
+        ReplicationMessage replicationMessage;
+        synchronized (tournamentLock) {
+            replicationMessage = buildReplicationMessage();
+        }
+        try {
+            publisher.publish("replication", replicationMessage);
+        } catch (PublisherException ex) {
+            log.error("Unable to publish replication message " + replicationMessage.getSequence(), ex);
+        }
+    }
+
+    // call inside synchronized(tournamentLock)
+    private ReplicationMessage buildReplicationMessage() {
+        ReplicationMessage replicationMessage = new ReplicationMessage();
+        replicationMessage.setEpoch(epoch);
+        replicationMessage.setSequence(++replicationSequence);
+        boolean full = fullReplicationPending || replicationSequence % FULL_REPLICATION_INTERVAL == 1;
+        replicationMessage.setFull(full);
+        replicationMessage.setTournamentStarted(tournamentStarted);
+        replicationMessage.setGameStarted(gameStarted);
+        if (full || rosterReplicationPending) {
+            replicationMessage.setPlayers(ClusterCoordinator.toPlayerStates(players.getPlayers()));
+            rosterReplicationPending = false;
+        }
+        Collection<String> teamIds = full ? new ArrayList<>(teams.keySet()) : new ArrayList<>(changedTeamIds);
+        changedTeamIds.removeAll(teamIds);
+        fullReplicationPending = false;
+        List<TeamState> teamStates = new ArrayList<>(teamIds.size());
+        for (String teamId : teamIds) {
+            Team team = teams.get(teamId);
+            if (team == null || team.getGame() == null) {
+                continue;
+            }
+            Game game = team.getGame();
+            TeamState teamState = new TeamState();
+            teamState.setTeamId(team.getId());
+            teamState.setTeamName(team.getName());
+            teamState.setCompletedGames(team.getCompletedGames());
+            teamState.setPuzzleName(game.getPuzzleName());
+            teamState.setPlayers(ClusterCoordinator.toPlayerStates(team.getPlayers()));
+            teamState.setPuzzle(game.getPuzzle());
+            teamState.setGameActive(activeGames.get(teamId) == game);
+            teamStates.add(teamState);
+        }
+        replicationMessage.setTeams(teamStates);
+        return replicationMessage;
+    }
+
+    /**
+     * Rebuilds the room from the state a standby replicated and restarts its games and timers. Boards are restored as
+     * they were replicated, character super powers start over.
+     */
+    public void restore(StandbyReplica standbyReplica) {
+        synchronized (tournamentLock) {
+            epoch = standbyReplica.getEpoch() + 1;
+            tournamentStarted = standbyReplica.isTournamentStarted();
+            gameStarted = standbyReplica.isGameStarted();
+            for (PlayerState playerState : standbyReplica.getPlayers()) {
+                restorePlayer(playerState);
+            }
+            List<Team> restoredTeams = new ArrayList<>();
+            for (TeamState teamState : standbyReplica.getTeams()) {
+                Team team = new Team(teamState.getTeamId(), clientHandles);
+                team.setName(teamState.getTeamName());
+                team.setCompletedGames(teamState.getCompletedGames());
+                team.setPuzzleNames(new ArrayList<String>(PUZZLE_NAMES));
+                for (PlayerState playerState : teamState.getPlayers()) {
+                    Player player = restorePlayer(playerState);
+                    team.addPlayer(player);
+                    player.setTeam(team);
+                    if (playerState.getCharacterType() != null) {
+                        team.chooseCharacter(playerState.getCharacterType(), player);
+                    }
+                }
+                Game game = createGame(team, teamState.getPuzzleName(), timer);
+                teams.put(team.getId(), team);
+                completedGames.put(team.getId(), new ArrayList<>());
+                playerRankings.addAll(team.getPlayers());
+                restoredTeams.add(team);
+                if (tournamentStarted) {
+                    activeGames.put(team.getId(), game);
+                    game.addGameOverListener(this);
+                    if (gameStarted) {
+                        // a team that was between two games starts its next one right away
+                        if (teamState.isGameActive() && teamState.getPuzzle() != null && !teamState.getPuzzle().isEmpty()) {
+                            game.resume(teamState.getPuzzle());
+                        } else {
+                            startGame(game);
+                        }
                     }
                 }
             }
+            teamRankings.addAll(restoredTeams);
+            if (tournamentStarted && gameStarted) {
+                activeGames.values().forEach(game -> game.updatePuzzleForTeam(false));
+                scheduleScoring();
+            } else if (tournamentStarted) {
+                activeGames.values().forEach(game -> game.updateCharactersForTeam(false));
+                scheduleCharacterSelection();
+            }
+            log.info("Restored " + players.size() + " players and " + teams.size() + " teams from replication message " +
+                    standbyReplica.getLastSequence());
+            updateTournamentMessage();
+        }
+    }
+
+    // call inside synchronized(tournamentLock)
+    private Player restorePlayer(PlayerState playerState) {
+        Player player = players.get(playerState.getClientName());
+        if (player == null) {
+            player = new Player();
+            player.setClientName(playerState.getClientName());
+            player.setGamerTag(playerState.getGamerTag());
+            players.putIfAbsent(player);
+        }
+        player.setRightMoves(playerState.getRightMoves());
+        player.setWrongMoves(playerState.getWrongMoves());
+        return player;
+    }
+
+    @Override
+    public void correctPiecesChanged(Game game) {
+        Team team = game.getTeam();
+        // ignore late updates from a game the team has already finished
+        if (team.getGame() == game) {
+            teamRankings.update(team, team.getCompletedGames(), game.getCorrectPieces());
+        }
+    }
+
+    @Override
+    public void troubleFlipper(Player bowserPlayer) {
+        if (tournamentStarted && gameStarted) {
+            deliverAttack(bowserPlayer, AttackResult.POWER_TROUBLE_FLIPPER);
         }
     }
 
     @Override
     public void greenShell(Player goombaPlayer) {
-        synchronized (teamRankings) {
-            if (tournamentStarted && gameStarted) {
-                int rank = teamRankings.indexOf(goombaPlayer.getTeam());
-                if (rank == 0) {
-                    log.info("Goomba from team " + goombaPlayer.getTeam().getName() + " used a green shell, but they are in first place");
-                } else {
-                    int indexOfTeamToAttack = rank - 1;
-                    Team teamToAttack = teamRankings.get(indexOfTeamToAttack);
-                    teamToAttack.getGame().greenShell();
-                    Game attackerGame = goombaPlayer.getTeam().getGame();
-                    if (attackerGame != null) {
-                        attackerGame.updatePuzzleForTeam(false);
-                    }
-                }
+        if (tournamentStarted && gameStarted) {
+            deliverAttack(goombaPlayer, AttackResult.POWER_GREEN_SHELL);
+        }
+    }
+
+    /**
+     * Hands the attack to the lane of the team ahead and returns. Once the attack ran, the attacking team gets its
+     * board together with the result on its own lane. The result of a game hosted by another node comes back once that
+     * node ran the attack.
+     */
+    private void deliverAttack(Player attacker, String power) {
+        Team attackerTeam = attacker.getTeam();
+        Team teamToAttack = teamRankings.getTeamAhead(attackerTeam);
+        AttackResult attackResult = new AttackResult();
+        attackResult.setPower(power);
+        attackResult.setAttackerClientName(attacker.getClientName());
+        if (teamToAttack == null) {
+            log.info(attacker.getGamerTag() + " from team " + attackerTeam.getName() + " used " + power + ", but they are in first place");
+            runOnTeamLane(attackerTeam, () -> completeAttack(attackerTeam, attackResult));
+            return;
+        }
+        attackResult.setTargetTeamId(teamToAttack.getId());
+        attackResult.setTargetTeamName(teamToAttack.getName());
+        runOnTeamLane(teamToAttack, () -> {
+            Game gameToAttack = teamToAttack.getGame();
+            if (gameToAttack == null) {
+                runOnTeamLane(attackerTeam, () -> completeAttack(attackerTeam, attackResult));
+                return;
             }
+            gameToAttack.attack(attacker, attackResult,
+                    result -> runOnTeamLane(attackerTeam, () -> completeAttack(attackerTeam, result)));
+        });
+    }
+
+    private void completeAttack(Team attackerTeam, AttackResult attackResult) {
+        Game attackerGame = attackerTeam.getGame();
+        if (attackerGame != null) {
+            attackerGame.attackCompleted(attackResult);
+        }
+    }
+
+    private void runOnTeamLane(Team team, Runnable task) {
+        if (closed) {
+            log.debug("Room " + roomId + " is closed, dropping attack on team " + team.getName());
+            return;
+        }
+        try {
+            teamLanes.computeIfAbsent(team.getId(), id -> new SerialExecutor(lanePool)).execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Unable to deliver attack to team " + team.getName(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Room " + roomId + " is closed, dropping attack on team " + team.getName());
+        }
+    }
+
+    private static class TeamSetup {
+        private final Team team;
+        private final Game game;
+        private final List<Player> leftPlayers;
+
+        private TeamSetup(Team team, Game game, List<Player> leftPlayers) {
+            this.team = team;
+            this.game = game;
+            this.leftPlayers = leftPlayers;
         }
     }
 }
@@ -0,0 +1,177 @@
+package com.solace.troubleflipper;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * A clock for simulations and benchmarks that only moves when it is advanced.
+ *
+ * Its timers run nothing on their own: {@link #advance(long)} runs the tasks that fall due on the calling thread, in
+ * the order of their times and then of their scheduling, with the clock set to the time of each task. Every generator
+ * from {@link #newRandom()} is seeded from the seed of the clock. A tournament on this clock therefore plays its
+ * timeouts, polls and delays as fast as the handlers run, the same way on every run, as long as its messages are
+ * handled on the advancing thread as well.
+ */
+public class VirtualClock extends GameClock {
+
+    private final Random seeds;
+    private final PriorityQueue<Scheduled> queue = new PriorityQueue<>(
+            Comparator.comparingLong((Scheduled scheduled) -> scheduled.time).thenComparingLong(scheduled -> scheduled.order));
+    private long now;
+    private long order = 0;
+
+    public VirtualClock(long startMillis, long seed) {
+        this.now = startMillis;
+        this.seeds = new Random(seed);
+    }
+
+    @Override
+    public synchronized long millis() {
+        return now;
+    }
+
+    @Override
+    public synchronized Random newRandom() {
+        return new Random(seeds.nextLong());
+    }
+
+    @Override
+    public Timer newTimer(String name) {
+        return new VirtualTimer(name);
+    }
+
+    /**
+     * Moves the clock forward, running the tasks that fall due on the way, and returns how many ran.
+     */
+    public int advance(long millis) {
+        long until;
+        synchronized (this) {
+            until = now + millis;
+        }
+        int ran = 0;
+        while (true) {
+            Scheduled next;
+            synchronized (this) {
+                next = queue.poll();
+                while (next != null && next.isCancelled()) {
+                    next = queue.poll();
+                }
+                if (next == null || next.time > until) {
+                    if (next != null) {
+                        queue.add(next);
+                    }
+                    now = Math.max(now, until);
+                    return ran;
+                }
+                now = Math.max(now, next.time);
+                if (next.period > 0) {
+                    next.time += next.period;
+                    next.order = order++;
+                    queue.add(next);
+                }
+            }
+            next.task.run();
+            ran++;
+        }
+    }
+
+    // tasks waiting to run, repeating ones count once
+    public synchronized int getPending() {
+        int pending = 0;
+        for (Scheduled scheduled : queue) {
+            if (!scheduled.isCancelled()) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    private synchronized void schedule(VirtualTimer timer, TimerTask task, long delay, long period) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Negative delay");
+        }
+        if (timer.cancelled) {
+            throw new IllegalStateException("Timer already cancelled");
+        }
+        queue.add(new Scheduled(timer, task, now + delay, period, order++));
+    }
+
+    private static class Scheduled {
+        private final VirtualTimer timer;
+        private final TimerTask task;
+        private final long period;
+        private long time;
+        private long order;
+
+        private Scheduled(VirtualTimer timer, TimerTask task, long time, long period, long order) {
+            this.timer = timer;
+            this.task = task;
+            this.time = time;
+            this.period = period;
+            this.order = order;
+        }
+
+        private boolean isCancelled() {
+            return timer.cancelled || task instanceof ClockTask && ((ClockTask) task).isCancelled();
+        }
+    }
+
+    private class VirtualTimer extends Timer {
+
+        private volatile boolean cancelled = false;
+
+        private VirtualTimer(String name) {
+            super(name, true);
+            // the thread of the timer is never used
+            super.cancel();
+        }
+
+        @Override
+        public void schedule(TimerTask task, long delay) {
+            VirtualClock.this.schedule(this, task, delay, 0);
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date time) {
+            schedule(task, Math.max(0, time.getTime() - millis()));
+        }
+
+        @Override
+        public void schedule(TimerTask task, long delay, long period) {
+            if (period <= 0) {
+                throw new IllegalArgumentException("Non-positive period");
+            }
+            VirtualClock.this.schedule(this, task, delay, period);
+        }
+
+        @Override
+        public void schedule(TimerTask task, Date firstTime, long period) {
+            schedule(task, Math.max(0, firstTime.getTime() - millis()), period);
+        }
+
+        // a virtual clock never falls behind, so fixed rate and fixed delay are the same
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, long delay, long period) {
+            schedule(task, delay, period);
+        }
+
+        @Override
+        public void scheduleAtFixedRate(TimerTask task, Date firstTime, long period) {
+            schedule(task, firstTime, period);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int purge() {
+            return 0;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package com.solace.troubleflipper.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.LastValueCache;
 import com.solace.troubleflipper.Publisher;
+import com.solace.troubleflipper.RateLimiter;
 import com.solace.troubleflipper.Subscriber;
+import com.solace.troubleflipper.model.ClientHandles;
 import com.solace.troubleflipper.properties.SolaceCloudProperties;
 import com.solace.troubleflipper.properties.TournamentProperties;
 import com.solacesystems.jcsmp.*;
@@ -12,6 +15,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 
 @Configuration
@@ -30,14 +35,47 @@ public class JCSMPConfiguration {
     }
 
     @Bean
-    public JCSMPSession getJCSMPConnector(SolaceCloudProperties solaceCloudProperties) throws JCSMPException {
+    public JCSMPSession getJCSMPConnector(SolaceCloudProperties solaceCloudProperties,
+                                          TournamentProperties tournamentProperties) throws JCSMPException {
+        JCSMPSession session = createSession(solaceCloudProperties, getClientName(tournamentProperties, 0));
+
+        // needed for dispatch
+
+        // the topics of the rooms are subscribed by the room manager, they depend on the role of this node
+        final Topic roomsTopic = JCSMPFactory.onlyInstance().createTopic("rooms");
+        session.addSubscription(roomsTopic);
+
+        return session;
+    }
+
+    /**
+     * The client name of a session of this server. The nodes of a cluster and the primary and standby of a room run as
+     * separate clients of one VPN, and the broker disconnects the older session of a name that connects twice.
+     */
+    public static String getClientName(TournamentProperties tournamentProperties, int session) {
+        StringBuilder clientName = new StringBuilder("trouble-flipper");
+        if (!tournamentProperties.getNodeId().isEmpty()) {
+            clientName.append('-').append(tournamentProperties.getNodeId());
+        }
+        if (tournamentProperties.isStandby()) {
+            clientName.append("-standby");
+        } else if (tournamentProperties.isReplication()) {
+            clientName.append("-primary");
+        }
+        if (session > 0) {
+            clientName.append("-producer-").append(session);
+        }
+        return clientName.toString();
+    }
+
+    private JCSMPSession createSession(SolaceCloudProperties solaceCloudProperties, String clientName) throws JCSMPException {
         JCSMPProperties props = new JCSMPProperties();
         props.setProperty(JCSMPProperties.VPN_NAME, solaceCloudProperties.getVpn());
         props.setProperty(JCSMPProperties.USERNAME, solaceCloudProperties.getUsername());
         props.setProperty(JCSMPProperties.PASSWORD, solaceCloudProperties.getPassword());
         props.setProperty(JCSMPProperties.HOST, solaceCloudProperties.getUrl());
         props.setProperty(JCSMPProperties.REAPPLY_SUBSCRIPTIONS, true);
-        props.setProperty(JCSMPProperties.CLIENT_NAME, "trouble-flipper");
+        props.setProperty(JCSMPProperties.CLIENT_NAME, clientName);
         props.setProperty(JCSMPProperties.APPLICATION_DESCRIPTION, "The Java application running the trouble flipper server");
 
         // reconnect behaviour
@@ -51,31 +89,44 @@ public class JCSMPConfiguration {
 
         // connect (connect is blocking in JCSMP)
         session.connect();
+        return session;
+    }
 
-        // needed for dispatch
-
-        TournamentProperties tournamentProperties = new TournamentProperties();
-
-        final Topic topic = JCSMPFactory.onlyInstance().createTopic("users");
-        session.addSubscription(topic);
-
-        final Topic tournamentsTopic = JCSMPFactory.onlyInstance().createTopic("tournaments");
-        session.addSubscription(tournamentsTopic);
-
-        final Topic gamesTopic = JCSMPFactory.onlyInstance().createTopic("games/>");
-        session.addSubscription(gamesTopic);
+    @Bean
+    public LastValueCache getLastValueCache() {
+        return new LastValueCache();
+    }
 
-        return session;
+    // the handles of the client names of all the rooms of this server
+    @Bean
+    public ClientHandles getClientHandles() {
+        return new ClientHandles();
     }
 
     @Bean
-    public Subscriber getSubscriber(JCSMPSession session, ObjectMapper objectMapper) throws JCSMPException {
-        return new Subscriber(session, objectMapper);
+    public Subscriber getSubscriber(JCSMPSession session, ObjectMapper objectMapper, Publisher publisher,
+                                    TournamentProperties tournamentProperties,
+                                    ClientHandles clientHandles) throws JCSMPException {
+        Subscriber subscriber = new Subscriber(session, objectMapper, publisher);
+        subscriber.setRateLimiter(new RateLimiter(tournamentProperties, clientHandles));
+        return subscriber;
     }
 
     @Bean
-    public Publisher getPublisher(JCSMPSession session, ObjectMapper objectMapper) throws JCSMPException {
-        return new Publisher(session, objectMapper);
+    public Publisher getPublisher(JCSMPSession session, ObjectMapper objectMapper, LastValueCache lastValueCache,
+                                  SolaceCloudProperties solaceCloudProperties,
+                                  TournamentProperties tournamentProperties) throws JCSMPException {
+        // the main session publishes too, the others only publish
+        List<JCSMPSession> sessions = new ArrayList<>();
+        sessions.add(session);
+        for (int i = 1; i < tournamentProperties.getProducerSessions(); i++) {
+            sessions.add(createSession(solaceCloudProperties, getClientName(tournamentProperties, i)));
+        }
+        Publisher publisher = new Publisher(sessions, objectMapper, lastValueCache);
+        if (tournamentProperties.getOutboundQueueBytes() > 0) {
+            publisher.startOutboundQueue(tournamentProperties.getOutboundQueueBytes(), tournamentProperties.getPublishTimeout());
+        }
+        return publisher;
     }
 
     private String getMessageStr(BytesXMLMessage message) throws IOException {
@@ -5,6 +5,8 @@ public class AddUserMessage {
     private String username;
     private String clientId;
     private Boolean gameMaster;
+    // the sequence of the last board a reconnecting player saw, null for a player without a board
+    private Long lastSequence;
 
     public String getUsername() {
         return username;
@@ -29,4 +31,12 @@ public class AddUserMessage {
     public void setGameMaster(Boolean gameMaster) {
         this.gameMaster = gameMaster;
     }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
 }
@@ -0,0 +1,55 @@
+package com.solace.troubleflipper.messages;
+
+public class AttackResult {
+
+    public static final String POWER_TROUBLE_FLIPPER = "troubleFlipper";
+    public static final String POWER_GREEN_SHELL = "greenShell";
+
+    private String power;
+    private String attackerClientName;
+    // null when the attacking team is in first place
+    private String targetTeamId;
+    private String targetTeamName;
+    // false when there was no team to attack or the attacked team was guarded
+    private boolean hit;
+
+    public String getPower() {
+        return power;
+    }
+
+    public void setPower(String power) {
+        this.power = power;
+    }
+
+    public String getAttackerClientName() {
+        return attackerClientName;
+    }
+
+    public void setAttackerClientName(String attackerClientName) {
+        this.attackerClientName = attackerClientName;
+    }
+
+    public String getTargetTeamId() {
+        return targetTeamId;
+    }
+
+    public void setTargetTeamId(String targetTeamId) {
+        this.targetTeamId = targetTeamId;
+    }
+
+    public String getTargetTeamName() {
+        return targetTeamName;
+    }
+
+    public void setTargetTeamName(String targetTeamName) {
+        this.targetTeamName = targetTeamName;
+    }
+
+    public boolean isHit() {
+        return hit;
+    }
+
+    public void setHit(boolean hit) {
+        this.hit = hit;
+    }
+}
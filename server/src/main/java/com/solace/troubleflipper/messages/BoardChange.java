@@ -0,0 +1,48 @@
+package com.solace.troubleflipper.messages;
+
+import com.solace.troubleflipper.model.PuzzlePiece;
+
+import java.util.List;
+
+/**
+ * The pieces that changed in one update of a board, pieces.get(i) is now at positions[i].
+ */
+public class BoardChange {
+
+    private long sequence;
+    private int[] positions;
+    private List<PuzzlePiece> pieces;
+
+    public BoardChange() {
+    }
+
+    public BoardChange(long sequence, int[] positions, List<PuzzlePiece> pieces) {
+        this.sequence = sequence;
+        this.positions = positions;
+        this.pieces = pieces;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public int[] getPositions() {
+        return positions;
+    }
+
+    public void setPositions(int[] positions) {
+        this.positions = positions;
+    }
+
+    public List<PuzzlePiece> getPieces() {
+        return pieces;
+    }
+
+    public void setPieces(List<PuzzlePiece> pieces) {
+        this.pieces = pieces;
+    }
+}
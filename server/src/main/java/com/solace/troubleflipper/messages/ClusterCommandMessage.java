@@ -0,0 +1,169 @@
+package com.solace.troubleflipper.messages;
+
+import java.util.List;
+
+/**
+ * Sent by the coordinator on cluster/{nodeId} to the node that hosts the game of a team.
+ */
+public class ClusterCommandMessage {
+
+    public static final String ACTION_HOST = "host";
+    public static final String ACTION_START = "start";
+    public static final String ACTION_STOP = "stop";
+    public static final String ACTION_UPDATE_PUZZLE = "updatePuzzle";
+    public static final String ACTION_UPDATE_CHARACTERS = "updateCharacters";
+    public static final String ACTION_TROUBLE_FLIPPER = "troubleFlipper";
+    public static final String ACTION_GREEN_SHELL = "greenShell";
+    public static final String ACTION_ATTACK_COMPLETED = "attackCompleted";
+    public static final String ACTION_CATCH_UP = "catchUp";
+    public static final String ACTION_RESET = "reset";
+
+    private String action;
+    private String teamId;
+    private String teamName;
+    private int completedGames;
+    private String puzzleName;
+    private String nextPuzzleName;
+    private String tileSet;
+    private String nextTileSet;
+    private List<PlayerState> players;
+    // tournament stopped for updatePuzzle, force assign for updateCharacters
+    private boolean flag;
+    private PlayerState attacker;
+    private String attackerTeamName;
+    // the result of the attack for attackCompleted, the attack so far for troubleFlipper and greenShell
+    private AttackResult attackResult;
+    // sent back with the result of troubleFlipper and greenShell
+    private long attackId;
+    // the reconnecting player for catchUp
+    private String clientName;
+    private Long lastSequence;
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public int getCompletedGames() {
+        return completedGames;
+    }
+
+    public void setCompletedGames(int completedGames) {
+        this.completedGames = completedGames;
+    }
+
+    public String getPuzzleName() {
+        return puzzleName;
+    }
+
+    public void setPuzzleName(String puzzleName) {
+        this.puzzleName = puzzleName;
+    }
+
+    public String getNextPuzzleName() {
+        return nextPuzzleName;
+    }
+
+    public void setNextPuzzleName(String nextPuzzleName) {
+        this.nextPuzzleName = nextPuzzleName;
+    }
+
+    public String getTileSet() {
+        return tileSet;
+    }
+
+    public void setTileSet(String tileSet) {
+        this.tileSet = tileSet;
+    }
+
+    public String getNextTileSet() {
+        return nextTileSet;
+    }
+
+    public void setNextTileSet(String nextTileSet) {
+        this.nextTileSet = nextTileSet;
+    }
+
+    public List<PlayerState> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerState> players) {
+        this.players = players;
+    }
+
+    public boolean isFlag() {
+        return flag;
+    }
+
+    public void setFlag(boolean flag) {
+        this.flag = flag;
+    }
+
+    public PlayerState getAttacker() {
+        return attacker;
+    }
+
+    public void setAttacker(PlayerState attacker) {
+        this.attacker = attacker;
+    }
+
+    public String getAttackerTeamName() {
+        return attackerTeamName;
+    }
+
+    public void setAttackerTeamName(String attackerTeamName) {
+        this.attackerTeamName = attackerTeamName;
+    }
+
+    public AttackResult getAttackResult() {
+        return attackResult;
+    }
+
+    public void setAttackResult(AttackResult attackResult) {
+        this.attackResult = attackResult;
+    }
+
+    public long getAttackId() {
+        return attackId;
+    }
+
+    public void setAttackId(long attackId) {
+        this.attackId = attackId;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public void setClientName(String clientName) {
+        this.clientName = clientName;
+    }
+
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+}
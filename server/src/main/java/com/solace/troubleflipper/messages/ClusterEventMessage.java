@@ -0,0 +1,100 @@
+package com.solace.troubleflipper.messages;
+
+import java.util.List;
+
+/**
+ * Sent by a node on cluster/coordinator when a game it hosts changed.
+ */
+public class ClusterEventMessage {
+
+    public static final String TYPE_STATUS = "status";
+    public static final String TYPE_GAME_OVER = "gameOver";
+    public static final String TYPE_TROUBLE_FLIPPER = "troubleFlipper";
+    public static final String TYPE_GREEN_SHELL = "greenShell";
+    public static final String TYPE_ATTACK_RESULT = "attackResult";
+
+    private String type;
+    private String teamId;
+    // identifies the game of the team the event belongs to
+    private int completedGames;
+    private int correctPieces;
+    private boolean charactersReady;
+    private List<PlayerState> players;
+    // the attacking player for trouble flipper and green shell
+    private String clientName;
+    // the attack on the game and whether it hit, for attackResult
+    private long attackId;
+    private AttackResult attackResult;
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public int getCompletedGames() {
+        return completedGames;
+    }
+
+    public void setCompletedGames(int completedGames) {
+        this.completedGames = completedGames;
+    }
+
+    public int getCorrectPieces() {
+        return correctPieces;
+    }
+
+    public void setCorrectPieces(int correctPieces) {
+        this.correctPieces = correctPieces;
+    }
+
+    public boolean isCharactersReady() {
+        return charactersReady;
+    }
+
+    public void setCharactersReady(boolean charactersReady) {
+        this.charactersReady = charactersReady;
+    }
+
+    public List<PlayerState> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerState> players) {
+        this.players = players;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public void setClientName(String clientName) {
+        this.clientName = clientName;
+    }
+
+    public long getAttackId() {
+        return attackId;
+    }
+
+    public void setAttackId(long attackId) {
+        this.attackId = attackId;
+    }
+
+    public AttackResult getAttackResult() {
+        return attackResult;
+    }
+
+    public void setAttackResult(AttackResult attackResult) {
+        this.attackResult = attackResult;
+    }
+}
@@ -0,0 +1,70 @@
+package com.solace.troubleflipper.messages;
+
+import com.solace.troubleflipper.model.CharacterType;
+
+public class LeaderboardEntry {
+
+    private int rank;
+    private String clientName;
+    private String gamerTag;
+    private String teamId;
+    private CharacterType characterType;
+    private int rightMoves;
+    private int wrongMoves;
+
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public void setClientName(String clientName) {
+        this.clientName = clientName;
+    }
+
+    public String getGamerTag() {
+        return gamerTag;
+    }
+
+    public void setGamerTag(String gamerTag) {
+        this.gamerTag = gamerTag;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public CharacterType getCharacterType() {
+        return characterType;
+    }
+
+    public void setCharacterType(CharacterType characterType) {
+        this.characterType = characterType;
+    }
+
+    public int getRightMoves() {
+        return rightMoves;
+    }
+
+    public void setRightMoves(int rightMoves) {
+        this.rightMoves = rightMoves;
+    }
+
+    public int getWrongMoves() {
+        return wrongMoves;
+    }
+
+    public void setWrongMoves(int wrongMoves) {
+        this.wrongMoves = wrongMoves;
+    }
+}
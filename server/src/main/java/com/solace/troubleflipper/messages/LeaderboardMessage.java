@@ -0,0 +1,53 @@
+package com.solace.troubleflipper.messages;
+
+import java.util.List;
+import java.util.Map;
+
+public class LeaderboardMessage {
+
+    private int page;
+    private int totalPlayers;
+    private int totalTeams;
+    private List<LeaderboardEntry> players;
+    private List<Map<String, String>> teams;
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public int getTotalPlayers() {
+        return totalPlayers;
+    }
+
+    public void setTotalPlayers(int totalPlayers) {
+        this.totalPlayers = totalPlayers;
+    }
+
+    public int getTotalTeams() {
+        return totalTeams;
+    }
+
+    public void setTotalTeams(int totalTeams) {
+        this.totalTeams = totalTeams;
+    }
+
+    public List<LeaderboardEntry> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<LeaderboardEntry> players) {
+        this.players = players;
+    }
+
+    public List<Map<String, String>> getTeams() {
+        return teams;
+    }
+
+    public void setTeams(List<Map<String, String>> teams) {
+        this.teams = teams;
+    }
+}
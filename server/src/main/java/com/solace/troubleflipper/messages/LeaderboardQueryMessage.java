@@ -0,0 +1,23 @@
+package com.solace.troubleflipper.messages;
+
+public class LeaderboardQueryMessage {
+
+    private int page;
+    private String teamId;
+
+    public int getPage() {
+        return page;
+    }
+
+    public void setPage(int page) {
+        this.page = page;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+}
@@ -0,0 +1,52 @@
+package com.solace.troubleflipper.messages;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.solace.troubleflipper.model.PuzzlePiece;
+
+import java.util.List;
+
+/**
+ * Sent to the player who swapped two pieces, on user/{clientId}/move.
+ */
+public class MoveAckMessage {
+
+    private String moveId;
+    private boolean accepted;
+    // the version of the board after the move, or the current one if the move was rejected
+    private long boardVersion;
+    // only set on a rejected move, so the player can put its board right without waiting for the team update
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<PuzzlePiece> puzzle;
+
+    public String getMoveId() {
+        return moveId;
+    }
+
+    public void setMoveId(String moveId) {
+        this.moveId = moveId;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(boolean accepted) {
+        this.accepted = accepted;
+    }
+
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
+    public void setBoardVersion(long boardVersion) {
+        this.boardVersion = boardVersion;
+    }
+
+    public List<PuzzlePiece> getPuzzle() {
+        return puzzle;
+    }
+
+    public void setPuzzle(List<PuzzlePiece> puzzle) {
+        this.puzzle = puzzle;
+    }
+}
@@ -0,0 +1,106 @@
+package com.solace.troubleflipper.messages;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.solace.troubleflipper.model.Character;
+import com.solace.troubleflipper.model.CharacterType;
+import com.solace.troubleflipper.model.Player;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A player as the team messages show it, taken by the game under the lock that changes the player. It serializes like
+ * the player, so it can be published while the moves and characters of the player go on changing.
+ */
+public final class PlayerSnapshot {
+
+    private final String id;
+    private final String clientName;
+    private final String gamerTag;
+    private final int rightMoves;
+    private final int wrongMoves;
+    private final CharacterSnapshot character;
+    private final Map<CharacterType, CharacterSnapshot> bonusCharacters;
+
+    @JsonCreator
+    public PlayerSnapshot(@JsonProperty("id") String id,
+                          @JsonProperty("clientName") String clientName,
+                          @JsonProperty("gamerTag") String gamerTag,
+                          @JsonProperty("rightMoves") int rightMoves,
+                          @JsonProperty("wrongMoves") int wrongMoves,
+                          @JsonProperty("character") CharacterSnapshot character,
+                          @JsonProperty("bonusCharacters") Map<CharacterType, CharacterSnapshot> bonusCharacters) {
+        this.id = id;
+        this.clientName = clientName;
+        this.gamerTag = gamerTag;
+        this.rightMoves = rightMoves;
+        this.wrongMoves = wrongMoves;
+        this.character = character;
+        this.bonusCharacters = bonusCharacters == null ? Collections.emptyMap() :
+                Collections.unmodifiableMap(bonusCharacters);
+    }
+
+    public static PlayerSnapshot of(Player player) {
+        Map<CharacterType, CharacterSnapshot> bonusCharacters = new EnumMap<>(CharacterType.class);
+        player.getBonusCharacters().forEach((type, bonusCharacter) ->
+                bonusCharacters.put(type, CharacterSnapshot.of(bonusCharacter)));
+        return new PlayerSnapshot(player.getId(), player.getClientName(), player.getGamerTag(), player.getRightMoves(),
+                player.getWrongMoves(), CharacterSnapshot.of(player.getCharacter()), bonusCharacters);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public String getGamerTag() {
+        return gamerTag;
+    }
+
+    public int getRightMoves() {
+        return rightMoves;
+    }
+
+    public int getWrongMoves() {
+        return wrongMoves;
+    }
+
+    public CharacterSnapshot getCharacter() {
+        return character;
+    }
+
+    public Map<CharacterType, CharacterSnapshot> getBonusCharacters() {
+        return bonusCharacters;
+    }
+
+    public static final class CharacterSnapshot {
+
+        private final CharacterType type;
+        private final int superPower;
+
+        @JsonCreator
+        public CharacterSnapshot(@JsonProperty("type") CharacterType type,
+                                 @JsonProperty("superPower") int superPower) {
+            this.type = type;
+            this.superPower = superPower;
+        }
+
+        // null for a player without a character
+        static CharacterSnapshot of(Character character) {
+            return character == null ? null : new CharacterSnapshot(character.getType(), character.getSuperPower());
+        }
+
+        public CharacterType getType() {
+            return type;
+        }
+
+        public int getSuperPower() {
+            return superPower;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.solace.troubleflipper.messages;
+
+import java.util.List;
+
+/**
+ * Published by the primary on the replication topic every heartbeat interval. It carries the roster when it
+ * changed and the teams whose game changed since the previous message; a full message replaces all teams. The epoch
+ * goes up with every takeover, a primary that sees a higher epoch than its own steps down.
+ */
+public class ReplicationMessage {
+
+    private long epoch;
+    private long sequence;
+    private boolean full;
+    private boolean tournamentStarted;
+    private boolean gameStarted;
+    // null when the roster did not change
+    private List<PlayerState> players;
+    private List<TeamState> teams;
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public void setEpoch(long epoch) {
+        this.epoch = epoch;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public boolean isFull() {
+        return full;
+    }
+
+    public void setFull(boolean full) {
+        this.full = full;
+    }
+
+    public boolean isTournamentStarted() {
+        return tournamentStarted;
+    }
+
+    public void setTournamentStarted(boolean tournamentStarted) {
+        this.tournamentStarted = tournamentStarted;
+    }
+
+    public boolean isGameStarted() {
+        return gameStarted;
+    }
+
+    public void setGameStarted(boolean gameStarted) {
+        this.gameStarted = gameStarted;
+    }
+
+    public List<PlayerState> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerState> players) {
+        this.players = players;
+    }
+
+    public List<TeamState> getTeams() {
+        return teams;
+    }
+
+    public void setTeams(List<TeamState> teams) {
+        this.teams = teams;
+    }
+}
@@ -0,0 +1,35 @@
+package com.solace.troubleflipper.messages;
+
+public class RoomMessage {
+
+    public static final String ACTION_CREATE = "create";
+    public static final String ACTION_CLOSE = "close";
+
+    private String clientId;
+    private String action;
+    private String roomId;
+
+    public String getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(String clientId) {
+        this.clientId = clientId;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public void setAction(String action) {
+        this.action = action;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    public void setRoomId(String roomId) {
+        this.roomId = roomId;
+    }
+}
@@ -0,0 +1,66 @@
+package com.solace.troubleflipper.messages;
+
+public class RosterChange {
+
+    public static String TYPE_ADD = "add";
+    public static String TYPE_REMOVE = "remove";
+    public static String TYPE_RENAME = "rename";
+    public static String TYPE_ASSIGN = "assign";
+
+    private String type;
+    private String clientName;
+    private String gamerTag;
+    private String teamId;
+    private String teamName;
+
+    public RosterChange() {
+    }
+
+    public RosterChange(String type, String clientName, String gamerTag, String teamId, String teamName) {
+        this.type = type;
+        this.clientName = clientName;
+        this.gamerTag = gamerTag;
+        this.teamId = teamId;
+        this.teamName = teamName;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public void setClientName(String clientName) {
+        this.clientName = clientName;
+    }
+
+    public String getGamerTag() {
+        return gamerTag;
+    }
+
+    public void setGamerTag(String gamerTag) {
+        this.gamerTag = gamerTag;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+}
@@ -0,0 +1,36 @@
+package com.solace.troubleflipper.messages;
+
+import java.util.List;
+
+public class RosterDeltaMessage {
+
+    private long version;
+
+    private boolean started;
+
+    private List<RosterChange> changes;
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public void setStarted(boolean started) {
+        this.started = started;
+    }
+
+    public List<RosterChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<RosterChange> changes) {
+        this.changes = changes;
+    }
+}
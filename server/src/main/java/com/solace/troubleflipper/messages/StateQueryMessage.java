@@ -0,0 +1,14 @@
+package com.solace.troubleflipper.messages;
+
+public class StateQueryMessage {
+
+    private String topic;
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+}
@@ -7,6 +7,10 @@ public class SwapPiecesMessage {
     private PuzzlePiece piece1;
     private PuzzlePiece piece2;
     private String clientId;
+    // the board version the move was made on, null applies the move whatever changed since
+    private Long boardVersion;
+    // echoed in the MoveAckMessage, no ack is sent without it
+    private String moveId;
 
     public PuzzlePiece getPiece1() {
         return piece1;
@@ -31,4 +35,20 @@ public class SwapPiecesMessage {
     public void setClientId(String clientId) {
         this.clientId = clientId;
     }
+
+    public Long getBoardVersion() {
+        return boardVersion;
+    }
+
+    public void setBoardVersion(Long boardVersion) {
+        this.boardVersion = boardVersion;
+    }
+
+    public String getMoveId() {
+        return moveId;
+    }
+
+    public void setMoveId(String moveId) {
+        this.moveId = moveId;
+    }
 }
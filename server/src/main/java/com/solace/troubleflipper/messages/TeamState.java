@@ -0,0 +1,73 @@
+package com.solace.troubleflipper.messages;
+
+import com.solace.troubleflipper.model.PuzzlePiece;
+
+import java.util.List;
+
+public class TeamState {
+
+    private String teamId;
+    private String teamName;
+    private int completedGames;
+    private String puzzleName;
+    private List<PlayerState> players;
+    private List<PuzzlePiece> puzzle;
+    // false between two games of the team
+    private boolean gameActive;
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(String teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public int getCompletedGames() {
+        return completedGames;
+    }
+
+    public void setCompletedGames(int completedGames) {
+        this.completedGames = completedGames;
+    }
+
+    public String getPuzzleName() {
+        return puzzleName;
+    }
+
+    public void setPuzzleName(String puzzleName) {
+        this.puzzleName = puzzleName;
+    }
+
+    public List<PlayerState> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<PlayerState> players) {
+        this.players = players;
+    }
+
+    public List<PuzzlePiece> getPuzzle() {
+        return puzzle;
+    }
+
+    public void setPuzzle(List<PuzzlePiece> puzzle) {
+        this.puzzle = puzzle;
+    }
+
+    public boolean isGameActive() {
+        return gameActive;
+    }
+
+    public void setGameActive(boolean gameActive) {
+        this.gameActive = gameActive;
+    }
+}
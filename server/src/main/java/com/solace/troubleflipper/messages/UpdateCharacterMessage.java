@@ -1,7 +1,6 @@
 package com.solace.troubleflipper.messages;
 
 import com.solace.troubleflipper.model.CharacterType;
-import com.solace.troubleflipper.model.Player;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,7 +12,7 @@ public class UpdateCharacterMessage {
 
     private List<CharacterType> availableCharacters;
 
-    private List<Player> players;
+    private List<PlayerSnapshot> players;
 
     public String getTeamId() {
         return teamId;
@@ -39,11 +38,11 @@ public class UpdateCharacterMessage {
         this.availableCharacters = availableCharacters;
     }
 
-    public List<Player> getPlayers() {
+    public List<PlayerSnapshot> getPlayers() {
         return players;
     }
 
-    public void setPlayers(List<Player> players) {
+    public void setPlayers(List<PlayerSnapshot> players) {
         this.players = players;
     }
 
@@ -57,7 +56,7 @@ public class UpdateCharacterMessage {
         sb.append("], ");
         sb.append("Players: [");
         if (players != null) {
-            sb.append(players.stream().map(Player::getClientName).collect(Collectors.joining(",")));
+            sb.append(players.stream().map(PlayerSnapshot::getClientName).collect(Collectors.joining(",")));
         }
         sb.append("]");
         return sb.toString();
@@ -1,6 +1,6 @@
 package com.solace.troubleflipper.messages;
 
-import com.solace.troubleflipper.model.Player;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.solace.troubleflipper.model.PuzzlePiece;
 
 import java.util.List;
@@ -8,6 +8,8 @@ import java.util.stream.Collectors;
 
 public class UpdatePuzzleMessage {
 
+    // left out when a catching up player gets the changes instead
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private List<PuzzlePiece> puzzle;
 
     private String teamId;
@@ -18,14 +20,38 @@ public class UpdatePuzzleMessage {
 
     private int correctPieces;
 
+    // counts the changes of the piece positions, moves name the version they were made on
+    private long boardVersion;
+
+    // the sequence of the board in the change log of the game
+    private long sequence;
+
+    // set instead of the puzzle when a player catches up, the changes after the last sequence the player saw
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<BoardChange> changes;
+
     private Boolean gameWon;
 
     private int completedGames;
 
-    private List<Player> players;
+    private List<PlayerSnapshot> players;
 
     private boolean gameOver;
 
+    // lets the clients load the image of the next game while the team plays this one
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextPuzzleName;
+
+    // URL path of the tiles of the puzzle images when they are cut by the server
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String tileSet;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextTileSet;
+
+    // only set on the update that completes an attack of the team
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private AttackResult attackResult;
+
 
     public List<PuzzlePiece> getPuzzle() {
         return puzzle;
@@ -59,6 +85,30 @@ public class UpdatePuzzleMessage {
         this.puzzleName = puzzleName;
     }
 
+    public String getNextPuzzleName() {
+        return nextPuzzleName;
+    }
+
+    public void setNextPuzzleName(String nextPuzzleName) {
+        this.nextPuzzleName = nextPuzzleName;
+    }
+
+    public String getTileSet() {
+        return tileSet;
+    }
+
+    public void setTileSet(String tileSet) {
+        this.tileSet = tileSet;
+    }
+
+    public String getNextTileSet() {
+        return nextTileSet;
+    }
+
+    public void setNextTileSet(String nextTileSet) {
+        this.nextTileSet = nextTileSet;
+    }
+
     public Boolean getGameWon() {
         return gameWon;
     }
@@ -67,11 +117,11 @@ public class UpdatePuzzleMessage {
         this.gameWon = gameWon;
     }
 
-    public List<Player> getPlayers() {
+    public List<PlayerSnapshot> getPlayers() {
         return players;
     }
 
-    public void setPlayers(List<Player> players) {
+    public void setPlayers(List<PlayerSnapshot> players) {
         this.players = players;
     }
 
@@ -91,6 +141,14 @@ public class UpdatePuzzleMessage {
         this.correctPieces = correctPieces;
     }
 
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
+    public void setBoardVersion(long boardVersion) {
+        this.boardVersion = boardVersion;
+    }
+
     public int getCompletedGames() {
         return completedGames;
     }
@@ -109,4 +167,28 @@ public class UpdatePuzzleMessage {
         return sb.toString();
     }
 
+
+    public AttackResult getAttackResult() {
+        return attackResult;
+    }
+
+    public void setAttackResult(AttackResult attackResult) {
+        this.attackResult = attackResult;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public List<BoardChange> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<BoardChange> changes) {
+        this.changes = changes;
+    }
 }
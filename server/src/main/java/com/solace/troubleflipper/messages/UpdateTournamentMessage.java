@@ -15,6 +15,8 @@ public class UpdateTournamentMessage {
 
     private List<Team> teams;
 
+    private long version;
+
     public List<Player> getWaitingPlayers() {
         return waitingPlayers;
     }
@@ -38,4 +40,12 @@ public class UpdateTournamentMessage {
     public void setTeams(List<Team> teams) {
         this.teams = teams;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
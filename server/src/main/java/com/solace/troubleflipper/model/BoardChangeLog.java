@@ -0,0 +1,117 @@
+package com.solace.troubleflipper.model;
+
+import com.solace.troubleflipper.GameClock;
+import com.solace.troubleflipper.messages.BoardChange;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last changes of a board, numbered in sequence, so a client that lost its connection gets only what it missed.
+ *
+ * Every recorded board is compared with the one recorded before it and the pieces that moved or changed selection
+ * make up a change. The log keeps the last capacity changes. Sequences start from {@link #nextFirstSequence(long)},
+ * the creation time in microseconds but at least SEQUENCE_SPACING after the start of the log created before it, so a
+ * sequence from another game, or from before a failover, never falls inside the log of this one, even when games are
+ * created at the same instant of a virtual clock.
+ *
+ * The last recorded board is kept as an immutable snapshot that messages can serialize without the board lock. A new
+ * snapshot shares the pieces that did not change with the one before it, and with the change that follows it. The
+ * pieces of snapshots and changes are never modified. Recording is not thread safe, the game calls it with its board
+ * locked.
+ */
+public class BoardChangeLog {
+
+    // more changes than a game records
+    static final long SEQUENCE_SPACING = 1 << 20;
+    // the first sequence of the last log started in this server
+    private static final AtomicLong lastFirstSequence = new AtomicLong();
+
+    private final BoardChange[] changes;
+    private volatile List<PuzzlePiece> lastBoard = Collections.emptyList();
+    private long sequence;
+    private int count = 0;
+
+    // a log whose sequences start at the time of the clock
+    public BoardChangeLog(int capacity, GameClock clock) {
+        this(capacity, nextFirstSequence(clock.millis() * 1000));
+    }
+
+    public BoardChangeLog(int capacity, long firstSequence) {
+        this.changes = new BoardChange[Math.max(1, capacity)];
+        this.sequence = firstSequence;
+    }
+
+    /**
+     * Returns a first sequence for a new log, no earlier than startMicros and SEQUENCE_SPACING after the last one.
+     */
+    public static long nextFirstSequence(long startMicros) {
+        return lastFirstSequence.accumulateAndGet(startMicros, (last, start) -> Math.max(start, last + SEQUENCE_SPACING));
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the last recorded board, which never changes.
+     */
+    public List<PuzzlePiece> getBoard() {
+        return lastBoard;
+    }
+
+    /**
+     * Records the changes since the last recorded board and returns the sequence of the board.
+     */
+    public long record(List<PuzzlePiece> board) {
+        List<PuzzlePiece> previous = lastBoard;
+        List<Integer> positions = new ArrayList<>();
+        List<PuzzlePiece> pieces = new ArrayList<>();
+        List<PuzzlePiece> recorded = new ArrayList<>(board.size());
+        for (int position = 0; position < board.size(); position++) {
+            PuzzlePiece piece = board.get(position);
+            PuzzlePiece lastPiece = position < previous.size() ? previous.get(position) : null;
+            if (lastPiece == null || lastPiece.getIndex() != piece.getIndex() ||
+                    lastPiece.getSelectedByHandle() != piece.getSelectedByHandle() ||
+                    lastPiece.getLastSelectTimestamp() != piece.getLastSelectTimestamp()) {
+                lastPiece = copyOf(piece);
+                positions.add(position);
+                pieces.add(lastPiece);
+            }
+            recorded.add(lastPiece);
+        }
+        if (positions.isEmpty() && board.size() == previous.size()) {
+            return sequence;
+        }
+        sequence++;
+        changes[(int) (sequence % changes.length)] = new BoardChange(sequence,
+                positions.stream().mapToInt(Integer::intValue).toArray(), Collections.unmodifiableList(pieces));
+        count = Math.min(count + 1, changes.length);
+        lastBoard = Collections.unmodifiableList(recorded);
+        return sequence;
+    }
+
+    /**
+     * Returns the changes after lastSequence, or null if some of them are no longer in the log.
+     */
+    public List<BoardChange> since(long lastSequence) {
+        if (lastSequence > sequence || lastSequence < sequence - count) {
+            return null;
+        }
+        List<BoardChange> missed = new ArrayList<>((int) (sequence - lastSequence));
+        for (long next = lastSequence + 1; next <= sequence; next++) {
+            missed.add(changes[(int) (next % changes.length)]);
+        }
+        return missed;
+    }
+
+    private static PuzzlePiece copyOf(PuzzlePiece piece) {
+        PuzzlePiece copy = new PuzzlePiece();
+        copy.setIndex(piece.getIndex());
+        copy.select(piece.getSelectedByHandle(), piece.getSelectedBy());
+        copy.setLastSelectTimestamp(piece.getLastSelectTimestamp());
+        return copy;
+    }
+}
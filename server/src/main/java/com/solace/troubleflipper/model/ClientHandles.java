@@ -0,0 +1,143 @@
+package com.solace.troubleflipper.model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compact int handles for client names. The server keeps one for all of its rooms, see
+ * {@link com.solace.troubleflipper.RoomManager}, and hands it to the registries, teams and rate limiter that use it.
+ *
+ * A client name gets its handle when a player with that name is registered, or hosted for another node, and keeps it
+ * until the last of them is released. Names read from client messages are only looked up, so a client cannot add
+ * names to the table. A released handle is handed out again only after RECYCLE_DELAY other handles were released
+ * after it, by which time the selections of the old client have timed out of the boards. The model keys its maps and
+ * compares selections on handles, names are only kept for serializing. Handle 0 is no client and stands for the
+ * empty name.
+ */
+public class ClientHandles {
+
+    public static final int NONE = 0;
+    static final int RECYCLE_DELAY = 1024;
+
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    // names by handle, written before the handle is published in the map
+    private volatile String[] names = new String[] {""};
+    // the team of each handle, grown and written inside synchronized(lock)
+    private volatile String[] teams = new String[1];
+    // holders of each handle, changed inside synchronized(lock)
+    private int[] holders = new int[1];
+    // released handles, oldest first
+    private final ArrayDeque<Integer> released = new ArrayDeque<>();
+    private int count = 1;
+
+    /**
+     * Returns the handle of the client name, assigning one if the name is new, and counts one more holder of it.
+     * Every acquire is paired with a release.
+     */
+    public int acquire(String clientName) {
+        if (clientName == null || clientName.isEmpty()) {
+            return NONE;
+        }
+        synchronized (lock) {
+            Integer handle = handles.get(clientName);
+            if (handle == null) {
+                handle = nextHandle();
+                names[handle] = clientName;
+                handles.put(clientName, handle);
+            }
+            holders[handle]++;
+            return handle;
+        }
+    }
+
+    /**
+     * Drops one holder of the handle, the name is forgotten once nobody holds it.
+     */
+    public void release(int handle) {
+        if (handle == NONE) {
+            return;
+        }
+        synchronized (lock) {
+            if (handle >= count || holders[handle] == 0) {
+                return;
+            }
+            if (--holders[handle] == 0) {
+                handles.remove(names[handle]);
+                names[handle] = null;
+                teams[handle] = null;
+                released.add(handle);
+            }
+        }
+    }
+
+    // call inside synchronized(lock)
+    private int nextHandle() {
+        if (released.size() > RECYCLE_DELAY) {
+            return released.poll();
+        }
+        String[] current = names;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            holders = Arrays.copyOf(holders, current.length);
+            teams = Arrays.copyOf(teams, current.length);
+            names = current;
+        }
+        return count++;
+    }
+
+    /**
+     * Returns the handle of a held client name, or NONE without assigning one.
+     */
+    public int find(String clientName) {
+        if (clientName == null) {
+            return NONE;
+        }
+        Integer handle = handles.get(clientName);
+        return handle == null ? NONE : handle;
+    }
+
+    // the name of a released handle is the empty name
+    public String nameOf(int handle) {
+        String name = names[handle];
+        return name == null ? "" : name;
+    }
+
+    /**
+     * Records the team the held handle plays in, see {@link Team#addPlayer(Player)}. The rate limiter only trusts the
+     * sender id of a game message that names a player of the team of the topic.
+     */
+    public void joinTeam(int handle, String teamId) {
+        if (handle == NONE) {
+            return;
+        }
+        synchronized (lock) {
+            if (handle < count && holders[handle] > 0) {
+                teams[handle] = teamId;
+            }
+        }
+    }
+
+    public void leaveTeam(int handle, String teamId) {
+        if (handle == NONE) {
+            return;
+        }
+        synchronized (lock) {
+            if (handle < count && teamId.equals(teams[handle])) {
+                teams[handle] = null;
+            }
+        }
+    }
+
+    // null for a handle that is not in a team
+    public String teamOf(int handle) {
+        String[] current = teams;
+        return handle < current.length ? current[handle] : null;
+    }
+
+    public int size() {
+        return handles.size();
+    }
+}
@@ -1,6 +1,9 @@
 package com.solace.troubleflipper.model;
 
+import com.solace.troubleflipper.ClockTask;
+import com.solace.troubleflipper.GameClock;
 import com.solace.troubleflipper.GameOverListener;
+import com.solace.troubleflipper.GameProgressListener;
 import com.solace.troubleflipper.Publisher;
 import com.solace.troubleflipper.Subscriber;
 import com.solace.troubleflipper.messages.*;
@@ -10,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 public class Game {
 
@@ -17,6 +21,9 @@ public class Game {
 
     private final List<PuzzlePiece> puzzleBoard = new ArrayList<>();
     private String puzzleName;
+    private String nextPuzzleName;
+    private String tileSet;
+    private String nextTileSet;
     private Team team;
 
     private Subscriber subscriber;
@@ -24,6 +31,8 @@ public class Game {
     private Timer timer;
     private final TournamentProperties tournamentProperties;
     private final BadGuyActionHandler badGuyActionHandler;
+    private final GameClock clock;
+    private final Random random;
 
     // game won
     private boolean gameOver = false;
@@ -31,18 +40,42 @@ public class Game {
     // game stopped
     private volatile boolean gameStopped = false;
 
-    private int correctPieces;
+    private volatile int correctPieces;
+
+    // bumped whenever pieces change places, changed inside synchronized(puzzleBoard)
+    private volatile long boardVersion = 0;
+    // the board version each piece last moved in, by piece index
+    private long[] movedInVersion = new long[0];
+    // the published boards, changed inside synchronized(puzzleBoard)
+    private final BoardChangeLog changeLog;
+    private volatile long startedAt;
+    // the accepted moves of the players and the last mover, changed inside synchronized(puzzleBoard)
+    private int moves = 0;
+    private Player lastMover;
 
     private final Collection<GameOverListener> gameOverListeners = new ArrayList<>();
+    private final Collection<GameProgressListener> gameProgressListeners = new ArrayList<>();
 
     public Game(Team team, Subscriber subscriber, Publisher publisher, Timer timer,
                 TournamentProperties tournamentProperties, BadGuyActionHandler badGuyActionHandler) {
+        this(team, subscriber, publisher, timer, tournamentProperties, badGuyActionHandler, GameClock.SYSTEM);
+    }
+
+    /**
+     * Creates a game that takes its time and randomness from the clock, the timer should come from the same clock.
+     */
+    public Game(Team team, Subscriber subscriber, Publisher publisher, Timer timer,
+                TournamentProperties tournamentProperties, BadGuyActionHandler badGuyActionHandler, GameClock clock) {
         this.team = team;
         this.subscriber = subscriber;
         this.publisher = publisher;
         this.timer = timer;
         this.tournamentProperties = tournamentProperties;
         this.badGuyActionHandler = badGuyActionHandler;
+        this.clock = clock;
+        this.random = clock.newRandom();
+        this.startedAt = clock.millis();
+        this.changeLog = new BoardChangeLog(tournamentProperties.getCatchUpChanges(), clock);
         subscriber.registerHandler(SwapPiecesMessage.class, "games/" + team.getId(), this::swapPieces);
         subscriber.registerHandler(SelectPieceMessage.class, "games/" + team.getId() + "/selectPiece", this::selectPiece);
         subscriber.registerHandler(ResetPieceMessage.class, "games/" + team.getId() + "/resetPiece", this::resetPiece);
@@ -55,6 +88,17 @@ public class Game {
         subscriber.registerHandler("games/" + team.getId() + "/queryGame", this::queryGameHandler);
     }
 
+    // for games whose board is hosted on another node
+    protected Game(Team team, TournamentProperties tournamentProperties) {
+        this.team = team;
+        this.tournamentProperties = tournamentProperties;
+        this.badGuyActionHandler = null;
+        this.clock = GameClock.SYSTEM;
+        this.random = clock.newRandom();
+        this.startedAt = clock.millis();
+        this.changeLog = null;
+    }
+
     public boolean isGameOver() {
         return gameOver;
     }
@@ -67,6 +111,10 @@ public class Game {
         this.gameOverListeners.clear();
     }
 
+    public void addGameProgressListener(GameProgressListener gameProgressListener) {
+        this.gameProgressListeners.add(gameProgressListener);
+    }
+
 
     public Team getTeam() {
         return team;
@@ -80,60 +128,106 @@ public class Game {
         this.puzzleName = puzzleName;
     }
 
-    private void swapPieces(PuzzlePiece piece1, PuzzlePiece piece2, Player player) {
-        if (player != null) {
-            log.debug("Update player stats");
-            int piece1Position = puzzleBoard.indexOf(piece1);
-            int piece2Position = puzzleBoard.indexOf(piece2);
-            if (piece1Position == piece1.getIndex()) {
-                player.wrongMove();
-            }
-            if (piece2Position == piece2.getIndex()) {
-                player.wrongMove();
-            }
-            if (piece1Position == piece2.getIndex()) {
-                player.rightMove();
-            }
-            if (piece2Position == piece1.getIndex()) {
-                player.rightMove();
-            }
-        }
+    public String getNextPuzzleName() {
+        return nextPuzzleName;
+    }
+
+    public void setNextPuzzleName(String nextPuzzleName) {
+        this.nextPuzzleName = nextPuzzleName;
+    }
+
+    public String getTileSet() {
+        return tileSet;
+    }
+
+    public void setTileSet(String tileSet) {
+        this.tileSet = tileSet;
+    }
+
+    public String getNextTileSet() {
+        return nextTileSet;
+    }
+
+    public void setNextTileSet(String nextTileSet) {
+        this.nextTileSet = nextTileSet;
+    }
+
+    // returns true if the pieces were swapped
+    private boolean swapPieces(PuzzlePiece piece1, PuzzlePiece piece2, Player player) {
         synchronized (puzzleBoard) {
+            if (player != null) {
+                log.debug("Update player stats");
+                int piece1Position = puzzleBoard.indexOf(piece1);
+                int piece2Position = puzzleBoard.indexOf(piece2);
+                if (piece1Position == piece1.getIndex()) {
+                    player.wrongMove();
+                }
+                if (piece2Position == piece2.getIndex()) {
+                    player.wrongMove();
+                }
+                if (piece1Position == piece2.getIndex()) {
+                    player.rightMove();
+                }
+                if (piece2Position == piece1.getIndex()) {
+                    player.rightMove();
+                }
+            }
             if (gameOver) {
-                return;
+                return false;
             }
             try {
                 PuzzlePiece bPiece1 = findPuzzlePiece(piece1.getIndex());
                 PuzzlePiece bPiece2 = findPuzzlePiece(piece2.getIndex());
                 bPiece1.setIndex(piece2.getIndex());
                 bPiece2.setIndex(piece1.getIndex());
-                bPiece1.setSelectedBy("");
-                bPiece2.setSelectedBy("");
+                bPiece1.deselect();
+                bPiece2.deselect();
                 bPiece1.setLastSelectTimestamp(-1);
                 bPiece2.setLastSelectTimestamp(-1);
+                boardVersion++;
+                movedInVersion[piece1.getIndex()] = boardVersion;
+                movedInVersion[piece2.getIndex()] = boardVersion;
+                return true;
             } catch (NoPieceFoundException ex) {
                 log.error("Unable to swap pieces " + piece1.getIndex() + " and " + piece2.getIndex(), ex);
+                return false;
             }
         }
     }
 
+    // call inside synchronized(puzzleBoard), true if neither piece moved after the given version
+    private boolean isUnchangedSince(long version, PuzzlePiece piece1, PuzzlePiece piece2) {
+        return version <= boardVersion && isUnchangedSince(version, piece1.getIndex()) &&
+                isUnchangedSince(version, piece2.getIndex());
+    }
+
+    private boolean isUnchangedSince(long version, int index) {
+        return index >= 0 && index < movedInVersion.length && movedInVersion[index] <= version;
+    }
+
+    public long getBoardVersion() {
+        return boardVersion;
+    }
+
     private void selectPiece(PuzzlePiece piece, Player player) {
         synchronized (puzzleBoard) {
             try {
                 PuzzlePiece bPiece = findPuzzlePiece(piece.getIndex());
-                String oldSelectedBy = bPiece.getSelectedBy();
+                int oldSelectedBy = bPiece.getSelectedByHandle();
+                // the name in the message, only a player of the team selects anything
                 String newSelectedBy = piece.getSelectedBy();
 //                log.info(piece.getIndex() + ", oldSelectedBy = " + oldSelectedBy + ", newSelectedBy = " + newSelectedBy +
 //                        ", player.getClientName() = " + player.getClientName() + ", player.getGamerTag() = " + player.getGamerTag());
 
-                if (oldSelectedBy.equals("") && !newSelectedBy.equals("")) {
-                    if (team.getPlayer(newSelectedBy) != null) {
-                        bPiece.setSelectedBy(newSelectedBy);
-                        bPiece.setLastSelectTimestamp(System.currentTimeMillis());
+                if (oldSelectedBy == ClientHandles.NONE && !newSelectedBy.isEmpty()) {
+                    Player selecting = team.getPlayer(newSelectedBy);
+                    if (selecting != null) {
+                        bPiece.select(selecting.getHandle(), selecting.getClientName());
+                        bPiece.setLastSelectTimestamp(clock.millis());
                     }
-                } else if (!oldSelectedBy.equals("") && newSelectedBy.equals("")) {
-                    if (oldSelectedBy.equals(player.getClientName())) {
-                        bPiece.setSelectedBy("");
+                } else if (oldSelectedBy != ClientHandles.NONE && newSelectedBy.isEmpty()) {
+                    if (player != null && oldSelectedBy == player.getHandle()) {
+                        bPiece.deselect();
                         bPiece.setLastSelectTimestamp(-1);
                     }
                 }
@@ -158,56 +252,144 @@ public class Game {
             for (int i = 0; i < puzzleLength ; i++) {
                 PuzzlePiece puzzlePiece = new PuzzlePiece();
                 puzzlePiece.setIndex(i);
-                puzzlePiece.setSelectedBy("");
                 puzzlePiece.setLastSelectTimestamp(-1);
                 puzzleBoard.add(puzzlePiece);
             }
-            Collections.shuffle(puzzleBoard);
-            timer.schedule(new TimerTask() {
-                @Override
-                public void run() {
-                    synchronized (puzzleBoard) {
-                        if (gameOver || gameStopped) {
-                            log.info("Cancel deselect checking because game over or game stopped for " + team.getId());
-                            this.cancel();
-                            return;
-                        }
+            Collections.shuffle(puzzleBoard, random);
+            movedInVersion = new long[puzzleLength];
+            startedAt = clock.millis();
+            scheduleDeselect();
+        }
+    }
+
+    /**
+     * Starts the game on a board that is already shuffled. The game owns the pieces until its board is released.
+     */
+    public void start(List<PuzzlePiece> shuffledBoard) {
+        synchronized (puzzleBoard) {
+            puzzleBoard.clear();
+            puzzleBoard.addAll(shuffledBoard);
+            movedInVersion = new long[puzzleBoard.size()];
+            startedAt = clock.millis();
+            scheduleDeselect();
+        }
+    }
+
+    /**
+     * Takes the pieces away from a finished game so they can be used for another board.
+     */
+    public List<PuzzlePiece> releaseBoard() {
+        synchronized (puzzleBoard) {
+            List<PuzzlePiece> board = new ArrayList<>(puzzleBoard);
+            puzzleBoard.clear();
+            return board;
+        }
+    }
+
+    /**
+     * Starts the game with the board of a game that was running on another server.
+     */
+    public void resume(List<PuzzlePiece> puzzle) {
+        synchronized (puzzleBoard) {
+            puzzleBoard.clear();
+            for (PuzzlePiece puzzlePiece : puzzle) {
+                PuzzlePiece pieceCopy = new PuzzlePiece();
+                pieceCopy.setIndex(puzzlePiece.getIndex());
+                // the handles of this server, the board came by name
+                Player selecting = team.getPlayer(puzzlePiece.getSelectedBy());
+                if (selecting != null) {
+                    pieceCopy.select(selecting.getHandle(), selecting.getClientName());
+                }
+                pieceCopy.setLastSelectTimestamp(puzzlePiece.getLastSelectTimestamp());
+                puzzleBoard.add(pieceCopy);
+            }
+            movedInVersion = new long[puzzleBoard.size()];
+            startedAt = clock.millis();
+            scheduleDeselect();
+        }
+    }
+
+    public List<PuzzlePiece> getPuzzle() {
+        synchronized (puzzleBoard) {
+            return copyOf(puzzleBoard);
+        }
+    }
+
+    private static List<PuzzlePiece> copyOf(List<PuzzlePiece> puzzle) {
+        List<PuzzlePiece> copy = new ArrayList<>(puzzle.size());
+        for (PuzzlePiece puzzlePiece : puzzle) {
+            PuzzlePiece pieceCopy = new PuzzlePiece();
+            pieceCopy.setIndex(puzzlePiece.getIndex());
+            pieceCopy.select(puzzlePiece.getSelectedByHandle(), puzzlePiece.getSelectedBy());
+            pieceCopy.setLastSelectTimestamp(puzzlePiece.getLastSelectTimestamp());
+            copy.add(pieceCopy);
+        }
+        return copy;
+    }
+
+    // call inside synchronized(puzzleBoard)
+    private void scheduleDeselect() {
+        timer.schedule(new ClockTask() {
+            @Override
+            public void run() {
+                boolean puzzleUpdated = false;
+                synchronized (puzzleBoard) {
+                    if (gameOver || gameStopped) {
+                        log.info("Cancel deselect checking because game over or game stopped for " + team.getId());
+                        this.cancel();
+                        return;
+                    }
 
-                        boolean puzzleUpdated = false;
-                        for (PuzzlePiece puzzlePiece : puzzleBoard) {
-                            if (puzzlePiece.getLastSelectTimestamp() == -1) {
-                                continue;
-                            }
-
-                            //log.info("last = " + puzzlePiece.getLastSelectTimestamp() + ", curr = " + System.currentTimeMillis());
-                            if (System.currentTimeMillis() > puzzlePiece.getLastSelectTimestamp() + 10000 ) {
-                                //log.info("deselect");
-                                puzzleUpdated = true;
-                                puzzlePiece.setSelectedBy("");
-                                puzzlePiece.setLastSelectTimestamp(-1);
-                            }
+                    for (PuzzlePiece puzzlePiece : puzzleBoard) {
+                        if (puzzlePiece.getLastSelectTimestamp() == -1) {
+                            continue;
                         }
-                        if (puzzleUpdated) {
-                            updatePuzzleForTeam(false);
+
+                        //log.info("last = " + puzzlePiece.getLastSelectTimestamp() + ", curr = " + clock.millis());
+                        if (clock.millis() > puzzlePiece.getLastSelectTimestamp() + tournamentProperties.getSelectionTimeout()) {
+                            //log.info("deselect");
+                            puzzleUpdated = true;
+                            puzzlePiece.deselect();
+                            puzzlePiece.setLastSelectTimestamp(-1);
                         }
                     }
                 }
-            }, 1000, 1000);
-        }
+                if (puzzleUpdated) {
+                    updatePuzzleForTeam(false);
+                }
+            }
+        }, 1000, 1000);
     }
 
     public void updatePuzzleForTeam(boolean tournamentStopped) {
-        boolean won = isGameWon();
-        UpdatePuzzleMessage updatePuzzleMessage = new UpdatePuzzleMessage();
-        updatePuzzleMessage.setTeamId(team.getId());
-        updatePuzzleMessage.setTeamName(team.getName());
-        updatePuzzleMessage.setPuzzleName(puzzleName);
-        updatePuzzleMessage.setCorrectPieces(correctPieces);
-        updatePuzzleMessage.setPuzzle(puzzleBoard);
-        updatePuzzleMessage.setGameWon(won);
-        updatePuzzleMessage.setCompletedGames(team.getCompletedGames());
-        updatePuzzleMessage.setPlayers(team.getPlayers());
-        updatePuzzleMessage.setGameOver(tournamentStopped);
+        updatePuzzleForTeam(tournamentStopped, null);
+    }
+
+    /**
+     * Tells the team how its attack on another team ended, along with its board.
+     */
+    public void attackCompleted(AttackResult attackResult) {
+        updatePuzzleForTeam(false, attackResult);
+    }
+
+    private void updatePuzzleForTeam(boolean tournamentStopped, AttackResult attackResult) {
+        UpdatePuzzleMessage updatePuzzleMessage = newUpdatePuzzleMessage(tournamentStopped);
+        boolean won;
+        boolean correctPiecesChanged;
+        // the snapshot is serialized while the next moves change the board
+        synchronized (puzzleBoard) {
+            int previousCorrectPieces = correctPieces;
+            won = isGameWon();
+            correctPiecesChanged = correctPieces != previousCorrectPieces;
+            snapshot(updatePuzzleMessage, won);
+            updatePuzzleMessage.setSequence(changeLog.record(puzzleBoard));
+            updatePuzzleMessage.setPuzzle(changeLog.getBoard());
+        }
+        if (correctPiecesChanged) {
+            fireCorrectPiecesChanged();
+        }
+        gameProgressListeners.forEach(l -> l.puzzleUpdated(this));
+        updatePuzzleMessage.setAttackResult(attackResult);
         try {
             if (tournamentStopped) {
                 log.info("Publish game tournament stopped message to " + team.getId());
@@ -219,8 +401,72 @@ public class Game {
         if (won) {
             log.info("Team " + team.getId() + " won the game!");
             removeGameHandlers();
-            gameOverListeners.forEach(l -> l.gameOver(this));
+            fireGameOver();
+        }
+    }
+
+    private UpdatePuzzleMessage newUpdatePuzzleMessage(boolean tournamentStopped) {
+        UpdatePuzzleMessage updatePuzzleMessage = new UpdatePuzzleMessage();
+        updatePuzzleMessage.setTeamId(team.getId());
+        updatePuzzleMessage.setTeamName(team.getName());
+        updatePuzzleMessage.setPuzzleName(puzzleName);
+        updatePuzzleMessage.setNextPuzzleName(nextPuzzleName);
+        updatePuzzleMessage.setTileSet(tileSet);
+        updatePuzzleMessage.setNextTileSet(nextTileSet);
+        updatePuzzleMessage.setCompletedGames(team.getCompletedGames());
+        updatePuzzleMessage.setGameOver(tournamentStopped);
+        return updatePuzzleMessage;
+    }
+
+    // call inside synchronized(puzzleBoard), along with the board of the message
+    private void snapshot(UpdatePuzzleMessage updatePuzzleMessage, boolean won) {
+        updatePuzzleMessage.setCorrectPieces(correctPieces);
+        updatePuzzleMessage.setBoardVersion(boardVersion);
+        updatePuzzleMessage.setGameWon(won);
+        updatePuzzleMessage.setPlayers(snapshotPlayers());
+    }
+
+    // call inside synchronized(puzzleBoard), the moves and characters of the players change under it
+    private List<PlayerSnapshot> snapshotPlayers() {
+        List<Player> players = team.getPlayers();
+        List<PlayerSnapshot> snapshots = new ArrayList<>(players.size());
+        for (Player player : players) {
+            snapshots.add(PlayerSnapshot.of(player));
+        }
+        return Collections.unmodifiableList(snapshots);
+    }
+
+    /**
+     * Brings one reconnecting player of the team up to date on user/{clientName}/team. The player gets the board
+     * changes after lastSequence, or the whole board if the change log no longer has them.
+     */
+    public void catchUp(String clientName, Long lastSequence) {
+        UpdatePuzzleMessage updatePuzzleMessage = newUpdatePuzzleMessage(false);
+        synchronized (puzzleBoard) {
+            snapshot(updatePuzzleMessage, gameOver);
+            // a board changed since the last broadcast goes out as it is now
+            changeLog.record(puzzleBoard);
+            List<BoardChange> changes = lastSequence == null ? null : changeLog.since(lastSequence);
+            if (changes == null) {
+                updatePuzzleMessage.setPuzzle(changeLog.getBoard());
+            } else {
+                updatePuzzleMessage.setChanges(changes);
+            }
+            updatePuzzleMessage.setSequence(changeLog.getSequence());
         }
+        try {
+            publisher.publish("user/" + clientName + "/team", updatePuzzleMessage);
+        } catch (PublisherException ex) {
+            log.error("Unable to catch up player " + clientName + " of team " + team.getId(), ex);
+        }
+    }
+
+    protected void fireCorrectPiecesChanged() {
+        gameProgressListeners.forEach(l -> l.correctPiecesChanged(this));
+    }
+
+    protected void fireGameOver() {
+        gameOverListeners.forEach(l -> l.gameOver(this));
     }
 
     private void removeGameHandlers() {
@@ -263,6 +509,16 @@ public class Game {
         }
     }
 
+    /**
+     * Returns what the tournament keeps of the game once it is completed, call before the team counts it.
+     */
+    public GameSummary summarize() {
+        synchronized (puzzleBoard) {
+            return new GameSummary(team.getId(), team.getCompletedGames(), puzzleName, startedAt,
+                    clock.millis(), moves, lastMover == null ? null : lastMover.getClientName());
+        }
+    }
+
     public int getCorrectPieces() {
         return correctPieces;
     }
@@ -275,8 +531,40 @@ public class Game {
             return;
         }
         Player player = team.getPlayer(swapPiecesMessage.getClientId());
-        swapPieces(swapPiecesMessage.getPiece1(), swapPiecesMessage.getPiece2(), player);
-        updatePuzzleForTeam(false);
+        Long baseVersion = swapPiecesMessage.getBoardVersion();
+        MoveAckMessage moveAckMessage = new MoveAckMessage();
+        moveAckMessage.setMoveId(swapPiecesMessage.getMoveId());
+        boolean swapped;
+        synchronized (puzzleBoard) {
+            // a move made on an older board still goes if its pieces are where the player saw them
+            if (baseVersion != null && !isUnchangedSince(baseVersion, swapPiecesMessage.getPiece1(), swapPiecesMessage.getPiece2())) {
+                swapped = false;
+            } else {
+                swapped = swapPieces(swapPiecesMessage.getPiece1(), swapPiecesMessage.getPiece2(), player);
+            }
+            if (swapped) {
+                moves++;
+                if (player != null) {
+                    lastMover = player;
+                }
+            }
+            moveAckMessage.setAccepted(swapped);
+            moveAckMessage.setBoardVersion(boardVersion);
+            if (!swapped) {
+                moveAckMessage.setPuzzle(copyOf(puzzleBoard));
+            }
+        }
+        if (swapPiecesMessage.getMoveId() != null && player != null) {
+            try {
+                publisher.publish("user/" + player.getClientName() + "/move", moveAckMessage);
+            } catch (PublisherException ex) {
+                log.error("Unable to acknowledge move of " + player.getClientName(), ex);
+            }
+        }
+        // a rejected move changed nothing, the player gets the board with its ack
+        if (swapped || baseVersion == null) {
+            updatePuzzleForTeam(false);
+        }
     }
 
     private void selectPiece(SelectPieceMessage selectPieceMessage) {
@@ -296,22 +584,23 @@ public class Game {
             try {
                 PuzzlePiece piece = resetPieceMessage.getPiece();
                 PuzzlePiece bPiece = findPuzzlePiece(piece.getIndex());
-                if (bPiece.getSelectedBy() == null || bPiece.getSelectedBy().equals("")) {
+                if (!bPiece.isSelected()) {
                     bPiece.setLastSelectTimestamp(-1L);
                 } else {
-                    if (team.getPlayer(bPiece.getSelectedBy()) == null) {
-                        bPiece.setSelectedBy("");
+                    if (team.getPlayer(bPiece.getSelectedByHandle()) == null) {
+                        bPiece.deselect();
                         bPiece.setLastSelectTimestamp(-1L);
-                    } else if (bPiece.getLastSelectTimestamp() > 0 && System.currentTimeMillis() - bPiece.getLastSelectTimestamp() >= 10000) {
-                        bPiece.setSelectedBy("");
+                    } else if (bPiece.getLastSelectTimestamp() > 0 && clock.millis() - bPiece.getLastSelectTimestamp() >= tournamentProperties.getSelectionTimeout()) {
+                        bPiece.deselect();
                         bPiece.setLastSelectTimestamp(-1L);
                     }
                 }
-                updatePuzzleForTeam(false);
             } catch (NoPieceFoundException ex) {
                 log.error("Unable to reset piece " + resetPieceMessage.getPiece().getIndex(), ex);
+                return;
             }
         }
+        updatePuzzleForTeam(false);
     }
 
     private void pickCharacterHandler(PickCharacterMessage pickCharacterMessage) {
@@ -325,11 +614,13 @@ public class Game {
             // specialnextInt message to assign characters randomly
             updateCharactersForTeam(true);
         } else {
-            Player player = team.getPlayer(characterType);
-            if (player == null) {
-                player = team.getPlayer(clientName);
-                if (player != null && player.getCharacter() == null) {
-                    team.chooseCharacter(characterType, player);
+            synchronized (puzzleBoard) {
+                Player player = team.getPlayer(characterType);
+                if (player == null) {
+                    player = team.getPlayer(clientName);
+                    if (player != null && player.getCharacter() == null) {
+                        team.chooseCharacter(characterType, player);
+                    }
                 }
             }
             updateCharactersForTeam(false);
@@ -350,56 +641,58 @@ public class Game {
     }
 
     public void updateCharactersForTeam(boolean forceAssign) {
-        List<CharacterType> availableTypes = new ArrayList<>();
-        for (CharacterType characterType : CharacterType.values()) {
-            if (team.getPlayer(characterType) == null) {
-                availableTypes.add(characterType);
-            }
-        }
         UpdateCharacterMessage updateCharacterMessage = new UpdateCharacterMessage();
         updateCharacterMessage.setTeamId(team.getId());
         updateCharacterMessage.setTeamName(team.getName());
-        List<Player> players = team.getPlayers();
-        if (players.size() == 1) {
-            // remove peach from available types because one player team cannot heal himself
-            availableTypes.remove(CharacterType.peach);
-        }
-        if (forceAssign && availableTypes.size() > 0) {
-            log.debug("Force assign characters");
-            players.forEach(player -> {
-                if (player.getCharacter() == null && availableTypes.size() > 0) {
-                    team.chooseCharacter(availableTypes.remove(0), player);
+        synchronized (puzzleBoard) {
+            List<CharacterType> availableTypes = new ArrayList<>();
+            for (CharacterType characterType : CharacterType.values()) {
+                if (team.getPlayer(characterType) == null) {
+                    availableTypes.add(characterType);
                 }
-            });
-        }
-        // check if all players have characters and whether need to add bonus characters
-        if ((players.size() == 1 && availableTypes.size() == (tournamentProperties.getPlayersPerTeam() - 2)) ||
-                (players.size() > 1 && players.size() < tournamentProperties.getPlayersPerTeam() &&
-                availableTypes.size() == (tournamentProperties.getPlayersPerTeam() - players.size()))) {
-            log.debug("Adding bonus characters");
-            Random randomGen = new Random();
-            for (Iterator<CharacterType> it = availableTypes.iterator(); it.hasNext();) {
-                CharacterType characterType = it.next();
-                if (players.size() == 1) {
-                    Player player = players.get(0);
-                    team.addBonusCharacter(characterType, player);
-                } else {
-                    int playerIndex = randomGen.nextInt(players.size());
-                    team.addBonusCharacter(characterType, players.get(playerIndex));
+            }
+            List<Player> players = team.getPlayers();
+            if (players.size() == 1) {
+                // remove peach from available types because one player team cannot heal himself
+                availableTypes.remove(CharacterType.peach);
+            }
+            if (forceAssign && availableTypes.size() > 0) {
+                log.debug("Force assign characters");
+                players.forEach(player -> {
+                    if (player.getCharacter() == null && availableTypes.size() > 0) {
+                        team.chooseCharacter(availableTypes.remove(0), player);
+                    }
+                });
+            }
+            // check if all players have characters and whether need to add bonus characters
+            if ((players.size() == 1 && availableTypes.size() == (tournamentProperties.getPlayersPerTeam() - 2)) ||
+                    (players.size() > 1 && players.size() < tournamentProperties.getPlayersPerTeam() &&
+                    availableTypes.size() == (tournamentProperties.getPlayersPerTeam() - players.size()))) {
+                log.debug("Adding bonus characters");
+                for (Iterator<CharacterType> it = availableTypes.iterator(); it.hasNext();) {
+                    CharacterType characterType = it.next();
+                    if (players.size() == 1) {
+                        Player player = players.get(0);
+                        team.addBonusCharacter(characterType, player);
+                    } else {
+                        int playerIndex = random.nextInt(players.size());
+                        team.addBonusCharacter(characterType, players.get(playerIndex));
+                    }
+                    it.remove();
                 }
-                it.remove();
             }
+            if (!forceAssign) {
+                updateCharacterMessage.setAvailableCharacters(availableTypes);
+            }
+            updateCharacterMessage.setPlayers(snapshotPlayers());
         }
-        if (!forceAssign) {
-            updateCharacterMessage.setAvailableCharacters(availableTypes);
-        }
-        updateCharacterMessage.setPlayers(team.getPlayers());
 
         try {
             publisher.publish("team/" + team.getId(), updateCharacterMessage);
         } catch (PublisherException ex) {
             log.error("Unable to update character for team " + team.getId(), ex);
         }
+        gameProgressListeners.forEach(l -> l.charactersChanged(this));
     }
 
     private void starPowerHandler(StarPowerMessage starPowerMessage) {
@@ -415,9 +708,8 @@ public class Game {
             } else {
                 mario = (Mario) player.getBonusCharacters().get(CharacterType.mario);
             }
-            if (mario.getSuperPower() > 0) {
+            if (useSuperPower(mario)) {
                 log.debug("Mario used star power");
-                mario.useSuperPower();
                 starPower(starPowerMessage.getPuzzlePiece());
                 updatePuzzleForTeam(false);
             }
@@ -442,12 +734,13 @@ public class Game {
                 } else {
                     peach = (Peach) peachPlayer.getBonusCharacters().get(CharacterType.peach);
                 }
-                if (peach.getSuperPower() > 0) {
-                    peach.useSuperPower();
-                    if (player.getCharacter().getType() == characterType) {
-                        player.getCharacter().heal();
-                    } else if (player.getBonusCharacters().get(characterType) != null){
-                        player.getBonusCharacters().get(characterType).heal();
+                if (useSuperPower(peach)) {
+                    synchronized (puzzleBoard) {
+                        if (player.getCharacter().getType() == characterType) {
+                            player.getCharacter().heal();
+                        } else if (player.getBonusCharacters().get(characterType) != null){
+                            player.getBonusCharacters().get(characterType).heal();
+                        }
                     }
                     updatePuzzleForTeam(false);
                 }
@@ -473,17 +766,17 @@ public class Game {
             } else {
                 yoshi = (Yoshi) player.getBonusCharacters().get(CharacterType.yoshi);
             }
-            if (yoshi.getSuperPower() > 0) {
-                yoshi.useSuperPower();
+            if (useSuperPower(yoshi)) {
                 team.setImmune(true);
-                log.info("Team " + team.getName() + " is protected by Yoshi Guard for the next 10 seconds");
+                log.info("Team " + team.getName() + " is protected by Yoshi Guard for the next " +
+                        tournamentProperties.getYoshiGuardDuration() + " ms");
                 timer.schedule(new TimerTask() {
                     @Override
                     public void run() {
                         team.setImmune(false);
                         log.info("Team " + team.getName() + " is no longer protected by Yoshi Guard");
                     }
-                }, 10000);
+                }, tournamentProperties.getYoshiGuardDuration());
                 updatePuzzleForTeam(false);
             }
         } else {
@@ -503,8 +796,7 @@ public class Game {
             } else {
                 bowser = (Bowser) player.getBonusCharacters().get(CharacterType.bowser);
             }
-            if (bowser.getSuperPower() > 0) {
-                bowser.useSuperPower();
+            if (useSuperPower(bowser)) {
                 badGuyActionHandler.troubleFlipper(player);
             }
         } else {
@@ -524,8 +816,7 @@ public class Game {
             } else {
                 goomba = (Goomba) player.getBonusCharacters().get(CharacterType.goomba);
             }
-            if (goomba.getSuperPower() > 0) {
-                goomba.useSuperPower();
+            if (useSuperPower(goomba)) {
                 badGuyActionHandler.greenShell(player);
             }
         } else {
@@ -533,6 +824,17 @@ public class Game {
         }
     }
 
+    // true if the character had power left, the power is used under the lock the team messages are taken under
+    private boolean useSuperPower(Character character) {
+        synchronized (puzzleBoard) {
+            if (character.getSuperPower() > 0) {
+                character.useSuperPower();
+                return true;
+            }
+            return false;
+        }
+    }
+
     private void queryGameHandler() {
         if (gameStopped) {
             return;
@@ -553,24 +855,30 @@ public class Game {
         }
     }
 
-    public void troubleFlipper(Player bowser) {
+    // returns true if the attack hit the board
+    public boolean troubleFlipper(Player bowser) {
         if (gameStopped) {
-            return;
+            return false;
         }
         if (!gameOver && !team.isImmune()) {
             log.info(bowser.getGamerTag() + " from team " + bowser.getTeam().getName()+  " used trouble flipper on " + team.getName());
             synchronized (puzzleBoard) {
-                Collections.shuffle(puzzleBoard);
+                Collections.shuffle(puzzleBoard, random);
+                boardVersion++;
+                Arrays.fill(movedInVersion, boardVersion);
             }
             updatePuzzleForTeam(false);
+            return true;
         } else if (team.isImmune()) {
             log.info("Team " + team.getName() + " has yoshi guarded a trouble flipper attack from " + bowser.getGamerTag() + " on team " + bowser.getTeam().getName());
         }
+        return false;
     }
 
-    public void greenShell() {
+    // returns true if the attack hit the board
+    public boolean greenShell() {
         if (gameStopped) {
-            return;
+            return false;
         }
         if (!gameOver && !team.isImmune()) {
             List<PuzzlePiece> correctPieces = new ArrayList<>();
@@ -580,11 +888,11 @@ public class Game {
                     if (puzzlePiece.getIndex() == i) {
                         PuzzlePiece newPiece = new PuzzlePiece();
                         newPiece.setIndex(puzzlePiece.getIndex());
-                        newPiece.setSelectedBy(puzzlePiece.getSelectedBy());
+                        newPiece.select(puzzlePiece.getSelectedByHandle(), puzzlePiece.getSelectedBy());
                         correctPieces.add(newPiece);
                     }
                 }
-                Collections.shuffle(correctPieces);
+                Collections.shuffle(correctPieces, random);
             }
             if (correctPieces.size() >= 2) {
                 swapPieces(correctPieces.get(0), correctPieces.get(1), null);
@@ -592,9 +900,23 @@ public class Game {
                 // TODO should probably swap a single piece with a random piece here
             }
             updatePuzzleForTeam(false);
+            return true;
         } else if (team.isImmune()) {
             log.info("Team " + team.getName() + " has yoshi guarded a green shell attack!");
         }
+        return false;
     }
 
+    /**
+     * Runs the attack named by the power of the result on this game, sets whether it hit and hands the result to
+     * completion. A game hosted by another node completes the attack once that node reports the result.
+     */
+    public void attack(Player attacker, AttackResult attackResult, Consumer<AttackResult> completion) {
+        if (AttackResult.POWER_TROUBLE_FLIPPER.equals(attackResult.getPower())) {
+            attackResult.setHit(troubleFlipper(attacker));
+        } else {
+            attackResult.setHit(greenShell());
+        }
+        completion.accept(attackResult);
+    }
 }
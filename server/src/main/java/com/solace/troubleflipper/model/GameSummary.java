@@ -0,0 +1,59 @@
+package com.solace.troubleflipper.model;
+
+/**
+ * What the tournament keeps of a completed game once its board, team and messaging are released.
+ */
+public final class GameSummary {
+
+    private final String teamId;
+    private final int gameNumber;
+    private final String puzzleName;
+    private final long startedAt;
+    private final long endedAt;
+    private final int moves;
+    // the client name of the player that made the last move, null if nobody moved
+    private final String lastMover;
+
+    public GameSummary(String teamId, int gameNumber, String puzzleName, long startedAt, long endedAt, int moves,
+                       String lastMover) {
+        this.teamId = teamId;
+        this.gameNumber = gameNumber;
+        this.puzzleName = puzzleName;
+        this.startedAt = startedAt;
+        this.endedAt = endedAt;
+        this.moves = moves;
+        this.lastMover = lastMover;
+    }
+
+    public String getTeamId() {
+        return teamId;
+    }
+
+    public int getGameNumber() {
+        return gameNumber;
+    }
+
+    public String getPuzzleName() {
+        return puzzleName;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getEndedAt() {
+        return endedAt;
+    }
+
+    public long getDuration() {
+        return endedAt - startedAt;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public String getLastMover() {
+        return lastMover;
+    }
+}
@@ -1,10 +1,15 @@
 package com.solace.troubleflipper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class PuzzlePiece {
 
     private int index;
 
-    private String selectedBy;
+    // the handle of the client that selected the piece, the game compares selections on it
+    private int selectedByHandle = ClientHandles.NONE;
+    // the client name of the handle, which messages carry
+    private String selectedBy = "";
 
     private long lastSelectTimestamp;
 
@@ -20,12 +25,36 @@ public class PuzzlePiece {
         this.index = index;
     }
 
+    /**
+     * Returns the client name of the selecting client. A piece nobody selected has the empty name, never null, as the
+     * boards the server deals out always had.
+     */
     public String getSelectedBy() {
         return selectedBy;
     }
 
+    // read from messages, the game resolves the name against its team before the piece selects anything
     public void setSelectedBy(String selectedBy) {
-        this.selectedBy = selectedBy;
+        this.selectedBy = selectedBy == null ? "" : selectedBy;
+    }
+
+    @JsonIgnore
+    public int getSelectedByHandle() {
+        return selectedByHandle;
+    }
+
+    public void select(int handle, String clientName) {
+        this.selectedByHandle = handle;
+        this.selectedBy = handle == ClientHandles.NONE ? "" : clientName;
+    }
+
+    public void deselect() {
+        select(ClientHandles.NONE, "");
+    }
+
+    @JsonIgnore
+    public boolean isSelected() {
+        return selectedByHandle != ClientHandles.NONE;
     }
 
     public long getLastSelectTimestamp() {
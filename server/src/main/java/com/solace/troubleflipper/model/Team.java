@@ -12,15 +12,25 @@ public class Team {
     @JsonIgnore
     private Map<CharacterType, Player> characters = new EnumMap<>(CharacterType.class);
     @JsonIgnore
-    private Map<String, Player> playersMap = new HashMap<>();
-    private List<Player> players = new ArrayList<>();
+    // keyed by client handle
+    private Map<Integer, Player> playersMap = new HashMap<>();
+    // copy on write, so messages serialize the players while the team changes
+    private volatile List<Player> players = Collections.emptyList();
     @JsonIgnore
     private Game game;
     private int completedGames = 0;
     private boolean immune = false;
+    @JsonIgnore
+    private final ClientHandles clientHandles;
+
+    public Team(ClientHandles clientHandles) {
+        this(UUID.randomUUID().toString(), clientHandles);
+    }
 
-    public Team() {
-        id = UUID.randomUUID().toString();
+    // copy of a team hosted on another node
+    public Team(String id, ClientHandles clientHandles) {
+        this.id = id;
+        this.clientHandles = clientHandles;
     }
 
     public String getId() {
@@ -63,15 +73,30 @@ public class Team {
         }
     }
 
+    // the puzzle the team plays after the current one
+    public String peekNextPuzzleName() {
+        if (this.puzzleNames == null || this.puzzleNames.isEmpty()) {
+            return null;
+        }
+        return this.puzzleNames.get(0);
+    }
+
     public void addPlayer(Player player) {
-        playersMap.put(player.getClientName(), player);
-        players.add(player);
+        playersMap.put(player.getHandle(), player);
+        clientHandles.joinTeam(player.getHandle(), id);
+        List<Player> newPlayers = new ArrayList<>(players);
+        newPlayers.add(player);
+        players = Collections.unmodifiableList(newPlayers);
         player.setTeam(this);
     }
 
     public void removePlayer(Player player) {
-        playersMap.remove(player.getClientName());
-        players.remove(player);
+        if (playersMap.remove(player.getHandle(), player)) {
+            clientHandles.leaveTeam(player.getHandle(), id);
+        }
+        List<Player> newPlayers = new ArrayList<>(players);
+        newPlayers.remove(player);
+        players = Collections.unmodifiableList(newPlayers);
         player.setTeam(null);
     }
 
@@ -90,7 +115,11 @@ public class Team {
     }
 
     public Player getPlayer(String clientName) {
-        return playersMap.get(clientName);
+        return getPlayer(clientHandles.find(clientName));
+    }
+
+    public Player getPlayer(int handle) {
+        return playersMap.get(handle);
     }
 
     public Player getPlayer(CharacterType characterType) {
@@ -109,6 +138,10 @@ public class Team {
         return completedGames;
     }
 
+    public void setCompletedGames(int completedGames) {
+        this.completedGames = completedGames;
+    }
+
     private Character createCharacter(CharacterType characterType) {
         Character character;
         switch (characterType) {
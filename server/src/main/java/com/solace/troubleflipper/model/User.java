@@ -1,18 +1,23 @@
 package com.solace.troubleflipper.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.UUID;
 
 public abstract class User {
-    private final String id;
+    // kept as two longs, the string is only built for the clients
+    private final UUID id;
     private String clientName;
+    @JsonIgnore
+    private int handle = ClientHandles.NONE;
     private String gamerTag;
 
     User() {
-        id = UUID.randomUUID().toString();
+        id = UUID.randomUUID();
     }
 
     public String getId() {
-        return id;
+        return id.toString();
     }
 
     public String getClientName() {
@@ -21,6 +26,26 @@ public abstract class User {
 
     public void setClientName(String clientName) {
         this.clientName = clientName;
+        // the name has no handle until the player is registered
+        this.handle = ClientHandles.NONE;
+    }
+
+    // the handle of the client name, see ClientHandles
+    @JsonIgnore
+    public int getHandle() {
+        return handle;
+    }
+
+    /**
+     * Holds the handle of the client name while the player is registered, or hosted for another node.
+     */
+    public void acquireHandle(ClientHandles clientHandles) {
+        handle = clientHandles.acquire(clientName);
+    }
+
+    // the player keeps the handle value, so it can still be taken out of its team
+    public void releaseHandle(ClientHandles clientHandles) {
+        clientHandles.release(handle);
     }
 
     public String getGamerTag() {
@@ -3,16 +3,62 @@ package com.solace.troubleflipper.properties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
-import java.util.HashSet;
-import java.util.Random;
-import java.util.Set;
+import java.util.*;
 
 @ConfigurationProperties("tournament")
 @Component
 public class TournamentProperties {
     private int playersPerTeam;
-    private Set<String> teamNamesUsed = new HashSet<>();
     private int puzzleSize = 5;
+    // 0 broadcasts every player on score/players, otherwise only the top players are sent there
+    private int leaderboardSize = 0;
+    private int leaderboardPageSize = 50;
+    private int registrationBatchSize = 500;
+    // milliseconds between two tournament update messages while players are registering
+    private long registrationWindow = 250;
+    // send versioned roster deltas on tournament/roster instead of the full roster on tournament/update
+    private boolean rosterDeltas = false;
+    private int teamSetupParallelism = Runtime.getRuntime().availableProcessors();
+    // partitioned mode: every node of the cluster, the first one is the coordinator. Empty runs a single node
+    private List<String> nodes = new ArrayList<>();
+    private String nodeId = "";
+    private int virtualNodes = 64;
+    // the primary publishes its state on the replication topic, a standby follows it and takes over when it stops
+    private boolean replication = false;
+    private boolean standby = false;
+    private long heartbeatInterval = 500;
+    private long failoverTimeout = 2000;
+    // time between winning a game and the start of the next one
+    private long nextGameDelay = 3000;
+    // a selected piece is released after this long
+    private long selectionTimeout = 10000;
+    // how often the tournament checks whether every team picked its characters
+    private long characterSelectionInterval = 2000;
+    private long yoshiGuardDuration = 10000;
+    // puzzle images are cut into tiles for the clients when set
+    private String puzzleImageDirectory = "";
+    private String tileDirectory = "tiles";
+    // game messages per second and burst size, for each client and each team. A rate of 0 turns the limit off
+    private double clientMessageRate = 20;
+    private int clientMessageBurst = 40;
+    private double teamMessageRate = 100;
+    private int teamMessageBurst = 200;
+    // state queries, roster snapshots and leaderboard queries per second and burst size, for each room
+    private double queryMessageRate = 20;
+    private int queryMessageBurst = 40;
+    // messages are sent by priority from a queue of this size, 0 sends them on the publishing thread
+    private long outboundQueueBytes = 16 * 1024 * 1024;
+    private long publishTimeout = 1000;
+    // sessions that publish, every topic is sent on one of them by the hash of its name
+    private int producerSessions = 1;
+    // game messages a room handles in a row before a waiting registration, control messages always go first
+    private int gameplayLaneWeight = 4;
+    // board changes a game keeps for players who reconnect, older players get the whole board
+    private int catchUpChanges = 64;
+    // rooms a server runs besides the default one
+    private int maxRooms = 16;
+    // client ids of the game masters, only they may create and close rooms
+    private Set<String> gameMasters = new HashSet<>();
 
     public int getPlayersPerTeam() {
         return playersPerTeam;
@@ -22,67 +68,267 @@ public class TournamentProperties {
         this.playersPerTeam = playersPerTeam;
     }
 
-    private String[] teamNamesPart_1 = {
-        "Meandering", "Snippy", "Sliding", "Wavering", "Indecisive", "Messy",
-        "Splattered", "Wide-eyed", "Burnt", "Toasted", "Spoiled", "Drooling",
-        "Flipperdy", "Restless", "Left Over", "Sprinkled",
-        "Slushy", "Muddy", "Oiled", "Buggy"
-        };
+    public int getPuzzleSize() {
+        return puzzleSize;
+    }
 
-    private String[] teamNamesPart_2 = {
-        "Peaches", "Gang", "Flippers", "Toads",
-        "Toadettes", "Koopalings", "Piranhas", "Warts", "Waluigis",
-        "Kongs", "Birdos", "Lumas", "Diddys", "Magikoopas"
-        };
+    public void setPuzzleSize(int puzzleSize) {
+        this.puzzleSize = puzzleSize;
+    }
 
-    public void resetTeamNamesUsed() {
-        this.teamNamesUsed.clear();
+    public int getLeaderboardSize() {
+        return leaderboardSize;
     }
 
-    public String getNewTeamName() {
-        Random randomGen = new Random();
-        int    fNameCount = teamNamesPart_1.length;
-        int    lNameCount = teamNamesPart_2.length;
-        int totalNames = fNameCount * lNameCount;
+    public void setLeaderboardSize(int leaderboardSize) {
+        this.leaderboardSize = leaderboardSize;
+    }
 
-        String newName = null;
-        
-        while (newName == null && this.teamNamesUsed.size() <= totalNames) {
-            int fNameIndex = randomGen.nextInt(fNameCount);
-            String fName = teamNamesPart_1[fNameIndex];
+    public int getRegistrationBatchSize() {
+        return registrationBatchSize;
+    }
 
-            int lNameIndex = randomGen.nextInt(lNameCount);
-            String lName = teamNamesPart_2[lNameIndex];
+    public void setRegistrationBatchSize(int registrationBatchSize) {
+        this.registrationBatchSize = registrationBatchSize;
+    }
 
-            String tempName = fName + " " + lName;
+    public long getRegistrationWindow() {
+        return registrationWindow;
+    }
 
-            // checking for presence of an item in an array, this way, requires Java 8
-//            if (!this.teamNamesUsed.contains(tempName)) {
-                boolean checkAdd = this.teamNamesUsed.add(tempName);
-                if (checkAdd) {
-                    newName = tempName;
-                    return newName;
-                }
-//            }
-        }
+    public void setRegistrationWindow(long registrationWindow) {
+        this.registrationWindow = registrationWindow;
+    }
 
-        return newName;
+    public boolean isRosterDeltas() {
+        return rosterDeltas;
     }
 
-    //public String[] getTeamNames() {
-    //    return teamNames;
-    //}
+    public void setRosterDeltas(boolean rosterDeltas) {
+        this.rosterDeltas = rosterDeltas;
+    }
 
-    //public void setTeamNames(String[] teamNames) {
-    //    this.teamNames = teamNames;
-    //}
+    public int getTeamSetupParallelism() {
+        return teamSetupParallelism;
+    }
 
+    public void setTeamSetupParallelism(int teamSetupParallelism) {
+        this.teamSetupParallelism = teamSetupParallelism;
+    }
 
-    public int getPuzzleSize() {
-        return puzzleSize;
+    public int getLeaderboardPageSize() {
+        return leaderboardPageSize;
     }
 
-    public void setPuzzleSize(int puzzleSize) {
-        this.puzzleSize = puzzleSize;
+    public void setLeaderboardPageSize(int leaderboardPageSize) {
+        this.leaderboardPageSize = leaderboardPageSize;
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    public void setNodes(List<String> nodes) {
+        this.nodes = nodes;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public boolean isReplication() {
+        return replication;
+    }
+
+    public void setReplication(boolean replication) {
+        this.replication = replication;
+    }
+
+    public boolean isStandby() {
+        return standby;
+    }
+
+    public void setStandby(boolean standby) {
+        this.standby = standby;
+    }
+
+    public long getHeartbeatInterval() {
+        return heartbeatInterval;
+    }
+
+    public void setHeartbeatInterval(long heartbeatInterval) {
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    public long getFailoverTimeout() {
+        return failoverTimeout;
+    }
+
+    public void setFailoverTimeout(long failoverTimeout) {
+        this.failoverTimeout = failoverTimeout;
+    }
+
+    public long getNextGameDelay() {
+        return nextGameDelay;
+    }
+
+    public void setNextGameDelay(long nextGameDelay) {
+        this.nextGameDelay = nextGameDelay;
+    }
+
+    public String getPuzzleImageDirectory() {
+        return puzzleImageDirectory;
+    }
+
+    public void setPuzzleImageDirectory(String puzzleImageDirectory) {
+        this.puzzleImageDirectory = puzzleImageDirectory;
+    }
+
+    public String getTileDirectory() {
+        return tileDirectory;
+    }
+
+    public void setTileDirectory(String tileDirectory) {
+        this.tileDirectory = tileDirectory;
+    }
+
+    public double getClientMessageRate() {
+        return clientMessageRate;
+    }
+
+    public void setClientMessageRate(double clientMessageRate) {
+        this.clientMessageRate = clientMessageRate;
+    }
+
+    public int getClientMessageBurst() {
+        return clientMessageBurst;
+    }
+
+    public void setClientMessageBurst(int clientMessageBurst) {
+        this.clientMessageBurst = clientMessageBurst;
+    }
+
+    public double getTeamMessageRate() {
+        return teamMessageRate;
+    }
+
+    public void setTeamMessageRate(double teamMessageRate) {
+        this.teamMessageRate = teamMessageRate;
+    }
+
+    public int getTeamMessageBurst() {
+        return teamMessageBurst;
+    }
+
+    public void setTeamMessageBurst(int teamMessageBurst) {
+        this.teamMessageBurst = teamMessageBurst;
+    }
+
+    public double getQueryMessageRate() {
+        return queryMessageRate;
+    }
+
+    public void setQueryMessageRate(double queryMessageRate) {
+        this.queryMessageRate = queryMessageRate;
+    }
+
+    public int getQueryMessageBurst() {
+        return queryMessageBurst;
+    }
+
+    public void setQueryMessageBurst(int queryMessageBurst) {
+        this.queryMessageBurst = queryMessageBurst;
+    }
+
+    public long getOutboundQueueBytes() {
+        return outboundQueueBytes;
+    }
+
+    public void setOutboundQueueBytes(long outboundQueueBytes) {
+        this.outboundQueueBytes = outboundQueueBytes;
+    }
+
+    public long getPublishTimeout() {
+        return publishTimeout;
+    }
+
+    public void setPublishTimeout(long publishTimeout) {
+        this.publishTimeout = publishTimeout;
+    }
+
+    public int getProducerSessions() {
+        return producerSessions;
+    }
+
+    public void setProducerSessions(int producerSessions) {
+        this.producerSessions = producerSessions;
+    }
+
+    public int getGameplayLaneWeight() {
+        return gameplayLaneWeight;
+    }
+
+    public void setGameplayLaneWeight(int gameplayLaneWeight) {
+        this.gameplayLaneWeight = gameplayLaneWeight;
+    }
+
+    public int getCatchUpChanges() {
+        return catchUpChanges;
+    }
+
+    public void setCatchUpChanges(int catchUpChanges) {
+        this.catchUpChanges = catchUpChanges;
+    }
+
+    public long getSelectionTimeout() {
+        return selectionTimeout;
+    }
+
+    public void setSelectionTimeout(long selectionTimeout) {
+        this.selectionTimeout = selectionTimeout;
+    }
+
+    public long getCharacterSelectionInterval() {
+        return characterSelectionInterval;
+    }
+
+    public void setCharacterSelectionInterval(long characterSelectionInterval) {
+        this.characterSelectionInterval = characterSelectionInterval;
+    }
+
+    public long getYoshiGuardDuration() {
+        return yoshiGuardDuration;
+    }
+
+    public void setYoshiGuardDuration(long yoshiGuardDuration) {
+        this.yoshiGuardDuration = yoshiGuardDuration;
+    }
+
+    public int getMaxRooms() {
+        return maxRooms;
+    }
+
+    public void setMaxRooms(int maxRooms) {
+        this.maxRooms = maxRooms;
+    }
+
+    public Set<String> getGameMasters() {
+        return gameMasters;
+    }
+
+    public void setGameMasters(Set<String> gameMasters) {
+        this.gameMasters = gameMasters;
     }
 }
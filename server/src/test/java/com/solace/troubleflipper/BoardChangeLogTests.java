@@ -0,0 +1,131 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.BoardChange;
+import com.solace.troubleflipper.model.BoardChangeLog;
+import com.solace.troubleflipper.model.PuzzlePiece;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BoardChangeLogTests {
+
+    // the handle of a registered client
+    private static final int CLIENT1 = 1;
+
+    private static List<PuzzlePiece> board(int... indexes) {
+        List<PuzzlePiece> board = new ArrayList<>();
+        for (int index : indexes) {
+            PuzzlePiece puzzlePiece = new PuzzlePiece();
+            puzzlePiece.setIndex(index);
+            puzzlePiece.setSelectedBy("");
+            board.add(puzzlePiece);
+        }
+        return board;
+    }
+
+    @Test
+    public void testOnlyChangedPiecesAreRecorded() {
+        BoardChangeLog changeLog = new BoardChangeLog(4, 100);
+        List<PuzzlePiece> board = board(1, 0, 2, 3);
+        assertEquals(101, changeLog.record(board));
+
+        Collections.swap(board, 0, 1);
+        assertEquals(102, changeLog.record(board));
+        board.get(3).select(CLIENT1, "changelog-client1");
+        assertEquals(103, changeLog.record(board));
+        // nothing changed
+        assertEquals(103, changeLog.record(board));
+
+        List<BoardChange> changes = changeLog.since(101);
+        assertEquals(2, changes.size());
+        assertEquals(102, changes.get(0).getSequence());
+        assertArrayEquals(new int[] {0, 1}, changes.get(0).getPositions());
+        assertEquals(0, changes.get(0).getPieces().get(0).getIndex());
+        assertEquals(1, changes.get(0).getPieces().get(1).getIndex());
+        assertArrayEquals(new int[] {3}, changes.get(1).getPositions());
+        assertEquals("changelog-client1", changes.get(1).getPieces().get(0).getSelectedBy());
+        assertTrue(changeLog.since(103).isEmpty());
+    }
+
+    @Test
+    public void testRecordedPiecesAreCopies() {
+        BoardChangeLog changeLog = new BoardChangeLog(4, 0);
+        List<PuzzlePiece> board = board(1, 0);
+        changeLog.record(board);
+        board.get(0).setIndex(0);
+        board.get(1).setIndex(1);
+
+        assertEquals(1, changeLog.since(0).get(0).getPieces().get(0).getIndex());
+        assertEquals(2, changeLog.record(board));
+    }
+
+    @Test
+    public void testChangesPastTheCapacityAreGone() {
+        BoardChangeLog changeLog = new BoardChangeLog(2, 0);
+        List<PuzzlePiece> board = board(0, 1, 2);
+        changeLog.record(board);
+        Collections.swap(board, 0, 1);
+        changeLog.record(board);
+        Collections.swap(board, 1, 2);
+        changeLog.record(board);
+
+        assertNull(changeLog.since(0));
+        assertEquals(2, changeLog.since(1).size());
+        assertEquals(3, changeLog.since(1).get(1).getSequence());
+    }
+
+    @Test
+    public void testUnknownSequenceGetsNoChanges() {
+        BoardChangeLog changeLog = new BoardChangeLog(4, 1000);
+        changeLog.record(board(0, 1));
+
+        // a sequence of another game
+        assertNull(changeLog.since(5000));
+        assertNull(changeLog.since(5));
+    }
+
+    @Test
+    public void testSnapshotsShareTheUnchangedPieces() {
+        BoardChangeLog changeLog = new BoardChangeLog(4, 0);
+        List<PuzzlePiece> board = board(1, 0, 2, 3);
+        changeLog.record(board);
+        List<PuzzlePiece> first = changeLog.getBoard();
+
+        Collections.swap(board, 0, 1);
+        changeLog.record(board);
+        List<PuzzlePiece> second = changeLog.getBoard();
+
+        assertEquals(1, first.get(0).getIndex());
+        assertEquals(0, second.get(0).getIndex());
+        assertNotSame(first.get(0), second.get(0));
+        assertSame(first.get(2), second.get(2));
+        assertSame(first.get(3), second.get(3));
+        // the change holds the pieces of the snapshot
+        assertSame(second.get(0), changeLog.since(1).get(0).getPieces().get(0));
+        // the board goes on without the snapshot
+        board.get(2).select(CLIENT1, "changelog-client1");
+        assertEquals("", second.get(2).getSelectedBy());
+    }
+
+    @Test
+    public void testSnapshotCannotBeChanged() {
+        BoardChangeLog changeLog = new BoardChangeLog(4, 0);
+        changeLog.record(board(1, 0));
+        try {
+            changeLog.getBoard().remove(0);
+            fail("The snapshot was changed");
+        } catch (UnsupportedOperationException ex) {
+            assertEquals(2, changeLog.getBoard().size());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.PuzzlePiece;
+import com.solace.troubleflipper.model.Team;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClientHandlesTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ClientHandles clientHandles = new ClientHandles();
+
+    @Test
+    public void testNameKeepsItsHandle() {
+        int handle = clientHandles.acquire("client1");
+
+        assertEquals(handle, clientHandles.acquire("client1"));
+        assertEquals(handle, clientHandles.find("client1"));
+        assertNotEquals(handle, clientHandles.acquire("client2"));
+        assertEquals("client1", clientHandles.nameOf(handle));
+        assertEquals(ClientHandles.NONE, clientHandles.acquire(""));
+        assertEquals(ClientHandles.NONE, clientHandles.acquire(null));
+        assertEquals("", clientHandles.nameOf(ClientHandles.NONE));
+        // looking up does not assign
+        assertEquals(ClientHandles.NONE, clientHandles.find("unknown"));
+        assertEquals(ClientHandles.NONE, clientHandles.find("unknown"));
+        assertEquals(2, clientHandles.size());
+    }
+
+    @Test
+    public void testServersKeepTheirOwnHandles() {
+        ClientHandles otherHandles = new ClientHandles();
+        int handle = clientHandles.acquire("client1");
+        otherHandles.acquire("client2");
+        int otherHandle = otherHandles.acquire("client1");
+
+        assertNotEquals(handle, otherHandle);
+        assertEquals(ClientHandles.NONE, clientHandles.find("client2"));
+        otherHandles.release(otherHandle);
+        assertEquals(handle, clientHandles.find("client1"));
+        assertEquals(ClientHandles.NONE, otherHandles.find("client1"));
+    }
+
+    @Test
+    public void testConcurrentNamesGetDistinctHandles() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            String clientName = "concurrent" + (i % 1000);
+            futures.add(executor.submit(() -> clientHandles.acquire(clientName)));
+        }
+        Set<Integer> handles = new HashSet<>();
+        for (int i = 0; i < futures.size(); i++) {
+            int handle = futures.get(i).get();
+            assertEquals("concurrent" + (i % 1000), clientHandles.nameOf(handle));
+            handles.add(handle);
+        }
+        executor.shutdown();
+
+        assertEquals(1000, handles.size());
+    }
+
+    @Test
+    public void testHandleIsReleasedByTheLastHolder() {
+        int handle = clientHandles.acquire("released");
+        clientHandles.acquire("released");
+
+        clientHandles.release(handle);
+        assertEquals(handle, clientHandles.find("released"));
+        clientHandles.release(handle);
+        assertEquals(ClientHandles.NONE, clientHandles.find("released"));
+        assertEquals("", clientHandles.nameOf(handle));
+        // not handed out again right away
+        assertNotEquals(handle, clientHandles.acquire("next"));
+    }
+
+    @Test
+    public void testRegistryReleasesTheHandleOfARemovedPlayer() {
+        PlayerRegistry registry = new PlayerRegistry(clientHandles);
+        Player player = new Player();
+        player.setClientName("registered");
+        assertEquals(ClientHandles.NONE, player.getHandle());
+
+        assertNull(registry.putIfAbsent(player));
+        assertNotEquals(ClientHandles.NONE, player.getHandle());
+        assertSame(player, registry.get("registered"));
+        registry.remove(player);
+        assertEquals(ClientHandles.NONE, clientHandles.find("registered"));
+        assertEquals(0, clientHandles.size());
+    }
+
+    @Test
+    public void testPiecesFromMessagesOnlyCarryTheName() throws Exception {
+        clientHandles.acquire("client3");
+        for (int i = 0; i < 100; i++) {
+            PuzzlePiece puzzlePiece = objectMapper.readValue("{\"index\":3,\"selectedBy\":\"flood" + i + "\"}",
+                    PuzzlePiece.class);
+            assertEquals("flood" + i, puzzlePiece.getSelectedBy());
+            assertFalse(puzzlePiece.isSelected());
+        }
+        PuzzlePiece puzzlePiece = objectMapper.readValue("{\"index\":3,\"selectedBy\":\"client3\"}", PuzzlePiece.class);
+        assertEquals(ClientHandles.NONE, puzzlePiece.getSelectedByHandle());
+        assertEquals(1, clientHandles.size());
+    }
+
+    @Test
+    public void testPieceIsSerializedWithTheClientName() throws Exception {
+        int handle = clientHandles.acquire("client3");
+        PuzzlePiece puzzlePiece = new PuzzlePiece();
+        puzzlePiece.setIndex(3);
+        puzzlePiece.select(handle, "client3");
+        assertTrue(puzzlePiece.isSelected());
+
+        JsonNode json = objectMapper.valueToTree(puzzlePiece);
+        assertEquals("client3", json.get("selectedBy").asText());
+        assertFalse(json.has("selectedByHandle"));
+        assertFalse(json.has("selected"));
+        puzzlePiece.deselect();
+        assertFalse(puzzlePiece.isSelected());
+        // nobody selected the piece
+        assertEquals("", objectMapper.valueToTree(puzzlePiece).get("selectedBy").textValue());
+    }
+
+    @Test
+    public void testTeamFindsPlayersByHandle() {
+        Team team = new Team("team", clientHandles);
+        Player player = new Player();
+        player.setClientName("client4");
+        player.acquireHandle(clientHandles);
+        team.addPlayer(player);
+
+        assertSame(player, team.getPlayer(player.getHandle()));
+        assertSame(player, team.getPlayer("client4"));
+        assertNull(team.getPlayer("client5"));
+        JsonNode json = objectMapper.valueToTree(player);
+        assertEquals(player.getId(), json.get("id").asText());
+        assertFalse(json.has("handle"));
+
+        team.removePlayer(player);
+        assertNull(team.getPlayer(player.getHandle()));
+    }
+}
@@ -0,0 +1,166 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.messages.PickCharacterMessage;
+import com.solace.troubleflipper.messages.ReplicationMessage;
+import com.solace.troubleflipper.model.CharacterType;
+import com.solace.troubleflipper.model.PuzzlePiece;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class FailoverTests {
+
+    private static final int PLAYERS = 50;
+    private static final int PLAYERS_PER_TEAM = 5;
+    private static final long HEARTBEAT_INTERVAL = 100;
+    private static final long FAILOVER_TIMEOUT = 500;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoopbackBroker broker = new LoopbackBroker();
+
+    @Test
+    public void testStandbyTakesOverRunningGames() throws Exception {
+        LoopbackSession primarySession = broker.createSession();
+        RoomManager primary = createRoomManager(primarySession, false);
+        LoopbackSession standbySession = broker.createSession();
+        RoomManager standby = createRoomManager(standbySession, true);
+        Tournament tournament = primary.getTournament(RoomManager.DEFAULT_ROOM);
+        Tournament standbyTournament = standby.getTournament(RoomManager.DEFAULT_ROOM);
+        assertFalse(standbyTournament.isActive());
+        assertFalse(standbySession.isSubscribed("users"));
+
+        for (int i = 0; i < PLAYERS; i++) {
+            AddUserMessage addUserMessage = new AddUserMessage();
+            addUserMessage.setClientId("client" + i);
+            addUserMessage.setUsername("player" + i);
+            broker.publish("users", objectMapper.writeValueAsBytes(addUserMessage));
+        }
+        waitFor(() -> tournament.getRegistrationPipeline().getAdmitted() == PLAYERS);
+        tournament.buildTeams();
+        for (Team team : tournament.getTeams()) {
+            PickCharacterMessage pickCharacterMessage = new PickCharacterMessage();
+            pickCharacterMessage.setClientId("");
+            pickCharacterMessage.setCharacterType(CharacterType.mario);
+            broker.publish("games/" + team.getId() + "/pickCharacter", objectMapper.writeValueAsBytes(pickCharacterMessage));
+        }
+        waitFor(tournament::isGameStarted);
+
+        // wait for the boards to be replicated, then stop the primary like a crash would
+        Thread.sleep(3 * HEARTBEAT_INTERVAL);
+        List<Team> teams = tournament.getTeams();
+        List<List<Integer>> boards = new ArrayList<>();
+        for (Team team : teams) {
+            boards.add(indexes(team.getGame().getPuzzle()));
+        }
+        broker.disconnect(primarySession);
+        long crash = System.currentTimeMillis();
+        waitFor(standbyTournament::isActive);
+        long failover = System.currentTimeMillis() - crash;
+        assertTrue("Failover took " + failover + " ms", failover < FAILOVER_TIMEOUT + 4 * HEARTBEAT_INTERVAL);
+
+        assertTrue(standbyTournament.isGameStarted());
+        assertEquals(tournament.getEpoch() + 1, standbyTournament.getEpoch());
+        assertTrue(standbySession.isSubscribed("users"));
+        assertTrue(standbySession.isSubscribed("games/" + teams.get(0).getId()));
+        for (int i = 0; i < teams.size(); i++) {
+            Team restoredTeam = standbyTournament.getTeam(teams.get(i).getId());
+            assertNotNull(restoredTeam);
+            assertEquals(teams.get(i).getPlayers().size(), restoredTeam.getPlayers().size());
+            assertEquals(boards.get(i), indexes(restoredTeam.getGame().getPuzzle()));
+            assertTrue(standbySession.getPublishedTopics().contains("team/" + restoredTeam.getId()));
+        }
+    }
+
+    @Test
+    public void testStandbyTakesOverAfterTheTimeoutOnTheClock() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1);
+        LoopbackSession session = new LoopbackSession();
+        Publisher publisher = new Publisher(session.getSession(), objectMapper, new LastValueCache());
+        Subscriber subscriber = new Subscriber(session.getSession(), objectMapper, publisher);
+        AtomicInteger takeOvers = new AtomicInteger();
+        StandbyReplica standbyReplica = new StandbyReplica(subscriber, HEARTBEAT_INTERVAL, FAILOVER_TIMEOUT,
+                takeOvers::incrementAndGet, clock);
+
+        for (int sequence = 1; sequence <= 10; sequence++) {
+            clock.advance(HEARTBEAT_INTERVAL);
+            replicate(session, 1, sequence);
+        }
+        // a new primary fenced off the old one, whose late messages are ignored
+        replicate(session, 2, 1);
+        replicate(session, 1, 11);
+        assertEquals(2, standbyReplica.getEpoch());
+        assertEquals(1, standbyReplica.getLastSequence());
+
+        clock.advance(FAILOVER_TIMEOUT);
+        assertEquals(0, takeOvers.get());
+        clock.advance(HEARTBEAT_INTERVAL);
+        assertEquals(1, takeOvers.get());
+        clock.advance(10 * HEARTBEAT_INTERVAL);
+        assertEquals(1, takeOvers.get());
+    }
+
+    @Test
+    public void testPrimaryStepsDownForAHigherEpoch() throws Exception {
+        LoopbackSession primarySession = broker.createSession();
+        RoomManager primary = createRoomManager(primarySession, false);
+        Tournament tournament = primary.getTournament(RoomManager.DEFAULT_ROOM);
+        assertTrue(primarySession.isSubscribed("replication"));
+
+        // its own messages do not count
+        waitFor(() -> primarySession.getPublishedTopics().contains("replication"));
+        assertTrue(tournament.isActive());
+
+        // a standby took the room over while the primary was paused
+        replicate(primarySession, tournament.getEpoch() + 1, 1);
+        waitFor(() -> !tournament.isActive());
+        assertFalse(primarySession.isSubscribed("users"));
+        assertFalse(primarySession.isSubscribed("replication"));
+    }
+
+    private void replicate(LoopbackSession session, long epoch, long sequence) throws Exception {
+        ReplicationMessage replicationMessage = new ReplicationMessage();
+        replicationMessage.setEpoch(epoch);
+        replicationMessage.setSequence(sequence);
+        replicationMessage.setFull(true);
+        session.deliver("replication", objectMapper.writeValueAsBytes(replicationMessage));
+    }
+
+    private RoomManager createRoomManager(LoopbackSession session, boolean standby) throws Exception {
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPlayersPerTeam(PLAYERS_PER_TEAM);
+        tournamentProperties.setReplication(true);
+        tournamentProperties.setStandby(standby);
+        tournamentProperties.setHeartbeatInterval(HEARTBEAT_INTERVAL);
+        tournamentProperties.setFailoverTimeout(FAILOVER_TIMEOUT);
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(session.getSession(), objectMapper, lastValueCache);
+        Subscriber subscriber = new Subscriber(session.getSession(), objectMapper, publisher);
+        return new RoomManager(tournamentProperties, subscriber, publisher, lastValueCache);
+    }
+
+    private static List<Integer> indexes(List<PuzzlePiece> puzzle) {
+        List<Integer> indexes = new ArrayList<>(puzzle.size());
+        puzzle.forEach(puzzlePiece -> indexes.add(puzzlePiece.getIndex()));
+        return indexes;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue("Condition not met in time", condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,450 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.messages.PlayerSnapshot;
+import com.solace.troubleflipper.model.CharacterType;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Game;
+import com.solace.troubleflipper.model.GameSummary;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.PuzzlePiece;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.XMLMessageListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Timer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<JsonNode> acks = Collections.synchronizedList(new ArrayList<>());
+    private final List<JsonNode> boards = Collections.synchronizedList(new ArrayList<>());
+    private final ClientHandles clientHandles = new ClientHandles();
+
+    private LoopbackSession serverSession;
+    private Subscriber subscriber;
+    private Publisher publisher;
+    private TournamentProperties tournamentProperties;
+    private Timer timer;
+    private Team team;
+    private Player player;
+    private Game game;
+
+    @Before
+    public void setUp() throws Exception {
+        LoopbackBroker broker = new LoopbackBroker();
+        serverSession = broker.createSession();
+        LoopbackSession clientSession = broker.createSession();
+        clientSession.getSession().getMessageConsumer(new XMLMessageListener() {
+            @Override
+            public void onReceive(BytesXMLMessage message) {
+                byte[] payload = new byte[message.getAttachmentContentLength()];
+                message.readAttachmentBytes(payload);
+                try {
+                    JsonNode json = objectMapper.readTree(payload);
+                    (message.getDestination().getName().startsWith("user/") ? acks : boards).add(json);
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+
+            @Override
+            public void onException(JCSMPException ex) {
+            }
+        });
+        clientSession.getSession().addSubscription(JCSMPFactory.onlyInstance().createTopic("user/>"));
+        clientSession.getSession().addSubscription(JCSMPFactory.onlyInstance().createTopic("team/>"));
+
+        publisher = new Publisher(serverSession.getSession(), objectMapper, new LastValueCache());
+        subscriber = new Subscriber(serverSession.getSession(), objectMapper, publisher);
+        tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPuzzleSize(3);
+        team = new Team("team1", clientHandles);
+        team.setName("Team 1");
+        player = new Player();
+        player.setClientName("client1");
+        // registered, so the name has a handle
+        player.acquireHandle(clientHandles);
+        player.setGamerTag("player1");
+        team.addPlayer(player);
+        timer = new Timer(true);
+        game = new Game(team, subscriber, publisher, timer, tournamentProperties, null);
+        // two pairs of pieces are swapped
+        game.start(board(1, 0, 3, 2, 4, 5, 6, 7, 8));
+    }
+
+    @After
+    public void tearDown() {
+        timer.cancel();
+    }
+
+    private static List<PuzzlePiece> board(int... indexes) {
+        List<PuzzlePiece> board = new ArrayList<>();
+        for (int index : indexes) {
+            PuzzlePiece puzzlePiece = new PuzzlePiece();
+            puzzlePiece.setIndex(index);
+            puzzlePiece.setSelectedBy("");
+            board.add(puzzlePiece);
+        }
+        return board;
+    }
+
+    private void swap(int index1, int index2, Long boardVersion, String moveId) {
+        String message = "{\"piece1\":{\"index\":" + index1 + "},\"piece2\":{\"index\":" + index2 + "}," +
+                "\"clientId\":\"client1\",\"boardVersion\":" + boardVersion + ",\"moveId\":" +
+                (moveId == null ? "null" : "\"" + moveId + "\"") + "}";
+        serverSession.deliver("games/team1", message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<Integer> getPositions() {
+        List<Integer> positions = new ArrayList<>();
+        for (PuzzlePiece puzzlePiece : game.getPuzzle()) {
+            positions.add(puzzlePiece.getIndex());
+        }
+        return positions;
+    }
+
+    private JsonNode lastAck() {
+        assertFalse(acks.isEmpty());
+        return acks.get(acks.size() - 1);
+    }
+
+    @Test
+    public void testMoveOnCurrentBoardIsAccepted() {
+        swap(1, 0, 0L, "move1");
+
+        JsonNode ack = lastAck();
+        assertEquals("move1", ack.get("moveId").asText());
+        assertTrue(ack.get("accepted").asBoolean());
+        assertEquals(1, ack.get("boardVersion").asLong());
+        assertFalse(ack.has("puzzle"));
+        assertEquals(1, game.getBoardVersion());
+        assertEquals(Integer.valueOf(0), getPositions().get(0));
+        assertEquals(1, boards.size());
+        assertEquals(1, boards.get(0).get("boardVersion").asLong());
+    }
+
+    @Test
+    public void testStaleMoveOfMovedPieceIsRejectedWithTheBoard() {
+        swap(1, 0, 0L, "move1");
+        List<Integer> positions = getPositions();
+
+        // made on version 0, piece 0 moved in version 1
+        swap(0, 3, 0L, "move2");
+
+        JsonNode ack = lastAck();
+        assertEquals("move2", ack.get("moveId").asText());
+        assertFalse(ack.get("accepted").asBoolean());
+        assertEquals(1, ack.get("boardVersion").asLong());
+        assertEquals(9, ack.get("puzzle").size());
+        assertEquals(0, ack.get("puzzle").get(0).get("index").asInt());
+        assertEquals(positions, getPositions());
+        assertEquals(1, game.getBoardVersion());
+        // nothing changed for the team
+        assertEquals(1, boards.size());
+    }
+
+    @Test
+    public void testStaleMoveOfUntouchedPiecesIsAccepted() {
+        swap(1, 0, 0L, "move1");
+        swap(3, 2, 0L, "move2");
+
+        JsonNode ack = lastAck();
+        assertTrue(ack.get("accepted").asBoolean());
+        assertEquals(2, ack.get("boardVersion").asLong());
+        assertEquals(2, game.getBoardVersion());
+    }
+
+    @Test
+    public void testMoveFromTheFutureIsRejected() {
+        swap(1, 0, 5L, "move1");
+
+        assertFalse(lastAck().get("accepted").asBoolean());
+        assertEquals(0, game.getBoardVersion());
+    }
+
+    @Test
+    public void testShuffleInvalidatesEveryPiece() {
+        Player bowser = new Player();
+        bowser.setClientName("client2");
+        bowser.setGamerTag("bowser");
+        new Team("team2", clientHandles).addPlayer(bowser);
+        assertTrue(game.troubleFlipper(bowser));
+        assertEquals(1, game.getBoardVersion());
+
+        swap(3, 2, 0L, "move1");
+        assertFalse(lastAck().get("accepted").asBoolean());
+        swap(3, 2, 1L, "move2");
+        assertTrue(lastAck().get("accepted").asBoolean());
+    }
+
+    @Test
+    public void testMoveWithoutVersionIsAppliedAsBefore() {
+        swap(1, 0, null, null);
+
+        assertTrue(acks.isEmpty());
+        assertEquals(1, game.getBoardVersion());
+        assertEquals(Integer.valueOf(0), getPositions().get(0));
+        assertEquals(1, boards.size());
+    }
+
+    @Test
+    public void testReconnectingPlayerGetsOnlyTheMissedChanges() {
+        swap(1, 0, null, null);
+        long sequence = boards.get(0).get("sequence").asLong();
+        swap(4, 5, null, null);
+
+        game.catchUp("client1", sequence);
+        JsonNode catchUp = lastAck();
+        assertFalse(catchUp.has("puzzle"));
+        assertEquals(boards.get(1).get("sequence").asLong(), catchUp.get("sequence").asLong());
+        assertEquals(1, catchUp.get("changes").size());
+        JsonNode change = catchUp.get("changes").get(0);
+        assertEquals(2, change.get("positions").size());
+        assertEquals(4, change.get("positions").get(0).asInt());
+        assertEquals(5, change.get("pieces").get(0).get("index").asInt());
+    }
+
+    @Test
+    public void testUnknownSequenceGetsTheBoard() {
+        swap(1, 0, null, null);
+
+        game.catchUp("client1", null);
+        assertEquals(9, lastAck().get("puzzle").size());
+        assertFalse(lastAck().has("changes"));
+        game.catchUp("client1", 42L);
+        assertEquals(9, lastAck().get("puzzle").size());
+    }
+
+    @Test
+    public void testSequenceOfAnEarlierGameGetsTheBoard() {
+        VirtualClock clock = new VirtualClock(1000, 1);
+        Timer virtualTimer = clock.newTimer("GameTests");
+        Game game1 = new Game(team, subscriber, publisher, virtualTimer, tournamentProperties, null, clock);
+        game1.start(board(1, 0, 3, 2, 4, 5, 6, 7, 8));
+        game1.catchUp("client1", null);
+        long sequence = lastAck().get("sequence").asLong();
+        game1.stop();
+
+        // created at the same instant
+        Game game2 = new Game(team, subscriber, publisher, virtualTimer, tournamentProperties, null, clock);
+        game2.start(board(1, 0, 3, 2, 4, 5, 6, 7, 8));
+        game2.catchUp("client1", sequence);
+        assertEquals(9, lastAck().get("puzzle").size());
+        assertFalse(lastAck().has("changes"));
+        game2.stop();
+    }
+
+    @Test
+    public void testSummaryKeepsTheMoves() {
+        game.setPuzzleName("puzzle1.jpg");
+        swap(1, 0, 0L, "move1");
+        // rejected, piece 0 moved in version 1
+        swap(0, 3, 0L, "move2");
+        swap(3, 2, 1L, "move3");
+        team.addCompletedGame();
+
+        GameSummary summary = game.summarize();
+        assertEquals("team1", summary.getTeamId());
+        assertEquals(1, summary.getGameNumber());
+        assertEquals("puzzle1.jpg", summary.getPuzzleName());
+        assertEquals(2, summary.getMoves());
+        assertEquals("client1", summary.getLastMover());
+        assertTrue(summary.getDuration() >= 0);
+    }
+
+    @Test
+    public void testCompletedGamesKeepOnlySummaries() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 3);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPlayersPerTeam(5);
+        tournamentProperties.setPuzzleSize(3);
+        LoopbackBroker broker = new LoopbackBroker();
+        LoopbackSession session = broker.createSession();
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(session.getSession(), objectMapper, lastValueCache);
+        Subscriber subscriber = new Subscriber(session.getSession(), objectMapper, publisher);
+        Tournament tournament = new Tournament("", tournamentProperties, subscriber, publisher, lastValueCache, null, clock);
+        tournament.activate();
+        subscriber.subscribe("users");
+        subscriber.subscribe("games/>");
+        for (int i = 0; i < 5; i++) {
+            AddUserMessage addUserMessage = new AddUserMessage();
+            addUserMessage.setClientId("summary-client" + i);
+            addUserMessage.setUsername("player" + i);
+            broker.publish("users", objectMapper.writeValueAsBytes(addUserMessage));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (tournament.getRegistrationPipeline().getAdmitted() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        tournament.buildTeams();
+        for (int second = 0; second < 60 && !tournament.isGameStarted(); second++) {
+            clock.advance(1000);
+        }
+        assertTrue(tournament.isGameStarted());
+
+        Team team = tournament.getTeams().get(0);
+        String clientName = team.getPlayers().get(0).getClientName();
+        List<String> puzzleNames = new ArrayList<>();
+        List<Integer> moves = new ArrayList<>();
+        List<Long> endedAt = new ArrayList<>();
+        List<WeakReference<Game>> finishedGames = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            finishedGames.add(playToCompletion(broker, clock, team, clientName, puzzleNames, moves));
+            endedAt.add(clock.millis());
+            // the next game starts after the delay
+            clock.advance(tournamentProperties.getNextGameDelay());
+        }
+
+        List<GameSummary> summaries = tournament.getCompletedGames(team.getId());
+        assertEquals(2, summaries.size());
+        for (int i = 0; i < 2; i++) {
+            GameSummary summary = summaries.get(i);
+            assertEquals(team.getId(), summary.getTeamId());
+            assertEquals(i, summary.getGameNumber());
+            assertEquals(puzzleNames.get(i), summary.getPuzzleName());
+            assertEquals((int) moves.get(i), summary.getMoves());
+            assertEquals(clientName, summary.getLastMover());
+            assertEquals((long) endedAt.get(i), summary.getEndedAt());
+            // every move took 100 ms
+            assertTrue(summary.getDuration() >= 100 * moves.get(i));
+        }
+        assertEquals(2, team.getCompletedGames());
+
+        // nothing but the summary holds on to a finished game
+        for (int attempt = 0; attempt < 50 && finishedGames.stream().anyMatch(game -> game.get() != null); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        for (WeakReference<Game> finishedGame : finishedGames) {
+            assertNull(finishedGame.get());
+        }
+        tournament.close();
+    }
+
+    // swaps every misplaced piece into place, one move every 100 ms of the clock
+    private WeakReference<Game> playToCompletion(LoopbackBroker broker, VirtualClock clock, Team team,
+                                                 String clientName, List<String> puzzleNames, List<Integer> moves) {
+        Game game = team.getGame();
+        puzzleNames.add(game.getPuzzleName());
+        int moveCount = 0;
+        List<PuzzlePiece> puzzle = game.getPuzzle();
+        for (int position = 0; position < puzzle.size(); position++) {
+            int index = puzzle.get(position).getIndex();
+            if (index != position) {
+                clock.advance(100);
+                String message = "{\"piece1\":{\"index\":" + index + "},\"piece2\":{\"index\":" + position + "}," +
+                        "\"clientId\":\"" + clientName + "\"}";
+                broker.publish("games/" + team.getId(), message.getBytes(StandardCharsets.UTF_8));
+                moveCount++;
+                puzzle = game.getPuzzle();
+            }
+        }
+        assertTrue(moveCount > 0);
+        assertTrue(game.isGameOver());
+        moves.add(moveCount);
+        return new WeakReference<>(game);
+    }
+
+    @Test
+    public void testBoardsAreSerializedWhileMovesGoOn() throws Exception {
+        List<Thread> movers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Random random = new Random(i);
+            Thread mover = new Thread(() -> {
+                for (int move = 0; move < 500; move++) {
+                    // leaves piece 0 and 1 in place, so the game is never won
+                    swap(2 + random.nextInt(7), 2 + random.nextInt(7), null, null);
+                }
+            });
+            movers.add(mover);
+            mover.start();
+        }
+        for (Thread mover : movers) {
+            mover.join();
+        }
+
+        assertFalse(boards.isEmpty());
+        synchronized (boards) {
+            for (JsonNode board : boards) {
+                Set<Integer> indexes = new HashSet<>();
+                board.get("puzzle").forEach(piece -> indexes.add(piece.get("index").asInt()));
+                assertEquals(9, indexes.size());
+                assertEquals(1, board.get("players").size());
+            }
+        }
+    }
+
+    @Test
+    public void testBoardVersionMatchesTheBoardAndThePlayers() throws Exception {
+        List<Thread> movers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Random random = new Random(i);
+            Thread mover = new Thread(() -> {
+                for (int move = 0; move < 500; move++) {
+                    swap(2 + random.nextInt(7), 2 + random.nextInt(7), null, null);
+                }
+            });
+            movers.add(mover);
+            mover.start();
+        }
+        for (Thread mover : movers) {
+            mover.join();
+        }
+
+        // every message of a version shows the board and the moves of that version
+        Map<Long, String> seen = new HashMap<>();
+        synchronized (boards) {
+            for (JsonNode board : boards) {
+                JsonNode player = board.get("players").get(0);
+                String state = board.get("puzzle").toString() + player.get("rightMoves") + "/" + player.get("wrongMoves");
+                String previous = seen.putIfAbsent(board.get("boardVersion").asLong(), state);
+                if (previous != null) {
+                    assertEquals(previous, state);
+                }
+            }
+        }
+        assertTrue(seen.size() > 1);
+    }
+
+    @Test
+    public void testSnapshotKeepsThePlayerAsItWas() {
+        team.chooseCharacter(CharacterType.mario, player);
+        team.addBonusCharacter(CharacterType.yoshi, player);
+        JsonNode live = objectMapper.valueToTree(player);
+        PlayerSnapshot snapshot = PlayerSnapshot.of(player);
+        player.getCharacter().useSuperPower();
+        player.getBonusCharacters().get(CharacterType.yoshi).useSuperPower();
+        player.rightMove();
+
+        // serialized like the player was when it was taken
+        assertEquals(live, objectMapper.valueToTree(snapshot));
+        assertEquals(0, snapshot.getRightMoves());
+        assertEquals(3, snapshot.getCharacter().getSuperPower());
+    }
+}
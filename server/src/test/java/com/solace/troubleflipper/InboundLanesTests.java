@@ -0,0 +1,204 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.StateQueryMessage;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+public class InboundLanesTests {
+
+    private static final int MOVES = 5000;
+
+    @Test
+    public void testTopicsAreClassified() {
+        assertEquals(InboundLanes.Lane.CONTROL, InboundLanes.classify("tournaments"));
+        assertEquals(InboundLanes.Lane.CONTROL, InboundLanes.classify("cluster/node1"));
+        assertEquals(InboundLanes.Lane.CONTROL, InboundLanes.classify("replication"));
+        assertEquals(InboundLanes.Lane.REGISTRATION, InboundLanes.classify("users"));
+        assertEquals(InboundLanes.Lane.GAMEPLAY, InboundLanes.classify("games/team1"));
+        assertEquals(InboundLanes.Lane.GAMEPLAY, InboundLanes.classify("games/team1/selectPiece"));
+        assertEquals(InboundLanes.Lane.QUERY, InboundLanes.classify("state/query"));
+        assertEquals(InboundLanes.Lane.QUERY, InboundLanes.classify("roster/snapshot"));
+        assertEquals(InboundLanes.Lane.QUERY, InboundLanes.classify("leaderboard"));
+    }
+
+    @Test
+    public void testQueriesAreWeightedWithTheGames() throws Exception {
+        InboundLanes lanes = new InboundLanes("Lanes", 2);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        lanes.execute(InboundLanes.Lane.CONTROL, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 1; i <= 3; i++) {
+            String query = "query" + i;
+            lanes.execute(InboundLanes.Lane.QUERY, () -> order.add(query));
+        }
+        for (int i = 1; i <= 4; i++) {
+            String move = "move" + i;
+            lanes.execute(InboundLanes.Lane.GAMEPLAY, () -> order.add(move));
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        lanes.execute(InboundLanes.Lane.QUERY, done::countDown);
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("move1", "move2", "query1", "move3", "move4", "query2", "query3"), order);
+        lanes.shutdown();
+    }
+
+    @Test
+    public void testControlGoesFirstAndRegistrationsAreWeighted() throws Exception {
+        InboundLanes lanes = new InboundLanes("Lanes", 2);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch blocked = new CountDownLatch(1);
+        lanes.execute(InboundLanes.Lane.CONTROL, () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 1; i <= 5; i++) {
+            String move = "move" + i;
+            lanes.execute(InboundLanes.Lane.GAMEPLAY, () -> order.add(move));
+        }
+        lanes.execute(InboundLanes.Lane.REGISTRATION, () -> order.add("user1"));
+        lanes.execute(InboundLanes.Lane.REGISTRATION, () -> order.add("user2"));
+        lanes.execute(InboundLanes.Lane.CONTROL, () -> order.add("stopGames"));
+        CountDownLatch done = new CountDownLatch(1);
+        lanes.execute(InboundLanes.Lane.GAMEPLAY, done::countDown);
+        blocked.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("stopGames", "move1", "move2", "user1", "move3", "move4", "user2", "move5"), order);
+        assertEquals(2, lanes.getHandled(InboundLanes.Lane.CONTROL));
+        assertEquals(6, lanes.getHandled(InboundLanes.Lane.GAMEPLAY));
+        lanes.shutdown();
+    }
+
+    @Test
+    public void testControlMessageOvertakesGameplayBacklog() throws Exception {
+        LoopbackSession loopbackSession = new LoopbackSession();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, new LastValueCache());
+        InboundLanes lanes = new InboundLanes("Room-red", 4);
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher)
+                .forRoom("rooms/red/", lanes);
+        CountDownLatch movesDone = new CountDownLatch(MOVES);
+        subscriber.registerHandler("games/team1", () -> {
+            // a move that takes 200 us
+            long end = System.nanoTime() + 200000;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            movesDone.countDown();
+        });
+        AtomicLong controlHandled = new AtomicLong();
+        CountDownLatch controlDone = new CountDownLatch(1);
+        subscriber.registerHandler("tournaments", () -> {
+            controlHandled.set(System.nanoTime());
+            controlDone.countDown();
+        });
+
+        for (int i = 0; i < MOVES; i++) {
+            loopbackSession.deliver("rooms/red/games/team1", new byte[0]);
+        }
+        long sent = System.nanoTime();
+        loopbackSession.deliver("rooms/red/tournaments", new byte[0]);
+
+        assertTrue(controlDone.await(5, TimeUnit.SECONDS));
+        long latency = (controlHandled.get() - sent) / 1000000;
+        int movesLeft = (int) movesDone.getCount();
+        assertTrue(movesLeft > MOVES / 2);
+        assertTrue(latency < 100);
+        assertTrue(movesDone.await(30, TimeUnit.SECONDS));
+        lanes.shutdown();
+    }
+
+    @Test
+    public void testQueryFloodCannotDelayAControlMessage() throws Exception {
+        LoopbackSession loopbackSession = new LoopbackSession();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, new LastValueCache());
+        InboundLanes lanes = new InboundLanes("Room-red", 4);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setQueryMessageRate(1);
+        Subscriber roomSubscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher);
+        roomSubscriber.setRateLimiter(new RateLimiter(tournamentProperties, new ClientHandles()));
+        Subscriber subscriber = roomSubscriber.forRoom("rooms/red/", lanes);
+        AtomicInteger queries = new AtomicInteger();
+        subscriber.registerRequestHandler(StateQueryMessage.class, "state/query", stateQueryMessage -> {
+            // a query that takes 200 us
+            long end = System.nanoTime() + 200000;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            queries.incrementAndGet();
+            return new byte[0];
+        });
+        CountDownLatch controlDone = new CountDownLatch(1);
+        subscriber.registerHandler("tournaments", controlDone::countDown);
+
+        for (int i = 0; i < MOVES; i++) {
+            loopbackSession.deliver("rooms/red/state/query", "{}".getBytes());
+        }
+        long sent = System.nanoTime();
+        loopbackSession.deliver("rooms/red/tournaments", new byte[0]);
+
+        assertTrue(controlDone.await(5, TimeUnit.SECONDS));
+        assertTrue((System.nanoTime() - sent) / 1000000 < 100);
+        lanes.shutdown();
+        // only the burst of the room got through, the rest was dropped before it was read
+        assertTrue(queries.get() <= tournamentProperties.getQueryMessageBurst() + 5);
+    }
+
+    @Test
+    public void testRequestHandlerRunsOnTheLane() throws Exception {
+        LoopbackSession loopbackSession = new LoopbackSession();
+        ObjectMapper objectMapper = new ObjectMapper();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, new LastValueCache());
+        InboundLanes lanes = new InboundLanes("Room-red", 4);
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher)
+                .forRoom("rooms/red/", lanes);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(1);
+        Thread[] handlerThread = new Thread[1];
+        subscriber.registerRequestHandler(StateQueryMessage.class, "state/query", stateQueryMessage -> {
+            // holds the lane the way a busy room would
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handlerThread[0] = Thread.currentThread();
+            handled.countDown();
+            return new byte[0];
+        });
+
+        loopbackSession.deliver("rooms/red/state/query", "{}".getBytes());
+        release.countDown();
+
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), handlerThread[0]);
+        lanes.shutdown();
+    }
+}
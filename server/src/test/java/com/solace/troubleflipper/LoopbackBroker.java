@@ -0,0 +1,51 @@
+package com.solace.troubleflipper;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process transport for tests with several nodes. A message published on one session is delivered, on the
+ * publishing thread, to every session with a matching subscription, including the publisher.
+ */
+public class LoopbackBroker {
+
+    private final List<LoopbackSession> sessions = new CopyOnWriteArrayList<>();
+
+    public LoopbackSession createSession() {
+        LoopbackSession session = new LoopbackSession(this);
+        sessions.add(session);
+        return session;
+    }
+
+    // like a process that died, the session neither sends nor receives any more
+    public void disconnect(LoopbackSession session) {
+        sessions.remove(session);
+        session.disconnect();
+    }
+
+    public void publish(String topicName, byte[] payload) {
+        for (LoopbackSession session : sessions) {
+            if (session.isSubscribed(topicName)) {
+                session.deliver(topicName, payload);
+            }
+        }
+    }
+
+    // > matches one or more trailing levels, * matches one level
+    static boolean matches(String subscription, String topicName) {
+        String[] subscriptionLevels = subscription.split("/");
+        String[] topicLevels = topicName.split("/");
+        for (int i = 0; i < subscriptionLevels.length; i++) {
+            if (subscriptionLevels[i].equals(">") && i == subscriptionLevels.length - 1) {
+                return topicLevels.length > i;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!subscriptionLevels[i].equals("*") && !subscriptionLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return subscriptionLevels.length == topicLevels.length;
+    }
+}
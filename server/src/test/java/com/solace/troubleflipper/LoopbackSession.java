@@ -0,0 +1,163 @@
+package com.solace.troubleflipper;
+
+import com.solacesystems.jcsmp.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stand-in for a broker session in tests. Published messages are counted and dropped, or routed to the sessions of
+ * a {@link LoopbackBroker}, and messages handed to {@link #deliver(String, byte[])} go straight to the session's
+ * consumer. The session's own subscriptions and the topics published on are recorded.
+ */
+public class LoopbackSession implements InvocationHandler {
+
+    private final JCSMPSession session;
+    private final LoopbackBroker broker;
+    private volatile boolean connected = true;
+    private volatile long sendNanos = 0;
+    private volatile XMLMessageListener listener;
+    private final AtomicInteger sentMessages = new AtomicInteger();
+    private final AtomicInteger clientSubscriptions = new AtomicInteger();
+    private final Set<String> subscriptions = ConcurrentHashMap.newKeySet();
+    private final List<String> publishedTopics = new CopyOnWriteArrayList<>();
+
+    public LoopbackSession() {
+        this(null);
+    }
+
+    LoopbackSession(LoopbackBroker broker) {
+        this.broker = broker;
+        session = proxy(JCSMPSession.class, this);
+    }
+
+    public JCSMPSession getSession() {
+        return session;
+    }
+
+    public int getSentMessages() {
+        return sentMessages.get();
+    }
+
+    public int getClientSubscriptions() {
+        return clientSubscriptions.get();
+    }
+
+    public Set<String> getSubscriptions() {
+        return subscriptions;
+    }
+
+    public List<String> getPublishedTopics() {
+        return publishedTopics;
+    }
+
+    /**
+     * Makes every send take this long. Like the I/O thread of a real session, the session sends one message at a time.
+     */
+    public void setSendNanos(long sendNanos) {
+        this.sendNanos = sendNanos;
+    }
+
+    private synchronized void waitForSend() {
+        long deadline = System.nanoTime() + sendNanos;
+        for (long wait = sendNanos; wait > 0; wait = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    void disconnect() {
+        connected = false;
+    }
+
+    public boolean isSubscribed(String topicName) {
+        for (String subscription : subscriptions) {
+            if (LoopbackBroker.matches(subscription, topicName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void deliver(String topicName, byte[] payload) {
+        Topic topic = JCSMPFactory.onlyInstance().createTopic(topicName);
+        BytesXMLMessage message = proxy(BytesXMLMessage.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getDestination":
+                    return topic;
+                case "getAttachmentContentLength":
+                    return payload.length;
+                case "readAttachmentBytes":
+                    byte[] buf = (byte[]) args[0];
+                    System.arraycopy(payload, 0, buf, 0, Math.min(buf.length, payload.length));
+                    return Math.min(buf.length, payload.length);
+                default:
+                    return defaultValue(method);
+            }
+        });
+        listener.onReceive(message);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getMessageConsumer":
+                listener = (XMLMessageListener) args[0];
+                return proxy(XMLMessageConsumer.class, (p, m, a) -> defaultValue(m));
+            case "getMessageProducer":
+                return proxy(XMLMessageProducer.class, (p, m, a) -> {
+                    if (m.getName().startsWith("send")) {
+                        if (sendNanos > 0) {
+                            waitForSend();
+                        }
+                        sentMessages.incrementAndGet();
+                        if (m.getName().equals("send") && a.length == 2 && a[1] instanceof Destination) {
+                            String topicName = ((Destination) a[1]).getName();
+                            publishedTopics.add(topicName);
+                            if (broker != null && connected && a[0] instanceof BytesMessage) {
+                                broker.publish(topicName, ((BytesMessage) a[0]).getData());
+                            }
+                        }
+                    }
+                    return defaultValue(m);
+                });
+            case "addSubscription":
+                if (args.length == 3) {
+                    clientSubscriptions.incrementAndGet();
+                } else {
+                    subscriptions.add(((Topic) args[0]).getName());
+                }
+                return null;
+            case "removeSubscription":
+                if (args.length == 1) {
+                    subscriptions.remove(((Topic) args[0]).getName());
+                }
+                return null;
+            default:
+                return defaultValue(method);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,152 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.RosterDeltaMessage;
+import com.solace.troubleflipper.messages.UpdateCharacterMessage;
+import com.solace.troubleflipper.messages.UpdatePuzzleMessage;
+import com.solace.troubleflipper.model.PublisherException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutboundQueueTests {
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private OutboundQueue newQueue(long capacityBytes, long offerTimeout) {
+        return new OutboundQueue(capacityBytes, offerTimeout,
+                (topic, data) -> sent.add(topic + "=" + new String(data, StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] bytes(String data) {
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void awaitSent(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sent.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, sent.size());
+    }
+
+    @Test
+    public void testPrioritiesAreTakenFromTopicAndMessage() {
+        assertEquals(OutboundQueue.Priority.GAME, OutboundQueue.getPriority("team/1", new UpdatePuzzleMessage()));
+        assertEquals(OutboundQueue.Priority.CHARACTERS, OutboundQueue.getPriority("team/1", new UpdateCharacterMessage()));
+        assertEquals(OutboundQueue.Priority.RANKINGS, OutboundQueue.getPriority("score/1", new Object()));
+        assertEquals(OutboundQueue.Priority.RANKINGS, OutboundQueue.getPriority("tournament/roster", new RosterDeltaMessage()));
+        assertEquals(OutboundQueue.Priority.GAME, OutboundQueue.getPriority("user/client1", new Object()));
+        assertFalse(OutboundQueue.isReplaceable(new RosterDeltaMessage()));
+    }
+
+    @Test
+    public void testHigherPrioritiesAreSentFirst() throws Exception {
+        OutboundQueue outboundQueue = newQueue(1024, 100);
+        outboundQueue.offer("score/team1", bytes("1"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("team/team2", bytes("2"), OutboundQueue.Priority.CHARACTERS, true);
+        outboundQueue.offer("team/team1", bytes("3"), OutboundQueue.Priority.GAME, true);
+        outboundQueue.offer("user/client1", bytes("4"), OutboundQueue.Priority.GAME, true);
+
+        outboundQueue.start();
+        awaitSent(4);
+        assertEquals(Arrays.asList("team/team1=3", "user/client1=4", "team/team2=2", "score/team1=1"), sent);
+        assertEquals(0, outboundQueue.getQueuedBytes());
+        outboundQueue.stop();
+    }
+
+    @Test
+    public void testMessagesOfATopicAreNotOvertaken() throws Exception {
+        OutboundQueue outboundQueue = newQueue(1024, 100);
+        outboundQueue.offer("team/team2", bytes("characters2"), OutboundQueue.Priority.CHARACTERS, true);
+        outboundQueue.offer("team/team1", bytes("characters1"), OutboundQueue.Priority.CHARACTERS, true);
+        outboundQueue.offer("user/client1", bytes("ack"), OutboundQueue.Priority.GAME, true);
+        outboundQueue.offer("team/team1", bytes("board"), OutboundQueue.Priority.GAME, true);
+        // the queued character update went along with the board, a newer one does not replace it
+        outboundQueue.offer("team/team1", bytes("characters3"), OutboundQueue.Priority.CHARACTERS, true);
+        assertEquals(0, outboundQueue.getSuperseded());
+
+        outboundQueue.start();
+        awaitSent(5);
+        assertEquals(Arrays.asList("user/client1=ack", "team/team1=characters1", "team/team1=board",
+                "team/team2=characters2", "team/team1=characters3"), sent);
+        outboundQueue.stop();
+    }
+
+    @Test
+    public void testDroppedMessageIsReported() throws Exception {
+        OutboundQueue outboundQueue = newQueue(4, 100);
+        assertTrue(outboundQueue.offer("team/team1", bytes("aaaa"), OutboundQueue.Priority.GAME, true));
+        assertFalse(outboundQueue.offer("score/team1", bytes("bbbb"), OutboundQueue.Priority.RANKINGS, true));
+        assertEquals(1, outboundQueue.getDropped(OutboundQueue.Priority.RANKINGS));
+    }
+
+    @Test
+    public void testQueuedStateIsReplacedByNewerState() throws Exception {
+        OutboundQueue outboundQueue = newQueue(1024, 100);
+        outboundQueue.offer("score/team1", bytes("old"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("score/team2", bytes("other"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("score/team1", bytes("new"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("tournament/roster", bytes("delta1"), OutboundQueue.Priority.RANKINGS, false);
+        outboundQueue.offer("tournament/roster", bytes("delta2"), OutboundQueue.Priority.RANKINGS, false);
+        assertEquals(4, outboundQueue.getDepth(OutboundQueue.Priority.RANKINGS));
+        assertEquals(1, outboundQueue.getSuperseded());
+
+        outboundQueue.start();
+        awaitSent(4);
+        assertEquals(Arrays.asList("score/team1=new", "score/team2=other", "tournament/roster=delta1",
+                "tournament/roster=delta2"), sent);
+        outboundQueue.stop();
+    }
+
+    @Test
+    public void testOldestLowerPriorityMessagesAreDroppedWhenFull() throws Exception {
+        OutboundQueue outboundQueue = newQueue(10, 100);
+        outboundQueue.offer("score/team1", bytes("aaaa"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("score/team2", bytes("bbbb"), OutboundQueue.Priority.RANKINGS, true);
+        outboundQueue.offer("team/team1", bytes("cccc"), OutboundQueue.Priority.CHARACTERS, true);
+        assertEquals(1, outboundQueue.getDropped(OutboundQueue.Priority.RANKINGS));
+        outboundQueue.offer("team/team2", bytes("dddd"), OutboundQueue.Priority.GAME, true);
+        assertEquals(2, outboundQueue.getDropped(OutboundQueue.Priority.RANKINGS));
+
+        // only game messages are left to make room with
+        outboundQueue.offer("team/team3", bytes("eeee"), OutboundQueue.Priority.CHARACTERS, true);
+        assertEquals(1, outboundQueue.getDropped(OutboundQueue.Priority.CHARACTERS));
+        outboundQueue.offer("score/team3", bytes("ffff"), OutboundQueue.Priority.RANKINGS, true);
+        assertEquals(3, outboundQueue.getDropped(OutboundQueue.Priority.RANKINGS));
+        assertTrue(outboundQueue.getQueuedBytes() <= 10);
+
+        outboundQueue.start();
+        awaitSent(2);
+        assertEquals(Arrays.asList("team/team2=dddd", "team/team3=eeee"), sent);
+        outboundQueue.stop();
+    }
+
+    @Test
+    public void testGameMessagesWaitForRoomAndThenFail() throws Exception {
+        OutboundQueue outboundQueue = newQueue(8, 50);
+        outboundQueue.offer("team/team1", bytes("aaaa"), OutboundQueue.Priority.GAME, true);
+        outboundQueue.offer("team/team2", bytes("bbbb"), OutboundQueue.Priority.GAME, true);
+        long start = System.currentTimeMillis();
+        try {
+            outboundQueue.offer("team/team3", bytes("cccc"), OutboundQueue.Priority.GAME, true);
+            fail("The queue is full");
+        } catch (PublisherException ex) {
+            assertTrue(System.currentTimeMillis() - start >= 50);
+        }
+        assertEquals(2, outboundQueue.getDepth(OutboundQueue.Priority.GAME));
+
+        outboundQueue.start();
+        outboundQueue.offer("team/team3", bytes("cccc"), OutboundQueue.Priority.GAME, true);
+        awaitSent(3);
+        outboundQueue.stop();
+    }
+}
@@ -0,0 +1,143 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.messages.AttackResult;
+import com.solace.troubleflipper.messages.PickCharacterMessage;
+import com.solace.troubleflipper.model.CharacterType;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedTournamentTests {
+
+    private static final List<String> NODES = Arrays.asList("node1", "node2", "node3");
+    private static final int PLAYERS = 300;
+    private static final int PLAYERS_PER_TEAM = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void testRemovedNodeOnlyMovesItsOwnTeams() {
+        TeamPartitioner threeNodes = new TeamPartitioner(NODES, "node1", 64);
+        TeamPartitioner twoNodes = new TeamPartitioner(Arrays.asList("node1", "node2"), "node1", 64);
+        Map<String, Integer> teamsPerNode = new HashMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String teamId = UUID.randomUUID().toString();
+            String owner = threeNodes.getOwner(teamId);
+            teamsPerNode.merge(owner, 1, Integer::sum);
+            if (!owner.equals("node3")) {
+                assertEquals(owner, twoNodes.getOwner(teamId));
+            }
+        }
+        for (String node : NODES) {
+            assertTrue(node + " owns " + teamsPerNode.get(node) + " teams", teamsPerNode.get(node) > 500);
+        }
+    }
+
+    @Test
+    public void testGamesArePlayedOnTheOwnerNode() throws Exception {
+        LoopbackBroker broker = new LoopbackBroker();
+        List<LoopbackSession> sessions = new ArrayList<>();
+        List<RoomManager> roomManagers = new ArrayList<>();
+        for (String node : NODES) {
+            TournamentProperties tournamentProperties = new TournamentProperties();
+            tournamentProperties.setPlayersPerTeam(PLAYERS_PER_TEAM);
+            tournamentProperties.setNodes(NODES);
+            tournamentProperties.setNodeId(node);
+            LoopbackSession session = broker.createSession();
+            LastValueCache lastValueCache = new LastValueCache();
+            Publisher publisher = new Publisher(session.getSession(), objectMapper, lastValueCache);
+            Subscriber subscriber = new Subscriber(session.getSession(), objectMapper, publisher);
+            sessions.add(session);
+            roomManagers.add(new RoomManager(tournamentProperties, subscriber, publisher, lastValueCache));
+        }
+        Tournament tournament = roomManagers.get(0).getTournament(RoomManager.DEFAULT_ROOM);
+        assertNotNull(tournament);
+        assertNull(roomManagers.get(1).getTournament(RoomManager.DEFAULT_ROOM));
+        for (LoopbackSession session : sessions) {
+            assertFalse(session.getSubscriptions().contains("games/>"));
+        }
+
+        for (int i = 0; i < PLAYERS; i++) {
+            AddUserMessage addUserMessage = new AddUserMessage();
+            addUserMessage.setClientId("client" + i);
+            addUserMessage.setUsername("player" + i);
+            broker.publish("users", objectMapper.writeValueAsBytes(addUserMessage));
+        }
+        waitFor(() -> tournament.getRegistrationPipeline().getAdmitted() == PLAYERS);
+        tournament.buildTeams();
+
+        // every team is subscribed by its owner node only
+        TeamPartitioner teamPartitioner = new TeamPartitioner(NODES, "node1", 64);
+        int teams = PLAYERS / PLAYERS_PER_TEAM;
+        waitFor(() -> gameSubscriptions(sessions.get(1)).size() + gameSubscriptions(sessions.get(2)).size() +
+                gameSubscriptions(sessions.get(0)).size() == teams);
+        for (int i = 0; i < NODES.size(); i++) {
+            Set<String> teamIds = gameSubscriptions(sessions.get(i));
+            assertFalse(NODES.get(i) + " owns no team", teamIds.isEmpty());
+            for (String teamId : teamIds) {
+                assertEquals(NODES.get(i), teamPartitioner.getOwner(teamId));
+                assertNotNull(tournament.getTeam(teamId));
+            }
+        }
+
+        // moves of a remote team are handled by its node, which reports the progress to the coordinator
+        String teamId = roomManagers.get(1).getClusterNode(RoomManager.DEFAULT_ROOM).getTeamIds().iterator().next();
+        PickCharacterMessage pickCharacterMessage = new PickCharacterMessage();
+        pickCharacterMessage.setClientId("");
+        pickCharacterMessage.setCharacterType(CharacterType.mario);
+        broker.publish("games/" + teamId + "/pickCharacter", objectMapper.writeValueAsBytes(pickCharacterMessage));
+
+        Team team = tournament.getTeam(teamId);
+        waitFor(() -> team.getGame().isCharacterReadyForTeam());
+        assertTrue(team.getGame() instanceof RemoteGame);
+        assertTrue(team.getPlayers().stream().allMatch(player -> player.getCharacter() != null));
+        assertTrue(sessions.get(1).getPublishedTopics().contains("team/" + teamId));
+        assertFalse(sessions.get(0).getPublishedTopics().contains("team/" + teamId));
+
+        // the attacker is credited with what the owner node reports
+        Player attacker = tournament.getTeams().stream().filter(other -> other != team).findFirst().get()
+                .getPlayers().iterator().next();
+        roomManagers.get(1).getClusterNode(RoomManager.DEFAULT_ROOM).getTeam(teamId).setImmune(true);
+        assertFalse(attack(team, attacker).isHit());
+        roomManagers.get(1).getClusterNode(RoomManager.DEFAULT_ROOM).getTeam(teamId).setImmune(false);
+        assertTrue(attack(team, attacker).isHit());
+    }
+
+    private static AttackResult attack(Team team, Player attacker) throws InterruptedException {
+        AttackResult attackResult = new AttackResult();
+        attackResult.setPower(AttackResult.POWER_TROUBLE_FLIPPER);
+        List<AttackResult> results = Collections.synchronizedList(new ArrayList<>());
+        team.getGame().attack(attacker, attackResult, results::add);
+        waitFor(() -> !results.isEmpty());
+        return results.get(0);
+    }
+
+    private static Set<String> gameSubscriptions(LoopbackSession session) {
+        Set<String> teamIds = new HashSet<>();
+        for (String subscription : session.getSubscriptions()) {
+            if (subscription.startsWith("games/") && !subscription.endsWith("/>")) {
+                teamIds.add(subscription.substring("games/".length()));
+            }
+        }
+        return teamIds;
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Condition not met in time", condition.getAsBoolean());
+    }
+}
@@ -1,15 +1,71 @@
-
 package com.solace.troubleflipper;
 
+import com.solace.troubleflipper.configuration.JCSMPConfiguration;
 import com.solace.troubleflipper.properties.TournamentProperties;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class PropertiesTests {
     @Test
     public void testTeamNames() {
-        TournamentProperties teamProp = new TournamentProperties();
+        TeamNames teamNames = new TeamNames(new Random(1));
 
-        teamProp.getNewTeamName();
+        teamNames.getNewTeamName();
+    }
+
+    @Test
+    public void testSameSeedPicksTheSameTeamNames() {
+        List<String> teamNames = new TeamNames(new Random(5)).getNewTeamNames(30);
+
+        assertEquals(teamNames, new TeamNames(new Random(5)).getNewTeamNames(30));
+        assertEquals(30, new HashSet<>(teamNames).size());
     }
-}
 
+    @Test
+    public void testRoomsKeepTheirOwnTeamNames() {
+        TeamNames room1 = new TeamNames(new Random(5));
+        TeamNames room2 = new TeamNames(new Random(5));
+        List<String> names1 = room1.getNewTeamNames(280);
+
+        // every combination is used in room 1, room 2 still has them all
+        assertEquals(names1, room2.getNewTeamNames(280));
+        assertTrue(room1.getNewTeamNames(1).get(0).endsWith(" 2"));
+        room2.reset();
+        assertFalse(room2.getNewTeamNames(1).get(0).endsWith(" 2"));
+        assertTrue(room1.getNewTeamNames(1).get(0).endsWith(" 2"));
+    }
+
+    @Test
+    public void testNodesGetDistinctClientNames() {
+        TournamentProperties node1 = new TournamentProperties();
+        node1.setNodes(Arrays.asList("node1", "node2"));
+        node1.setNodeId("node1");
+        TournamentProperties node2 = new TournamentProperties();
+        node2.setNodes(Arrays.asList("node1", "node2"));
+        node2.setNodeId("node2");
+        TournamentProperties primary = new TournamentProperties();
+        primary.setReplication(true);
+        TournamentProperties standby = new TournamentProperties();
+        standby.setReplication(true);
+        standby.setStandby(true);
+
+        Set<String> clientNames = new HashSet<>();
+        for (TournamentProperties properties : Arrays.asList(node1, node2, primary, standby)) {
+            for (int session = 0; session < 3; session++) {
+                clientNames.add(JCSMPConfiguration.getClientName(properties, session));
+            }
+        }
+        assertEquals(12, clientNames.size());
+        assertEquals("trouble-flipper-node2-producer-1", JCSMPConfiguration.getClientName(node2, 1));
+        assertEquals("trouble-flipper-standby", JCSMPConfiguration.getClientName(standby, 0));
+    }
+}
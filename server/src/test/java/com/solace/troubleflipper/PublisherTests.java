@@ -0,0 +1,196 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solacesystems.jcsmp.BytesXMLMessage;
+import com.solacesystems.jcsmp.JCSMPException;
+import com.solacesystems.jcsmp.JCSMPFactory;
+import com.solacesystems.jcsmp.JCSMPSession;
+import com.solacesystems.jcsmp.XMLMessageListener;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PublisherTests {
+
+    private static final int TOPICS = 64;
+    private static final int MESSAGES = 2000;
+    // what a send costs the I/O thread of a session in the benchmark
+    private static final long SEND_NANOS = 50000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static List<JCSMPSession> getSessions(List<LoopbackSession> loopbackSessions) {
+        List<JCSMPSession> sessions = new ArrayList<>();
+        for (LoopbackSession loopbackSession : loopbackSessions) {
+            sessions.add(loopbackSession.getSession());
+        }
+        return sessions;
+    }
+
+    private static void listen(LoopbackSession receiver, String subscription, XMLMessageListener listener) throws JCSMPException {
+        receiver.getSession().getMessageConsumer(listener);
+        receiver.getSession().addSubscription(JCSMPFactory.onlyInstance().createTopic(subscription));
+    }
+
+    private static XMLMessageListener listener(Consumer<BytesXMLMessage> consumer) {
+        return new XMLMessageListener() {
+            @Override
+            public void onReceive(BytesXMLMessage message) {
+                consumer.accept(message);
+            }
+
+            @Override
+            public void onException(JCSMPException ex) {
+            }
+        };
+    }
+
+    private static String getPayload(BytesXMLMessage message) {
+        byte[] payload = new byte[message.getAttachmentContentLength()];
+        message.readAttachmentBytes(payload);
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+
+    private static void stop(Publisher publisher) {
+        for (OutboundQueue outboundQueue : publisher.getOutboundQueues()) {
+            outboundQueue.stop();
+        }
+    }
+
+    @Test
+    public void testTopicIsAlwaysSentByTheSameProducer() throws Exception {
+        List<LoopbackSession> loopbackSessions = Arrays.asList(new LoopbackSession(), new LoopbackSession(),
+                new LoopbackSession(), new LoopbackSession());
+        Publisher publisher = new Publisher(getSessions(loopbackSessions), objectMapper, new LastValueCache())
+                .forRoom("rooms/red/", new LastValueCache());
+        for (int round = 0; round < 3; round++) {
+            for (int topic = 0; topic < TOPICS; topic++) {
+                publisher.publish("team/team" + topic, round);
+            }
+        }
+
+        for (int topic = 0; topic < TOPICS; topic++) {
+            String topicName = "rooms/red/team/team" + topic;
+            int index = Publisher.getProducerIndex(topicName, loopbackSessions.size());
+            for (int i = 0; i < loopbackSessions.size(); i++) {
+                assertEquals(i == index ? 3 : 0, Collections.frequency(loopbackSessions.get(i).getPublishedTopics(), topicName));
+            }
+        }
+        for (LoopbackSession loopbackSession : loopbackSessions) {
+            assertTrue(loopbackSession.getSentMessages() > 0);
+        }
+    }
+
+    @Test
+    public void testMessagesOfATopicKeepTheirOrder() throws Exception {
+        LoopbackBroker broker = new LoopbackBroker();
+        List<LoopbackSession> producerSessions = Arrays.asList(broker.createSession(), broker.createSession(),
+                broker.createSession(), broker.createSession());
+        Map<String, List<String>> received = new HashMap<>();
+        AtomicInteger receivedCount = new AtomicInteger();
+        listen(broker.createSession(), "team/>", listener(message -> {
+            synchronized (received) {
+                received.computeIfAbsent(message.getDestination().getName(), topic -> new ArrayList<>()).add(getPayload(message));
+            }
+            receivedCount.incrementAndGet();
+        }));
+        Publisher publisher = new Publisher(getSessions(producerSessions), objectMapper, new LastValueCache());
+        publisher.startOutboundQueue(1024 * 1024, 1000);
+        assertEquals(4, publisher.getOutboundQueues().size());
+
+        for (int i = 0; i < MESSAGES; i++) {
+            publisher.publish("team/team" + (i % TOPICS), i / TOPICS);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (receivedCount.get() < MESSAGES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        stop(publisher);
+
+        assertEquals(MESSAGES, receivedCount.get());
+        for (int topic = 0; topic < TOPICS; topic++) {
+            List<String> payloads = received.get("team/team" + topic);
+            for (int i = 0; i < payloads.size(); i++) {
+                assertEquals(Integer.toString(i), payloads.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testDroppedMessageIsNotCached() throws Exception {
+        LoopbackSession loopbackSession = new LoopbackSession();
+        // the first message keeps the sender busy
+        loopbackSession.setSendNanos(500000000L);
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, lastValueCache);
+        publisher.startOutboundQueue(8, 5000);
+        publisher.publish("team/team1", "board1");
+        publisher.publish("team/team1", "board2");
+        publisher.publish("score/team1", "rank");
+        stop(publisher);
+
+        assertTrue(lastValueCache.contains("team/team1"));
+        assertFalse(lastValueCache.contains("score/team1"));
+        assertEquals(1, publisher.getOutboundQueues().get(0).getDropped(OutboundQueue.Priority.RANKINGS));
+    }
+
+    @Test
+    public void testProducerPoolThroughput() throws Exception {
+        long inMemorySingle = measure(false, 1);
+        long inMemoryPool = measure(false, 4);
+        long brokerSingle = measure(true, 1);
+        long brokerPool = measure(true, 4);
+        assertTrue(inMemoryPool < inMemorySingle);
+        assertTrue(brokerPool < brokerSingle);
+    }
+
+    // returns the milliseconds from the first publish to the last message sent
+    private long measure(boolean throughBroker, int producerCount) throws Exception {
+        LoopbackBroker broker = throughBroker ? new LoopbackBroker() : null;
+        List<LoopbackSession> producerSessions = new ArrayList<>();
+        for (int i = 0; i < producerCount; i++) {
+            LoopbackSession loopbackSession = throughBroker ? broker.createSession() : new LoopbackSession();
+            loopbackSession.setSendNanos(SEND_NANOS);
+            producerSessions.add(loopbackSession);
+        }
+        AtomicInteger delivered = new AtomicInteger();
+        if (throughBroker) {
+            listen(broker.createSession(), "team/>", listener(message -> delivered.incrementAndGet()));
+        }
+        Publisher publisher = new Publisher(getSessions(producerSessions), objectMapper, new LastValueCache());
+        publisher.startOutboundQueue(16 * 1024 * 1024, 5000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            publisher.publish("team/team" + (i % TOPICS), i);
+        }
+        long deadline = System.currentTimeMillis() + 30000;
+        while ((sent(producerSessions) < MESSAGES || throughBroker && delivered.get() < MESSAGES) &&
+                System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        stop(publisher);
+
+        assertEquals(MESSAGES, sent(producerSessions));
+        if (throughBroker) {
+            assertEquals(MESSAGES, delivered.get());
+        }
+        return elapsed;
+    }
+
+    private static int sent(List<LoopbackSession> loopbackSessions) {
+        int sent = 0;
+        for (LoopbackSession loopbackSession : loopbackSessions) {
+            sent += loopbackSession.getSentMessages();
+        }
+        return sent;
+    }
+}
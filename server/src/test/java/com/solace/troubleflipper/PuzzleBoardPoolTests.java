@@ -0,0 +1,70 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.PuzzlePiece;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PuzzleBoardPoolTests {
+
+    @Test
+    public void testPreparedBoardIsTakenByItsTeam() {
+        PuzzleBoardPool boardPool = new PuzzleBoardPool(5, Runnable::run);
+        boardPool.prepare("team1");
+        List<PuzzlePiece> board = boardPool.take("team1");
+
+        assertEquals(25, board.size());
+        Set<Integer> indexes = new HashSet<>();
+        for (PuzzlePiece puzzlePiece : board) {
+            indexes.add(puzzlePiece.getIndex());
+            assertEquals("", puzzlePiece.getSelectedBy());
+            assertEquals(-1, puzzlePiece.getLastSelectTimestamp());
+        }
+        assertEquals(25, indexes.size());
+        assertNotSame(board, boardPool.take("team1"));
+    }
+
+    @Test
+    public void testRecycledBoardIsReusedWithClearedPieces() {
+        PuzzleBoardPool boardPool = new PuzzleBoardPool(3, Runnable::run);
+        List<PuzzlePiece> board = boardPool.take("team1");
+        PuzzlePiece selectedPiece = board.get(0);
+        selectedPiece.setSelectedBy("player1");
+        selectedPiece.setLastSelectTimestamp(42);
+
+        boardPool.recycle(board);
+        assertEquals(1, boardPool.getFreeBoards());
+        boardPool.prepare("team1");
+        List<PuzzlePiece> nextBoard = boardPool.take("team1");
+
+        assertSame(board, nextBoard);
+        assertEquals(0, boardPool.getFreeBoards());
+        assertEquals("", selectedPiece.getSelectedBy());
+        assertEquals(-1, selectedPiece.getLastSelectTimestamp());
+    }
+
+    @Test
+    public void testBoardsOfAnotherSizeAreNotRecycled() {
+        PuzzleBoardPool boardPool = new PuzzleBoardPool(3, Runnable::run);
+        boardPool.recycle(new PuzzleBoardPool(4, Runnable::run).take("team1"));
+
+        assertEquals(0, boardPool.getFreeBoards());
+    }
+
+    @Test
+    public void testClearKeepsPreparedBoardsForReuse() {
+        PuzzleBoardPool boardPool = new PuzzleBoardPool(3, Runnable::run);
+        boardPool.prepare("team1");
+        boardPool.prepare("team2");
+
+        boardPool.clear();
+
+        assertEquals(2, boardPool.getFreeBoards());
+    }
+}
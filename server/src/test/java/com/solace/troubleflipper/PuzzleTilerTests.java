@@ -0,0 +1,85 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PuzzleTilerTests {
+
+    private Path root;
+    private TournamentProperties tournamentProperties;
+    private File tileDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("puzzle-tiler");
+        File imageDirectory = Files.createDirectory(root.resolve("images")).toFile();
+        tileDirectory = root.resolve("tiles").toFile();
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics graphics = image.getGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 50, 50);
+        ImageIO.write(image, "png", new File(imageDirectory, "puzzle1.png"));
+        tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPuzzleSize(5);
+        tournamentProperties.setPuzzleImageDirectory(imageDirectory.getPath());
+        tournamentProperties.setTileDirectory(tileDirectory.getPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    public void testImageIsCutIntoPuzzleSizeTiles() throws IOException {
+        PuzzleTiler puzzleTiler = new PuzzleTiler(tournamentProperties);
+        puzzleTiler.refresh(Arrays.asList("puzzle1.png", "missing.jpg"));
+
+        String tileSet = puzzleTiler.getTileSet("puzzle1.png");
+        assertNotNull(tileSet);
+        assertTrue(tileSet.startsWith(PuzzleTiler.TILE_PATH + "/puzzle1-5-"));
+        assertNull(puzzleTiler.getTileSet("missing.jpg"));
+        File tiles = new File(tileDirectory, tileSet.substring(PuzzleTiler.TILE_PATH.length() + 1));
+        assertEquals(25, tiles.list().length);
+        BufferedImage firstTile = ImageIO.read(new File(tiles, "0.png"));
+        assertEquals(20, firstTile.getWidth());
+        assertEquals(20, firstTile.getHeight());
+        assertEquals(Color.RED.getRGB(), firstTile.getRGB(10, 10));
+        assertEquals(Color.BLACK.getRGB(), ImageIO.read(new File(tiles, "24.png")).getRGB(10, 10));
+    }
+
+    @Test
+    public void testTileSetChangesWithPuzzleSize() {
+        PuzzleTiler puzzleTiler = new PuzzleTiler(tournamentProperties);
+        puzzleTiler.refresh(Collections.singletonList("puzzle1.png"));
+        String tileSet = puzzleTiler.getTileSet("puzzle1.png");
+
+        puzzleTiler.refresh(Collections.singletonList("puzzle1.png"));
+        assertEquals(tileSet, puzzleTiler.getTileSet("puzzle1.png"));
+
+        tournamentProperties.setPuzzleSize(4);
+        puzzleTiler.refresh(Collections.singletonList("puzzle1.png"));
+        assertFalse(tileSet.equals(puzzleTiler.getTileSet("puzzle1.png")));
+        assertEquals(2, tileDirectory.list().length);
+    }
+}
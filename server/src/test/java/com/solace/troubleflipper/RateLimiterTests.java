@@ -0,0 +1,165 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RateLimiterTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final ClientHandles clientHandles = new ClientHandles();
+    private TournamentProperties tournamentProperties;
+
+    @Before
+    public void setUp() {
+        // registered players, limit-client5 plays in team2 and the others in team1
+        Team team1 = new Team("team1", clientHandles);
+        Team team2 = new Team("team2", clientHandles);
+        for (int i = 0; i <= 5; i++) {
+            Player player = new Player();
+            player.setClientName("limit-client" + i);
+            player.acquireHandle(clientHandles);
+            (i == 5 ? team2 : team1).addPlayer(player);
+        }
+        tournamentProperties = new TournamentProperties();
+        tournamentProperties.setClientMessageRate(10);
+        tournamentProperties.setClientMessageBurst(5);
+        tournamentProperties.setTeamMessageRate(100);
+        tournamentProperties.setTeamMessageBurst(8);
+    }
+
+    @Test
+    public void testClientIsLimitedToItsBurstAndRefillsOverTime() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+        }
+        assertFalse(rateLimiter.tryAcquire("games/team1/selectPiece", "limit-client1"));
+        assertEquals(1, rateLimiter.getClientDrops());
+
+        // 10 messages a second, one token every 100 ms
+        now.addAndGet(100000000L);
+        assertTrue(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+        assertFalse(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+    }
+
+    @Test
+    public void testTeamIsLimitedAcrossItsClients() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(rateLimiter.tryAcquire("rooms/room1/games/team1", "limit-client" + (i % 4)));
+        }
+        assertFalse(rateLimiter.tryAcquire("rooms/room1/games/team1", "limit-client4"));
+        assertTrue(rateLimiter.tryAcquire("rooms/room1/games/team2", "limit-client5"));
+        assertEquals(1, rateLimiter.getTeamDrops());
+        assertEquals(0, rateLimiter.getClientDrops());
+    }
+
+    @Test
+    public void testUnknownSendersShareOneBucket() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team1", i % 2 == 0 ? null : "limit-unknown" + i));
+        }
+        assertFalse(rateLimiter.tryAcquire("games/team1", null));
+        assertFalse(rateLimiter.tryAcquire("games/team1", "limit-unknown9"));
+        assertEquals(2, rateLimiter.getClientDrops());
+        // registered players still get their own bucket
+        assertTrue(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+    }
+
+    @Test
+    public void testSpoofedSenderIdCannotDrainAnotherTeam() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        // a client of team2 sends with the id of a player of team1
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team2", "limit-client1"));
+        }
+        assertFalse(rateLimiter.tryAcquire("games/team2", "limit-client1"));
+        // it took from the shared bucket, the player keeps its own
+        assertFalse(rateLimiter.tryAcquire("games/team2", "limit-unknown1"));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+        }
+        assertFalse(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+        assertEquals(3, rateLimiter.getClientDrops());
+    }
+
+    @Test
+    public void testPlayerLeavingItsTeamLosesItsBucket() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        Team team3 = new Team("team3", clientHandles);
+        Player player = new Player();
+        player.setClientName("limit-client6");
+        player.acquireHandle(clientHandles);
+        team3.addPlayer(player);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team3", "limit-client6"));
+        }
+        team3.removePlayer(player);
+        // now an unknown sender with a full shared bucket
+        assertTrue(rateLimiter.tryAcquire("games/team3", "limit-client6"));
+        assertNull(clientHandles.teamOf(player.getHandle()));
+    }
+
+    @Test
+    public void testBucketsAreBounded() {
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < RateLimiter.MAX_BUCKETS * 2; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/flood" + i, "limit-client1"));
+            now.addAndGet(100000000L);
+        }
+        // limit-client1 is not a player of the flood teams, it takes from the shared bucket
+        assertEquals(RateLimiter.MAX_BUCKETS, rateLimiter.getBucketCount());
+    }
+
+    @Test
+    public void testQueriesAreLimitedForEachRoom() {
+        tournamentProperties.setQueryMessageRate(10);
+        tournamentProperties.setQueryMessageBurst(3);
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(rateLimiter.tryAcquire("rooms/room1/state/query", "limit-client" + i));
+        }
+        // whoever sends it
+        assertFalse(rateLimiter.tryAcquire("rooms/room1/roster/snapshot", "limit-client4"));
+        assertFalse(rateLimiter.tryAcquire("rooms/room1/leaderboard", null));
+        assertTrue(rateLimiter.tryAcquire("rooms/room2/state/query", "limit-client1"));
+        assertTrue(rateLimiter.tryAcquire("state/query", "limit-client1"));
+        assertTrue(rateLimiter.tryAcquire("rooms/room1/tournaments", "limit-client1"));
+        assertEquals(2, rateLimiter.getQueryDrops());
+
+        now.addAndGet(100000000L);
+        assertTrue(rateLimiter.tryAcquire("rooms/room1/state/query", "limit-client1"));
+    }
+
+    @Test
+    public void testOtherTopicsAndDisabledLimitsAreNotLimited() {
+        tournamentProperties.setClientMessageRate(0);
+        tournamentProperties.setTeamMessageRate(0);
+        RateLimiter rateLimiter = new RateLimiter(tournamentProperties, clientHandles, now::get);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(rateLimiter.tryAcquire("games/team1", "limit-client1"));
+            assertTrue(rateLimiter.tryAcquire("users", null));
+        }
+    }
+
+    @Test
+    public void testTeamIdIsTakenFromGameTopics() {
+        assertEquals("team1", RateLimiter.getTeamId("games/team1"));
+        assertEquals("team1", RateLimiter.getTeamId("games/team1/swap"));
+        assertEquals("team1", RateLimiter.getTeamId("rooms/room1/games/team1/selectPiece"));
+        assertNull(RateLimiter.getTeamId("rooms/room1/users"));
+        assertNull(RateLimiter.getTeamId("tournaments"));
+    }
+}
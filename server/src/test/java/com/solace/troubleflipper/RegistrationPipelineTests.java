@@ -0,0 +1,66 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.messages.AddUserMessage;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RegistrationPipelineTests {
+
+    @Test
+    public void testRosterUpdatesAreCoalescedWithinWindow() throws Exception {
+        AtomicInteger acked = new AtomicInteger();
+        AtomicInteger rosterUpdates = new AtomicInteger();
+        RegistrationPipeline pipeline = new RegistrationPipeline(50, 10000, batch -> {
+            acked.addAndGet(batch.size());
+            return true;
+        }, rosterUpdates::incrementAndGet);
+        pipeline.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                AddUserMessage addUserMessage = new AddUserMessage();
+                addUserMessage.setClientId("client" + i);
+                pipeline.submit(addUserMessage);
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pipeline.getAdmitted() < 1000 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(1000, acked.get());
+            assertEquals(1000, pipeline.getAdmitted());
+            assertEquals(1, rosterUpdates.get());
+            assertTrue(pipeline.getLargestBatchSize() <= 50);
+        } finally {
+            pipeline.stop();
+        }
+    }
+
+    @Test
+    public void testRosterWindowFollowsTheClock() {
+        VirtualClock clock = new VirtualClock(0, 1);
+        AtomicInteger rosterUpdates = new AtomicInteger();
+        RegistrationPipeline pipeline = new RegistrationPipeline(50, 1000, batch -> true,
+                rosterUpdates::incrementAndGet, Runnable::run, clock);
+        pipeline.start();
+        try {
+            pipeline.submit(new AddUserMessage());
+            assertEquals(1, rosterUpdates.get());
+            pipeline.submit(new AddUserMessage());
+            pipeline.submit(new AddUserMessage());
+            assertEquals(3, pipeline.getAdmitted());
+            // the window only ends when the clock moves
+            assertEquals(1, rosterUpdates.get());
+
+            clock.advance(999);
+            assertEquals(1, rosterUpdates.get());
+            clock.advance(1);
+            assertEquals(2, rosterUpdates.get());
+        } finally {
+            pipeline.stop();
+        }
+    }
+}
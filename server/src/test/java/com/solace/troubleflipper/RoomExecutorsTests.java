@@ -0,0 +1,93 @@
+package com.solace.troubleflipper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RoomExecutorsTests {
+
+    private RoomExecutors executors;
+
+    @Before
+    public void setUp() {
+        executors = new RoomExecutors(2);
+    }
+
+    @After
+    public void tearDown() {
+        executors.shutdown();
+    }
+
+    @Test
+    public void testTimerRunsOnTheScheduler() throws Exception {
+        Timer timer = executors.getClock().newTimer("timer1");
+        CountDownLatch ran = new CountDownLatch(1);
+        String[] threadName = new String[1];
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                threadName[0] = Thread.currentThread().getName();
+                ran.countDown();
+            }
+        }, 10);
+
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(threadName[0].startsWith("RoomTimer-"));
+    }
+
+    @Test
+    public void testRepeatingTaskStopsWhenItCancelsItself() throws Exception {
+        Timer timer = executors.getClock().newTimer("timer2");
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        timer.schedule(new ClockTask() {
+            @Override
+            public void run() {
+                if (runs.incrementAndGet() == 3) {
+                    cancel();
+                    cancelled.countDown();
+                }
+            }
+        }, 0, 5);
+
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    public void testCancelledTimerRunsNothing() throws Exception {
+        Timer timer = executors.getClock().newTimer("timer3");
+        AtomicInteger runs = new AtomicInteger();
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 20, 5);
+        timer.cancel();
+        Thread.sleep(60);
+        assertEquals(0, runs.get());
+
+        try {
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                }
+            }, 0);
+            fail("A cancelled timer takes no tasks");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.messages.RoomMessage;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RoomManagerTests {
+
+    private ObjectMapper objectMapper;
+    private LoopbackSession loopbackSession;
+    private RoomManager roomManager;
+
+    @Before
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        loopbackSession = new LoopbackSession();
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, lastValueCache);
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.getGameMasters().add("master1");
+        tournamentProperties.setMaxRooms(2);
+        roomManager = new RoomManager(tournamentProperties, subscriber, publisher, lastValueCache);
+    }
+
+    @Test
+    public void testRoomsRegisterPlayersSeparately() throws Exception {
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "red");
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "blue");
+        assertTrue(loopbackSession.getSubscriptions().contains("rooms/red/users"));
+        assertTrue(loopbackSession.getSubscriptions().contains("rooms/blue/games/>"));
+
+        AddUserMessage addUserMessage = new AddUserMessage();
+        addUserMessage.setClientId("client1");
+        addUserMessage.setUsername("player1");
+        loopbackSession.deliver("rooms/red/users", objectMapper.writeValueAsBytes(addUserMessage));
+
+        Tournament red = roomManager.getTournament("red");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (red.getRegistrationPipeline().getAdmitted() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, red.getRegistrationPipeline().getAdmitted());
+        assertEquals(0, roomManager.getTournament("blue").getRegistrationPipeline().getAdmitted());
+        assertEquals(0, roomManager.getTournament(RoomManager.DEFAULT_ROOM).getRegistrationPipeline().getAdmitted());
+        assertTrue(loopbackSession.getPublishedTopics().contains("rooms/red/user/client1"));
+    }
+
+    @Test
+    public void testClosedRoomIsUnsubscribed() throws Exception {
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "red");
+        sendRoomMessage(RoomMessage.ACTION_CLOSE, "red");
+
+        assertNull(roomManager.getTournament("red"));
+        assertFalse(loopbackSession.getSubscriptions().contains("rooms/red/users"));
+    }
+
+    @Test
+    public void testInvalidRoomIdIsRejected() throws Exception {
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "red/>");
+
+        assertEquals(1, roomManager.getRoomIds().size());
+    }
+
+    @Test
+    public void testOnlyGameMastersManageRooms() throws Exception {
+        sendRoomMessage("client1", RoomMessage.ACTION_CREATE, "red");
+        assertNull(roomManager.getTournament("red"));
+        assertFalse(loopbackSession.getSubscriptions().contains("rooms/red/users"));
+
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "red");
+        sendRoomMessage("client1", RoomMessage.ACTION_CLOSE, "red");
+        assertNotNull(roomManager.getTournament("red"));
+    }
+
+    @Test
+    public void testRoomCountIsCapped() throws Exception {
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "red");
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "blue");
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "green");
+
+        assertEquals(3, roomManager.getRoomIds().size());
+        assertNull(roomManager.getTournament("green"));
+        assertFalse(loopbackSession.getSubscriptions().contains("rooms/green/users"));
+
+        sendRoomMessage(RoomMessage.ACTION_CLOSE, "blue");
+        sendRoomMessage(RoomMessage.ACTION_CREATE, "green");
+        assertNotNull(roomManager.getTournament("green"));
+    }
+
+    private void sendRoomMessage(String action, String roomId) throws Exception {
+        sendRoomMessage("master1", action, roomId);
+    }
+
+    private void sendRoomMessage(String clientId, String action, String roomId) throws Exception {
+        RoomMessage roomMessage = new RoomMessage();
+        roomMessage.setClientId(clientId);
+        roomMessage.setAction(action);
+        roomMessage.setRoomId(roomId);
+        loopbackSession.deliver("rooms", objectMapper.writeValueAsBytes(roomMessage));
+    }
+}
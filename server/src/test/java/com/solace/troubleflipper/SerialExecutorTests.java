@@ -0,0 +1,65 @@
+package com.solace.troubleflipper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SerialExecutorTests {
+
+    @Test
+    public void testTasksRunInSubmissionOrder() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        SerialExecutor lane = new SerialExecutor(pool);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int task = i;
+            lane.execute(() -> {
+                order.add(task);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testTasksOfOneLaneNeverOverlap() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<SerialExecutor> lanes = new ArrayList<>();
+        List<AtomicInteger> running = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            lanes.add(new SerialExecutor(pool));
+            running.add(new AtomicInteger());
+        }
+        AtomicInteger overlaps = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4000);
+        for (int i = 0; i < 4000; i++) {
+            int lane = i % 4;
+            lanes.get(lane).execute(() -> {
+                if (running.get(lane).incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                Thread.yield();
+                running.get(lane).decrementAndGet();
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        pool.shutdown();
+    }
+}
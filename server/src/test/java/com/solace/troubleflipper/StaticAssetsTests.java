@@ -0,0 +1,160 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StaticAssetsTests {
+
+    private static final int IMAGE_SIZE = 2 * 1024 * 1024;
+    private static final int DOWNLOADERS = 32;
+    private static final int DOWNLOADS = 50;
+
+    private Path root;
+    private byte[] image;
+    private StaticAssets staticAssets;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("static-assets");
+        Path imageDirectory = Files.createDirectory(root.resolve("images"));
+        Path tileSet = Files.createDirectories(root.resolve("tiles").resolve("puzzle1-5-0a1b2c"));
+        image = new byte[IMAGE_SIZE];
+        new Random(1).nextBytes(image);
+        Files.write(imageDirectory.resolve("puzzle1.jpg"), image);
+        Files.write(tileSet.resolve("0.jpg"), Arrays.copyOf(image, 1000));
+        Files.write(tileSet.resolve("0.jpg.gz"), new byte[]{1, 2, 3});
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPuzzleImageDirectory(imageDirectory.toString());
+        tournamentProperties.setTileDirectory(root.resolve("tiles").toString());
+        staticAssets = new StaticAssets(tournamentProperties);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.walk(root).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    @Test
+    public void testAssetsAreResolvedInsideTheirRoot() {
+        StaticAssets.Asset asset = staticAssets.get("static/puzzle1.jpg");
+        assertNotNull(asset);
+        assertEquals("image/jpeg", asset.getContentType());
+        assertEquals(IMAGE_SIZE, asset.getLength());
+        assertFalse(asset.isImmutable());
+        assertTrue(staticAssets.get("tiles/puzzle1-5-0a1b2c/0.jpg").isImmutable());
+        assertSame(asset, staticAssets.get("static/puzzle1.jpg"));
+
+        assertNull(staticAssets.get("static/missing.jpg"));
+        assertNull(staticAssets.get("static/../tiles/puzzle1-5-0a1b2c/0.jpg"));
+        assertNull(staticAssets.get("other/puzzle1.jpg"));
+    }
+
+    @Test
+    public void testPrecompressedVariantIsSelectedWhenAccepted() {
+        StaticAssets.Asset tile = staticAssets.get("tiles/puzzle1-5-0a1b2c/0.jpg");
+        assertTrue(tile.hasVariants());
+        assertSame(tile, tile.select(null));
+        assertSame(tile, tile.select("br, gzip;q=0"));
+
+        StaticAssets.Asset variant = tile.select("br, gzip");
+        assertEquals("gzip", variant.getEncoding());
+        assertEquals(3, variant.getLength());
+        assertFalse(tile.getEtag().equals(variant.getEtag()));
+    }
+
+    @Test
+    public void testRangesAreParsed() {
+        assertNull(StaticAssetController.parseRange(null, 100));
+        assertArrayEquals(new long[]{0, 9}, StaticAssetController.parseRange("bytes=0-9", 100));
+        assertArrayEquals(new long[]{50, 99}, StaticAssetController.parseRange("bytes=50-", 100));
+        assertArrayEquals(new long[]{90, 99}, StaticAssetController.parseRange("bytes=-10", 100));
+        assertArrayEquals(new long[]{90, 99}, StaticAssetController.parseRange("bytes=90-200", 100));
+        assertSame(StaticAssetController.NOT_SATISFIABLE, StaticAssetController.parseRange("bytes=100-", 100));
+        // several ranges or a broken header get the whole asset
+        assertNull(StaticAssetController.parseRange("bytes=0-1,5-6", 100));
+        assertNull(StaticAssetController.parseRange("bytes=9-1", 100));
+        assertNull(StaticAssetController.parseRange("items=0-1", 100));
+    }
+
+    @Test
+    public void testTransferWritesTheRequestedSlice() throws IOException {
+        StaticAssets.Asset asset = staticAssets.get("static/puzzle1.jpg");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        asset.transferTo(1000, 500, Channels.newChannel(out));
+        assertArrayEquals(Arrays.copyOfRange(image, 1000, 1500), out.toByteArray());
+
+        Path copy = root.resolve("copy.jpg");
+        try (WritableByteChannel channel = Files.newByteChannel(copy, java.nio.file.StandardOpenOption.CREATE,
+                java.nio.file.StandardOpenOption.WRITE)) {
+            asset.transferTo(0, IMAGE_SIZE, channel);
+        }
+        assertArrayEquals(image, Files.readAllBytes(copy));
+    }
+
+    @Test
+    public void testConcurrentDownloadThroughput() throws Exception {
+        StaticAssets.Asset asset = staticAssets.get("static/puzzle1.jpg");
+        AtomicLong bytes = new AtomicLong();
+        ExecutorService downloaders = Executors.newFixedThreadPool(DOWNLOADERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < DOWNLOADERS; i++) {
+            futures.add(downloaders.submit(() -> {
+                WritableByteChannel discard = new WritableByteChannel() {
+                    @Override
+                    public int write(ByteBuffer src) {
+                        int written = src.remaining();
+                        src.position(src.limit());
+                        bytes.addAndGet(written);
+                        return written;
+                    }
+
+                    @Override
+                    public boolean isOpen() {
+                        return true;
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+                for (int j = 0; j < DOWNLOADS; j++) {
+                    staticAssets.get("static/puzzle1.jpg").transferTo(0, asset.getLength(), discard);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        downloaders.shutdown();
+        assertEquals((long) IMAGE_SIZE * DOWNLOADERS * DOWNLOADS, bytes.get());
+    }
+}
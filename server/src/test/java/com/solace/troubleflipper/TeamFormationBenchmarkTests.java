@@ -0,0 +1,54 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TeamFormationBenchmarkTests {
+
+    private static final int PLAYERS = 20000;
+    private static final int PLAYERS_PER_TEAM = 5;
+
+    @Test
+    public void testPartitionPlayersKeepsRemainderInLastTeam() {
+        List<List<com.solace.troubleflipper.model.Player>> playerGroups =
+                Tournament.partitionPlayers(java.util.Collections.nCopies(12, null), PLAYERS_PER_TEAM);
+        assertEquals(3, playerGroups.size());
+        assertEquals(2, playerGroups.get(2).size());
+    }
+
+    @Test
+    public void testBuildTeamsForLargeTournament() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        LoopbackSession loopbackSession = new LoopbackSession();
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, lastValueCache);
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPlayersPerTeam(PLAYERS_PER_TEAM);
+        Tournament tournament = new Tournament(RoomManager.DEFAULT_ROOM, tournamentProperties, subscriber, publisher, lastValueCache);
+        tournament.activate();
+
+        for (int i = 0; i < PLAYERS; i++) {
+            AddUserMessage addUserMessage = new AddUserMessage();
+            addUserMessage.setClientId("client" + i);
+            addUserMessage.setUsername("player" + i);
+            loopbackSession.deliver("users", objectMapper.writeValueAsBytes(addUserMessage));
+        }
+        long deadline = System.currentTimeMillis() + 30000;
+        while (tournament.getRegistrationPipeline().getAdmitted() < PLAYERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(PLAYERS, tournament.getRegistrationPipeline().getAdmitted());
+
+        tournament.buildTeams();
+
+        // team, team score and player score subscription for every player
+        assertEquals(PLAYERS * 3, loopbackSession.getClientSubscriptions());
+    }
+}
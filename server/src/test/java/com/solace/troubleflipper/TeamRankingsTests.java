@@ -0,0 +1,92 @@
+package com.solace.troubleflipper;
+
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Team;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TeamRankingsTests {
+
+    private final ClientHandles clientHandles = new ClientHandles();
+
+    @Test
+    public void testTeamMovesAheadWhenItHasMoreCorrectPieces() {
+        TeamRankings teamRankings = new TeamRankings();
+        Team team1 = new Team(clientHandles);
+        Team team2 = new Team(clientHandles);
+        Team team3 = new Team(clientHandles);
+        teamRankings.add(team1);
+        teamRankings.add(team2);
+        teamRankings.add(team3);
+
+        teamRankings.update(team3, 0, 5);
+
+        assertEquals(1, teamRankings.getRank(team3));
+        assertEquals(2, teamRankings.getRank(team1));
+        assertEquals(3, teamRankings.getRank(team2));
+        assertNull(teamRankings.getTeamAhead(team3));
+        assertSame(team3, teamRankings.getTeamAhead(team1));
+        assertSame(team1, teamRankings.getTeamAhead(team2));
+    }
+
+    @Test
+    public void testCompletedGamesRankAboveCorrectPieces() {
+        TeamRankings teamRankings = new TeamRankings();
+        Team team1 = new Team(clientHandles);
+        Team team2 = new Team(clientHandles);
+        teamRankings.add(team1);
+        teamRankings.add(team2);
+
+        teamRankings.update(team1, 0, 20);
+        teamRankings.update(team2, 1, 0);
+        assertEquals(1, teamRankings.getRank(team2));
+
+        teamRankings.update(team2, 1, 0);
+        teamRankings.update(team1, 0, 24);
+        assertEquals(2, teamRankings.getRank(team1));
+    }
+
+    @Test
+    public void testTeamMovesBackWhenItLosesCorrectPieces() {
+        TeamRankings teamRankings = new TeamRankings();
+        Team team1 = new Team(clientHandles);
+        Team team2 = new Team(clientHandles);
+        teamRankings.add(team1);
+        teamRankings.add(team2);
+        teamRankings.update(team1, 0, 10);
+        teamRankings.update(team2, 0, 8);
+
+        teamRankings.update(team1, 0, 2);
+
+        assertEquals(1, teamRankings.getRank(team2));
+        assertSame(team2, teamRankings.getTeamAhead(team1));
+    }
+
+    @Test
+    public void testOnlyMovedTeamsAreReportedAsChanged() {
+        TeamRankings teamRankings = new TeamRankings();
+        Team team1 = new Team(clientHandles);
+        Team team2 = new Team(clientHandles);
+        Team team3 = new Team(clientHandles);
+        teamRankings.add(team1);
+        teamRankings.add(team2);
+        teamRankings.add(team3);
+        assertEquals(3, teamRankings.drainChangedRanks().size());
+
+        teamRankings.update(team1, 0, 3);
+        assertTrue(teamRankings.drainChangedRanks().isEmpty());
+
+        teamRankings.update(team3, 0, 1);
+        Map<Team, Integer> changedRanks = teamRankings.drainChangedRanks();
+        assertEquals(2, changedRanks.size());
+        assertEquals(Integer.valueOf(2), changedRanks.get(team3));
+        assertEquals(Integer.valueOf(3), changedRanks.get(team2));
+        assertTrue(teamRankings.drainChangedRanks().isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+package com.solace.troubleflipper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.solace.troubleflipper.messages.AddUserMessage;
+import com.solace.troubleflipper.model.ClientHandles;
+import com.solace.troubleflipper.model.Game;
+import com.solace.troubleflipper.model.Player;
+import com.solace.troubleflipper.model.PuzzlePiece;
+import com.solace.troubleflipper.model.Team;
+import com.solace.troubleflipper.properties.TournamentProperties;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualClockTests {
+
+    private static final int PLAYERS = 20;
+    private static final int PLAYERS_PER_TEAM = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static TimerTask task(Runnable runnable) {
+        return new TimerTask() {
+            @Override
+            public void run() {
+                runnable.run();
+            }
+        };
+    }
+
+    @Test
+    public void testTasksRunInTimeOrderWhenTheClockMoves() {
+        VirtualClock clock = new VirtualClock(1000, 1);
+        Timer timer = clock.newTimer("Virtual");
+        List<String> ran = new ArrayList<>();
+        timer.schedule(task(() -> ran.add("late@" + clock.millis())), 300);
+        timer.schedule(task(() -> ran.add("early@" + clock.millis())), 100);
+        timer.schedule(task(() -> ran.add("tick@" + clock.millis())), 0, 150);
+        assertTrue(ran.isEmpty());
+
+        assertEquals(5, clock.advance(300));
+        assertEquals(Arrays.asList("tick@1000", "early@1100", "tick@1150", "late@1300", "tick@1300"), ran);
+        assertEquals(1300, clock.millis());
+
+        timer.cancel();
+        assertEquals(0, clock.advance(1000));
+        assertEquals(2300, clock.millis());
+        assertEquals(0, clock.getPending());
+    }
+
+    @Test
+    public void testRepeatingTaskCancelsItself() {
+        VirtualClock clock = new VirtualClock(0, 1);
+        int[] runs = new int[1];
+        clock.newTimer("Virtual").schedule(new ClockTask() {
+            @Override
+            public void run() {
+                if (++runs[0] == 3) {
+                    cancel();
+                }
+            }
+        }, 10, 10);
+
+        clock.advance(1000);
+        assertEquals(3, runs[0]);
+        assertEquals(0, clock.getPending());
+    }
+
+    @Test
+    public void testSameSeedShufflesTheSameBoards() throws Exception {
+        assertEquals(startGame(new VirtualClock(0, 42)), startGame(new VirtualClock(0, 42)));
+    }
+
+    private List<Integer> startGame(VirtualClock clock) throws Exception {
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPuzzleSize(4);
+        LoopbackSession loopbackSession = new LoopbackSession();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, new LastValueCache());
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher);
+        Game game = new Game(new Team("team1", new ClientHandles()), subscriber, publisher, clock.newTimer("Virtual"), tournamentProperties,
+                null, clock);
+        game.start();
+        List<Integer> indexes = new ArrayList<>();
+        for (PuzzlePiece puzzlePiece : game.getPuzzle()) {
+            indexes.add(puzzlePiece.getIndex());
+        }
+        game.stop();
+        return indexes;
+    }
+
+    @Test
+    public void testSelectionTimesOutOnTheVirtualClock() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 1);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPuzzleSize(3);
+        LoopbackSession loopbackSession = new LoopbackSession();
+        Publisher publisher = new Publisher(loopbackSession.getSession(), objectMapper, new LastValueCache());
+        Subscriber subscriber = new Subscriber(loopbackSession.getSession(), objectMapper, publisher);
+        ClientHandles clientHandles = new ClientHandles();
+        Team team = new Team("team1", clientHandles);
+        Player player = new Player();
+        player.setClientName("virtual-client1");
+        // registered, so the name has a handle
+        player.acquireHandle(clientHandles);
+        team.addPlayer(player);
+        Game game = new Game(team, subscriber, publisher, clock.newTimer("Virtual"), tournamentProperties, null, clock);
+        game.start();
+        int index = game.getPuzzle().get(0).getIndex();
+        loopbackSession.deliver("games/team1/selectPiece", ("{\"piece\":{\"index\":" + index +
+                ",\"selectedBy\":\"virtual-client1\"},\"clientId\":\"virtual-client1\"}").getBytes(StandardCharsets.UTF_8));
+        assertEquals("virtual-client1", game.getPuzzle().get(0).getSelectedBy());
+
+        clock.advance(tournamentProperties.getSelectionTimeout());
+        assertEquals("virtual-client1", game.getPuzzle().get(0).getSelectedBy());
+        clock.advance(1000);
+        assertEquals("", game.getPuzzle().get(0).getSelectedBy());
+        game.stop();
+    }
+
+    @Test
+    public void testTournamentStartsInVirtualTime() throws Exception {
+        VirtualClock clock = new VirtualClock(0, 7);
+        TournamentProperties tournamentProperties = new TournamentProperties();
+        tournamentProperties.setPlayersPerTeam(PLAYERS_PER_TEAM);
+        LoopbackBroker broker = new LoopbackBroker();
+        LoopbackSession session = broker.createSession();
+        LastValueCache lastValueCache = new LastValueCache();
+        Publisher publisher = new Publisher(session.getSession(), objectMapper, lastValueCache);
+        Subscriber subscriber = new Subscriber(session.getSession(), objectMapper, publisher);
+        Tournament tournament = new Tournament("", tournamentProperties, subscriber, publisher, lastValueCache, null, clock);
+        tournament.activate();
+        subscriber.subscribe("users");
+        // the characters the tournament assigns come back through the broker
+        subscriber.subscribe("games/>");
+        for (int i = 0; i < PLAYERS; i++) {
+            AddUserMessage addUserMessage = new AddUserMessage();
+            addUserMessage.setClientId("virtual" + i);
+            addUserMessage.setUsername("player" + i);
+            broker.publish("users", objectMapper.writeValueAsBytes(addUserMessage));
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (tournament.getRegistrationPipeline().getAdmitted() < PLAYERS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        tournament.buildTeams();
+        assertFalse(tournament.isGameStarted());
+
+        // nobody picks a character, the tournament assigns them after its readiness polls run out
+        long start = System.currentTimeMillis();
+        for (int second = 0; second < 60 && !tournament.isGameStarted(); second++) {
+            clock.advance(1000);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(tournament.isGameStarted());
+        assertTrue(clock.millis() >= 10 * tournamentProperties.getCharacterSelectionInterval());
+        assertTrue(elapsed < clock.millis() / 10);
+        tournament.close();
+    }
+}